@@ -0,0 +1,101 @@
+package com.example.advertisement.benchmark;
+
+import com.example.advertisement.model.Click;
+import com.example.advertisement.model.Impression;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Deterministic impressions and clicks shared by the JMH benchmarks, with roughly one click
+ * per ten impressions over 50 apps, 2 countries and 100 advertisers.
+ */
+public final class BenchmarkData {
+
+    private static final long SEED = 42;
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * Generates impressions.
+     *
+     * @param count The number of impressions.
+     * @return The impressions.
+     */
+    public static List<Impression> impressions(int count) {
+        Random random = new Random(SEED);
+        List<Impression> impressions = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            impressions.add(new Impression(new UUID(random.nextLong(), random.nextLong()).toString(),
+                    String.valueOf(100 + random.nextInt(50)), random.nextBoolean() ? "US" : "GB",
+                    String.valueOf(200 + random.nextInt(100))));
+        }
+        return impressions;
+    }
+
+    /**
+     * Generates clicks on random impressions.
+     *
+     * @param impressions The impressions to click.
+     * @return One click per ten impressions.
+     */
+    public static List<Click> clicks(List<Impression> impressions) {
+        Random random = new Random(SEED);
+        List<Click> clicks = new ArrayList<>(impressions.size() / 10);
+        for (int i = 0; i < impressions.size() / 10; i++) {
+            clicks.add(new Click(String.valueOf(i), impressions.get(random.nextInt(impressions.size())).getId(),
+                    Math.round(random.nextDouble() * 500) / 100.0));
+        }
+        return clicks;
+    }
+
+    /**
+     * Writes objects as JSON arrays spread evenly over several files.
+     *
+     * @param objectMapper The mapper used to serialize the objects.
+     * @param objects      The objects to write.
+     * @param dir          The directory of the files.
+     * @param files        The number of files.
+     * @throws IOException If a file cannot be written.
+     */
+    public static void writeJsonFiles(ObjectMapper objectMapper, List<?> objects, Path dir, int files) throws IOException {
+        Files.createDirectories(dir);
+        int perFile = (objects.size() + files - 1) / files;
+        for (int file = 0; file < files; file++) {
+            Path path = dir.resolve(String.format("part-%05d.json", file));
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(path.toFile(), JsonEncoding.UTF8)) {
+                generator.writeStartArray();
+                for (Object object : objects.subList(Math.min(file * perFile, objects.size()),
+                        Math.min((file + 1) * perFile, objects.size()))) {
+                    generator.writeObject(object);
+                }
+                generator.writeEndArray();
+            }
+        }
+    }
+
+    /**
+     * Deletes a directory and its content.
+     *
+     * @param dir The directory to delete.
+     * @throws IOException If a file cannot be deleted.
+     */
+    public static void delete(Path dir) throws IOException {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.advertisement.benchmark;
+
+import com.example.advertisement.metric.MetricsMode;
+import com.example.advertisement.metric.StreamingMetricsAggregator;
+import com.example.advertisement.model.AdvertiserMetrics;
+import com.example.advertisement.model.AdvertiserRevenue;
+import com.example.advertisement.model.Click;
+import com.example.advertisement.model.Impression;
+import com.example.advertisement.model.Recommendation;
+import com.example.advertisement.recommendation.TopKAdvertiserRanker;
+import com.example.advertisement.report.CombinedReport;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records/sec of the in-memory metrics and recommendation computations: the streaming metrics
+ * aggregator fed with impressions and clicks, and the top-K ranking and combined report fed with
+ * the per-advertiser totals the Mongo aggregations produce. The aggregations themselves need Mongo
+ * and are measured by the {@code benchmark} tests instead.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ComputationBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    private int records;
+
+    @Param({"5"})
+    private int numberAdvertisers;
+
+    private List<Impression> impressions;
+    private List<Click> clicks;
+    private List<AdvertiserMetrics> advertisers;
+
+    @Setup
+    public void setUp() {
+        impressions = BenchmarkData.impressions(records);
+        clicks = BenchmarkData.clicks(impressions);
+
+        // Totals per (appId, countryCode, advertiserId), as grouped by the aggregations
+        Map<String, Impression> impressionsById = new HashMap<>();
+        Map<List<String>, AdvertiserMetrics> totals = new HashMap<>();
+        for (Impression impression : impressions) {
+            impressionsById.put(impression.getId(), impression);
+            AdvertiserMetrics advertiser = totals.computeIfAbsent(key(impression),
+                    key -> new AdvertiserMetrics(key.get(0), key.get(1), key.get(2), 0L, 0L, 0.0));
+            advertiser.setImpressions(advertiser.getImpressions() + 1);
+        }
+        for (Click click : clicks) {
+            AdvertiserMetrics advertiser = totals.get(key(impressionsById.get(click.getImpressionId())));
+            advertiser.setClicks(advertiser.getClicks() + 1);
+            advertiser.setRevenue(advertiser.getRevenue() + click.getRevenue());
+        }
+        advertisers = List.copyOf(totals.values());
+    }
+
+    @Benchmark
+    public long streamingMetrics(RecordCounter counter, Blackhole blackhole) {
+        StreamingMetricsAggregator aggregator = new StreamingMetricsAggregator(MetricsMode.STREAMING);
+        aggregator.onImpressions(impressions);
+        aggregator.onClicks(clicks);
+        blackhole.consume(aggregator.metrics());
+        return counter.add(impressions.size() + clicks.size());
+    }
+
+    @Benchmark
+    public List<Recommendation> topKRecommendations(RecordCounter counter) {
+        TopKAdvertiserRanker ranker = new TopKAdvertiserRanker(numberAdvertisers);
+        for (AdvertiserMetrics advertiser : advertisers) {
+            ranker.add(new AdvertiserRevenue(advertiser.getAppId(), advertiser.getCountryCode(),
+                    advertiser.getAdvertiserId(), advertiser.getRevenue()));
+        }
+        counter.add(advertisers.size());
+        return ranker.recommendations();
+    }
+
+    @Benchmark
+    public long combinedReport(RecordCounter counter, Blackhole blackhole) {
+        CombinedReport report = new CombinedReport(numberAdvertisers);
+        advertisers.forEach(report::add);
+        blackhole.consume(report.metrics());
+        blackhole.consume(report.recommendations());
+        return counter.add(advertisers.size());
+    }
+
+    private static List<String> key(Impression impression) {
+        return List.of(impression.getAppId(), impression.getCountryCode(), impression.getAdvertiserId());
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.advertisement.benchmark;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Secondary JMH result reporting the records processed per second, next to the operations
+ * per second of the benchmark where one operation handles a whole dataset.
+ */
+@State(Scope.Thread)
+@AuxCounters(AuxCounters.Type.OPERATIONS)
+public class RecordCounter {
+
+    public long records;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+        records = 0;
+    }
+
+    /**
+     * Adds the records of one benchmark invocation.
+     *
+     * @param count The number of records.
+     * @return The same number, to be returned by the benchmark method.
+     */
+    public long add(long count) {
+        records += count;
+        return count;
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.advertisement.utils;
+
+import com.example.advertisement.benchmark.BenchmarkData;
+import com.example.advertisement.benchmark.RecordCounter;
+import com.example.advertisement.config.ObjectMapperConfiguration;
+import com.example.advertisement.model.Click;
+import com.example.advertisement.model.Impression;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records/sec of {@link ReactiveJsonReader#readJsonFiles(String, Class)} on a dataset written
+ * as a single file or spread over several files, with the reader defaults of application.yaml.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReactiveJsonReaderBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    private int records;
+
+    @Param({"1", "8"})
+    private int files;
+
+    private ReactiveJsonReader reader;
+    private Path tempDir;
+    private String impressionPattern;
+    private String clickPattern;
+
+    @Setup
+    public void setUp() throws IOException {
+        ObjectMapper objectMapper = new ObjectMapperConfiguration().objectMapper();
+        reader = new ReactiveJsonReader(objectMapper, new SimpleMeterRegistry(),
+                new JsonReaderProperties(4, true, 65536, 67108864L, 65536, 268435456L, 67108864L));
+        reader.createScheduler();
+
+        tempDir = Files.createTempDirectory("readerBenchmark");
+        List<Impression> impressions = BenchmarkData.impressions(records);
+        BenchmarkData.writeJsonFiles(objectMapper, impressions, tempDir.resolve("impressions"), files);
+        BenchmarkData.writeJsonFiles(objectMapper, BenchmarkData.clicks(impressions), tempDir.resolve("clicks"), files);
+        impressionPattern = tempDir.resolve("impressions").resolve("*.json").toString();
+        clickPattern = tempDir.resolve("clicks").resolve("*.json").toString();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        reader.disposeScheduler();
+        BenchmarkData.delete(tempDir);
+    }
+
+    @Benchmark
+    public long readImpressions(RecordCounter counter) {
+        return counter.add(reader.readJsonFiles(impressionPattern, Impression.class).count().block());
+    }
+
+    @Benchmark
+    public long readClicks(RecordCounter counter) {
+        return counter.add(reader.readJsonFiles(clickPattern, Click.class).count().block());
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.advertisement.utils;
+
+import com.example.advertisement.benchmark.BenchmarkData;
+import com.example.advertisement.benchmark.RecordCounter;
+import com.example.advertisement.config.ObjectMapperConfiguration;
+import com.example.advertisement.metric.MetricsMode;
+import com.example.advertisement.metric.StreamingMetricsAggregator;
+import com.example.advertisement.model.Impression;
+import com.example.advertisement.model.Metrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records/sec of serializing objects with {@link ReactiveJsonWriter#writeJsonFile(Flux, Path)}
+ * in each output format, plain and gzip-compressed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReactiveJsonWriterBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    private int records;
+
+    @Param({"ARRAY", "NDJSON"})
+    private JsonOutputFormat format;
+
+    @Param({"false", "true"})
+    private boolean gzip;
+
+    private ReactiveJsonWriter writer;
+    private Path tempDir;
+    private Path output;
+    private List<Metrics> metrics;
+    private List<Impression> impressions;
+
+    @Setup
+    public void setUp() throws IOException {
+        writer = new ReactiveJsonWriter(new ObjectMapperConfiguration().objectMapper(), new SimpleMeterRegistry(),
+                new JsonWriterProperties(1048576, 256), new JsonOutputProperties(1, format, gzip));
+
+        tempDir = Files.createTempDirectory("writerBenchmark");
+        output = tempDir.resolve("output.json");
+        impressions = BenchmarkData.impressions(records);
+
+        // One metrics row per impression, so both benchmarks write the same number of records
+        metrics = new ArrayList<>(records);
+        StreamingMetricsAggregator aggregator = new StreamingMetricsAggregator(MetricsMode.STREAMING);
+        aggregator.onImpressions(impressions);
+        List<Metrics> aggregated = aggregator.metrics();
+        for (int i = 0; i < records; i++) {
+            metrics.add(aggregated.get(i % aggregated.size()));
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        BenchmarkData.delete(tempDir);
+    }
+
+    @Benchmark
+    public long writeMetrics(RecordCounter counter) {
+        writer.writeJsonFile(Flux.fromIterable(metrics), output).blockLast();
+        return counter.add(records);
+    }
+
+    @Benchmark
+    public long writeImpressions(RecordCounter counter) {
+        writer.writeJsonFile(Flux.fromIterable(impressions), output).blockLast();
+        return counter.add(records);
+    }
+}
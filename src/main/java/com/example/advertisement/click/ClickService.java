@@ -1,20 +1,96 @@
 package com.example.advertisement.click;
 
+import com.example.advertisement.dedupe.IngestDeduplicator;
+import com.example.advertisement.ingest.IngestManifest;
+import com.example.advertisement.metric.MetricsMaterializer;
+import com.example.advertisement.metric.StreamingMetricsAggregator;
 import com.example.advertisement.model.Click;
+import com.example.advertisement.storage.StorageLayoutVerifier;
+import com.example.advertisement.utils.ReactiveBulkWriter;
 import com.example.advertisement.utils.ReactiveJsonReader;
+import com.example.advertisement.utils.ReactiveTimers;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.file.Path;
+import java.util.List;
 
 @Service
 @RequiredArgsConstructor
 public class ClickService {
     private final ReactiveJsonReader reader;
-    private final ClickRepository repository;
+    private final ReactiveBulkWriter writer;
+    private final StreamingMetricsAggregator streamingMetricsAggregator;
+    private final MetricsMaterializer metricsMaterializer;
+    private final IngestDeduplicator deduplicator;
+    private final IngestManifest ingestManifest;
+    private final StorageLayoutVerifier storageLayoutVerifier;
+    private final MeterRegistry meterRegistry;
+
+    private Timer writeTimer;
+    private Counter writtenDocuments;
+
+    @PostConstruct
+    void createMeters() {
+        writeTimer = Timer.builder("advertisement.mongo.write")
+                .description("Latency of one bulk insert")
+                .tag("collection", "click")
+                .publishPercentileHistogram()
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+        writtenDocuments = Counter.builder("advertisement.mongo.documents")
+                .description("Documents inserted, without skipped duplicates")
+                .tag("collection", "click")
+                .register(meterRegistry);
+    }
 
     public Flux<Click> load(String path) {
-        return reader.readJsonFiles(path, Click.class)
-                .flatMap(repository::save);
+        if (ingestManifest.isEnabled()) {
+            // Skip unchanged files and resume interrupted ones
+            return written(ingestManifest.load(path, Click.class, this::writeBatch));
+        }
+        return load(reader.readJsonFiles(path, Click.class));
+    }
+
+    public Flux<Click> load(List<Path> files) {
+        if (ingestManifest.isEnabled()) {
+            // Skip unchanged files and resume interrupted ones
+            return written(ingestManifest.load(files, Click.class, this::writeBatch));
+        }
+        return load(reader.readJsonFiles(files, Click.class));
+    }
+
+    public Flux<Click> load(Flux<Click> clicks) {
+        return written(writer.write(clicks, this::writeBatch));
+    }
+
+    private Flux<Click> written(Flux<List<Click>> batches) {
+        // Documents of both layouts would not join, so nothing is written over a collection of the other layout
+        return storageLayoutVerifier.verify(Click.class).thenMany(batches)
+                .doOnNext(streamingMetricsAggregator::onClicks) // Count only newly stored documents
+                .flatMapIterable(batch -> batch);
+    }
+
+    private Mono<List<Click>> writeBatch(List<Click> batch) {
+        return deduplicator.newDocuments(batch, Click.class, Click::getId)
+                .flatMap(this::insertBatch)
+                .doOnNext(written -> deduplicator.add(batch, Click.class, Click::getId));
+    }
+
+    private Mono<List<Click>> insertBatch(List<Click> batch) {
+        if (batch.isEmpty()) {
+            return Mono.just(batch);
+        }
+        Mono<List<Click>> write = ReactiveTimers.time(writer.writeBatch(batch, Click.class), writeTimer)
+                .doOnNext(written -> writtenDocuments.increment(written.size()));
+        // In materialized mode the batch is written together with its metrics delta
+        return metricsMaterializer.isEnabled() ? metricsMaterializer.addClicks(write) : write;
     }
 
 }
@@ -0,0 +1,32 @@
+package com.example.advertisement.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.core.aggregation.AggregationOptions;
+
+import java.time.Duration;
+
+@Configuration
+public class AggregationConfiguration {
+
+    /**
+     * Creates the options applied to the metrics and recommendations aggregations.
+     *
+     * @param allowDiskUse    Whether stages may spill to temporary files instead of failing at the 100 MB memory limit.
+     * @param cursorBatchSize The number of result documents returned per cursor batch.
+     * @param maxTime         The time limit of an aggregation, or zero for no limit.
+     * @return The aggregation options.
+     */
+    @Bean
+    public AggregationOptions aggregationOptions(
+            @Value("${advertisement.aggregation.allow-disk-use:true}") boolean allowDiskUse,
+            @Value("${advertisement.aggregation.cursor-batch-size:1000}") int cursorBatchSize,
+            @Value("${advertisement.aggregation.max-time:0s}") Duration maxTime) {
+        return AggregationOptions.builder()
+                .allowDiskUse(allowDiskUse)
+                .cursorBatchSize(cursorBatchSize)
+                .maxTime(maxTime)
+                .build();
+    }
+}
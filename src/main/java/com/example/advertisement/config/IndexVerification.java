@@ -0,0 +1,22 @@
+package com.example.advertisement.config;
+
+/**
+ * What to do at startup when an aggregation pipeline does not use its index,
+ * set with {@code advertisement.indexes.verification}.
+ */
+public enum IndexVerification {
+    /**
+     * Skip the explain verification.
+     */
+    OFF,
+
+    /**
+     * Log a warning for every pipeline that does not use its index.
+     */
+    WARN,
+
+    /**
+     * Fail the application startup if a pipeline does not use its index.
+     */
+    FAIL
+}
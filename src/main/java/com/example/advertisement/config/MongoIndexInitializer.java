@@ -0,0 +1,212 @@
+package com.example.advertisement.config;
+
+import com.example.advertisement.metric.MetricsCalculatorService;
+import com.example.advertisement.model.Click;
+import com.example.advertisement.model.Impression;
+import com.example.advertisement.recommendation.RecommendationService;
+import com.example.advertisement.storage.StorageSchema;
+import com.mongodb.ExplainVerbosity;
+import com.mongodb.reactivestreams.client.MongoCollection;
+import lombok.RequiredArgsConstructor;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Creates the indexes used by the metrics and recommendations pipelines at startup
+ * and checks through explain output that the pipelines use them.
+ * The join index is named after its collection so that its name never matches a field of the pipelines.
+ */
+@Component
+@RequiredArgsConstructor
+public class MongoIndexInitializer {
+
+    public static final String CLICK_IMPRESSION_ID_INDEX = "click_impressionId";
+    public static final String IMPRESSION_APP_COUNTRY_INDEX = "appId_countryCode";
+    public static final String IMPRESSION_APP_COUNTRY_ADVERTISER_INDEX = "appId_countryCode_advertiserId";
+    public static final String ID_INDEX = "_id_";
+    public static final String COMPACT_INDEX_PREFIX = "compact_";
+
+    private static final Logger logger = LoggerFactory.getLogger(MongoIndexInitializer.class);
+    private static final Duration TIMEOUT = Duration.ofMinutes(5);
+
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final MetricsCalculatorService metricsCalculatorService;
+    private final RecommendationService recommendationService;
+    private final StorageSchema storageSchema;
+
+    @Value("${advertisement.indexes.create:true}")
+    private boolean create;
+
+    @Value("${advertisement.indexes.verification:warn}")
+    private IndexVerification verification;
+
+    /**
+     * Creates and verifies the indexes once the application context is ready, before any command runs.
+     */
+    @EventListener(ContextRefreshedEvent.class)
+    public void initialize() {
+        Mono<Void> indexes = create ? createIndexes() : Mono.empty();
+        List<String> problems = indexes
+                .thenMany(verification == IndexVerification.OFF ? Flux.empty() : unusedIndexes())
+                .collectList()
+                .block(TIMEOUT);
+
+        if (problems == null || problems.isEmpty()) {
+            return;
+        }
+        if (verification == IndexVerification.FAIL) {
+            throw new IllegalStateException("Aggregation pipelines do not use their indexes: " + problems);
+        }
+        problems.forEach(problem -> logger.warn("Aggregation pipeline does not use its index: {}", problem));
+    }
+
+    /**
+     * Creates the join and group-key indexes if they do not exist yet.
+     *
+     * @return A Mono that completes when all indexes exist.
+     */
+    public Mono<Void> createIndexes() {
+        return Flux.concat(
+                // Join key of the impression -> click $lookup
+                mongoTemplate.indexOps(Click.class).ensureIndex(new Index()
+                        .on(storageSchema.fieldName("impressionId"), Sort.Direction.ASC)
+                        .named(indexName(CLICK_IMPRESSION_ID_INDEX))),
+
+                // Group keys of the metrics and recommendations pipelines
+                mongoTemplate.indexOps(Impression.class).ensureIndex(new Index()
+                        .on(storageSchema.fieldName("appId"), Sort.Direction.ASC)
+                        .on(storageSchema.fieldName("countryCode"), Sort.Direction.ASC)
+                        .named(indexName(IMPRESSION_APP_COUNTRY_INDEX))),
+                mongoTemplate.indexOps(Impression.class).ensureIndex(new Index()
+                        .on(storageSchema.fieldName("appId"), Sort.Direction.ASC)
+                        .on(storageSchema.fieldName("countryCode"), Sort.Direction.ASC)
+                        .on(storageSchema.fieldName("advertiserId"), Sort.Direction.ASC)
+                        .named(indexName(IMPRESSION_APP_COUNTRY_ADVERTISER_INDEX)))
+        ).doOnNext(index -> logger.info("Ensured index: {}", index)).then();
+    }
+
+    /**
+     * Names an index in the configured storage layout. Indexes of the compact layout are keyed on other fields,
+     * so they get their own names rather than clashing with the indexes of a collection created in the standard
+     * layout.
+     *
+     * @param name The name of the index in the standard layout.
+     * @return The name of the index in the configured layout.
+     */
+    public String indexName(String name) {
+        return storageSchema.isCompact() ? COMPACT_INDEX_PREFIX + name : name;
+    }
+
+    /**
+     * Explains the metrics and recommendations pipelines and reports those that do not use the join index.
+     * A metrics pipeline joining persisted click summaries is expected to use their {@code _id} index.
+     * The group-key indexes are not checked: both pipelines read every impression, which the planner does with a
+     * collection scan, and {@code $group} never uses an index, so no explain output of these pipelines names them.
+     *
+     * @return A Flux of descriptions of the pipelines that do not use their index.
+     */
+    public Flux<String> unusedIndexes() {
+        String joinIndex = indexName(CLICK_IMPRESSION_ID_INDEX);
+        String metricsIndex = metricsCalculatorService.isClickSummaryPersisted() ? ID_INDEX : joinIndex;
+        Aggregation recommendations = recommendationService.isRankedByEngine()
+                ? recommendationService.advertiserRevenueAggregation()
+                : recommendationService.aggregation(1);
+        return Flux.concat(
+                unusedIndex("metrics", metricsCalculatorService.aggregation(), metricsIndex),
+                unusedIndex("recommendations", recommendations, joinIndex)
+        );
+    }
+
+    /**
+     * Explains a pipeline over the impression collection and checks that its join uses the given index.
+     * A {@code $lookup} pushed down to the slot-based engine is planned as an {@code EQ_LOOKUP} stage whose
+     * {@code strategy} and {@code indexName} tell the index it uses. Any other {@code $lookup} only reports the
+     * indexes it used once it has run, so the pipeline is then explained with execution statistics over a
+     * single impression.
+     *
+     * @param name        The name of the pipeline, used in the report.
+     * @param aggregation The pipeline to explain.
+     * @param index       The name of the index the pipeline is expected to use.
+     * @return A Mono of the problem description, or an empty Mono if the index is used or there is nothing to join.
+     */
+    private Mono<String> unusedIndex(String name, Aggregation aggregation, String index) {
+        List<Document> pipeline = aggregation.toPipeline(Aggregation.DEFAULT_CONTEXT);
+        List<Document> sample = new ArrayList<>();
+        sample.add(new Document("$limit", 1));
+        sample.addAll(pipeline);
+
+        return mongoTemplate.getCollection(mongoTemplate.getCollectionName(Impression.class))
+                .flatMap(collection -> explain(name, collection, pipeline, ExplainVerbosity.QUERY_PLANNER)
+                        .flatMap(plan -> {
+                            List<Document> joins = find(plan, stage -> "EQ_LOOKUP".equals(stage.get("stage")));
+                            if (!joins.isEmpty()) {
+                                return Mono.just(joins.stream().anyMatch(join -> "IndexedLoopJoin".equals(join.get("strategy"))
+                                        && index.equals(join.get("indexName"))));
+                            }
+                            return explain(name, collection, sample, ExplainVerbosity.EXECUTION_STATS)
+                                    .flatMap(stats -> lookupUsesIndex(name, stats, index));
+                        }))
+                .filter(used -> !used)
+                .map(used -> name + " pipeline does not use index " + index);
+    }
+
+    private Mono<Document> explain(String name, MongoCollection<Document> collection, List<Document> pipeline,
+                                   ExplainVerbosity verbosity) {
+        return Mono.from(collection.aggregate(pipeline).explain(Document.class, verbosity))
+                .doOnNext(explain -> logger.debug("Explain output of the {} pipeline: {}", name, explain.toJson()));
+    }
+
+    /**
+     * Checks the execution statistics of the {@code $lookup} stages of a pipeline.
+     *
+     * @return A Mono of true if a lookup used the index, false if the lookups scanned the joined collection
+     * instead, or an empty Mono if no impression was joined.
+     */
+    private static Mono<Boolean> lookupUsesIndex(String name, Document stats, String index) {
+        List<Document> lookups = find(stats, stage -> stage.containsKey("$lookup") && stage.containsKey("indexesUsed"));
+        if (lookups.stream().anyMatch(lookup -> lookup.getList("indexesUsed", String.class).contains(index))) {
+            return Mono.just(true);
+        }
+        if (lookups.stream().anyMatch(lookup -> ((Number) lookup.getOrDefault("collectionScans", 0)).longValue() > 0)) {
+            return Mono.just(false);
+        }
+        logger.info("Cannot verify the index of the {} pipeline until impressions and clicks are loaded", name);
+        return Mono.empty();
+    }
+
+    /**
+     * Finds the documents nested anywhere in an explain output that match a predicate.
+     */
+    private static List<Document> find(Document explain, Predicate<Document> predicate) {
+        List<Document> found = new ArrayList<>();
+        find(explain, predicate, found);
+        return found;
+    }
+
+    private static void find(Object value, Predicate<Document> predicate, List<Document> found) {
+        if (value instanceof Document document) {
+            if (predicate.test(document)) {
+                found.add(document);
+            }
+            document.values().forEach(child -> find(child, predicate, found));
+        } else if (value instanceof List<?> list) {
+            list.forEach(child -> find(child, predicate, found));
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package com.example.advertisement.dedupe;
+
+import com.example.advertisement.storage.CompactFields;
+import com.example.advertisement.storage.StorageSchema;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Skips documents that are already stored before they are written, using a {@link ScalableBloomFilter}
+ * of the ids written per collection. Ids the filter has never seen are definitely new and go straight to
+ * the bulk insert; only the ids it has probably seen are looked up in Mongo, with one query per batch,
+ * and the ones found are dropped from the batch. Re-delivered files are then skipped with one read per
+ * batch instead of a rejected insert per document.
+ * <p>
+ * The filters start empty, or from {@code advertisement.dedupe.path} when set, where they are saved on shutdown.
+ * Ids written by other processes are unknown to the filters, and are still rejected by the bulk insert.
+ */
+@Component
+@RequiredArgsConstructor
+public class IngestDeduplicator {
+
+    private static final Logger logger = LoggerFactory.getLogger(IngestDeduplicator.class);
+    private static final String FILE_EXTENSION = ".bloom";
+
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final StorageSchema storageSchema;
+    private final MeterRegistry meterRegistry;
+
+    // collection -> ids written to it
+    private final Map<String, ScalableBloomFilter> filters = new ConcurrentHashMap<>();
+
+    @Value("${advertisement.dedupe.enabled:false}")
+    private boolean enabled;
+
+    @Value("${advertisement.dedupe.expected-ids:1000000}")
+    private long expectedIds;
+
+    @Value("${advertisement.dedupe.false-positive-rate:0.01}")
+    private double falsePositiveRate;
+
+    @Value("${advertisement.dedupe.path:}")
+    private String path;
+
+    /**
+     * @return True if documents are deduplicated before they are written ({@code advertisement.dedupe.enabled=true}).
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Removes the documents that are already stored from a batch. Documents whose id is unknown to the filter
+     * are kept without a lookup, and the others are kept only if Mongo does not hold their id.
+     *
+     * @param batch The documents to write.
+     * @param clazz The class type mapped to the target collection.
+     * @param idOf  Returns the id of a document.
+     * @param <T>   The type of the documents.
+     * @return A Mono of the documents of the batch that are not stored yet, in batch order.
+     */
+    public <T> Mono<List<T>> newDocuments(List<T> batch, Class<T> clazz, Function<T, String> idOf) {
+        if (!enabled) {
+            return Mono.just(batch);
+        }
+
+        String collection = mongoTemplate.getCollectionName(clazz);
+        ScalableBloomFilter filter = filter(collection);
+        Set<String> probableDuplicates = new HashSet<>();
+        for (T document : batch) {
+            String id = idOf.apply(document);
+            if (filter.mightContain(id)) {
+                probableDuplicates.add(id);
+            }
+        }
+        if (probableDuplicates.isEmpty()) {
+            return Mono.just(batch);
+        }
+
+        meterRegistry.counter("advertisement.dedupe.checked", "collection", collection).increment(probableDuplicates.size());
+        // Ids are matched as stored, e.g. numeric ids are stored as numbers in the compact layout
+        Query query = Query.query(Criteria.where("_id").in(storageSchema.storedIds(List.copyOf(probableDuplicates))));
+        query.fields().include("_id");
+        return mongoTemplate.find(query, Document.class, collection)
+                .map(document -> CompactFields.fromStored(document.get("_id")))
+                .collect(HashSet<String>::new, Set::add)
+                .map(stored -> {
+                    List<T> fresh = new ArrayList<>(batch.size() - stored.size());
+                    for (T document : batch) {
+                        if (!stored.contains(idOf.apply(document))) {
+                            fresh.add(document);
+                        }
+                    }
+                    int skipped = batch.size() - fresh.size();
+                    meterRegistry.counter("advertisement.dedupe.skipped", "collection", collection).increment(skipped);
+                    logger.debug("Skipped {} stored {} documents of a batch of {} ({} probable duplicates checked)",
+                            skipped, collection, batch.size(), probableDuplicates.size());
+                    return fresh;
+                });
+    }
+
+    /**
+     * Records the ids of a batch once it is written, including the ids rejected as duplicates by the insert,
+     * as all of them are stored.
+     *
+     * @param batch The documents of the batch.
+     * @param clazz The class type mapped to the target collection.
+     * @param idOf  Returns the id of a document.
+     * @param <T>   The type of the documents.
+     */
+    public <T> void add(List<T> batch, Class<T> clazz, Function<T, String> idOf) {
+        if (!enabled) {
+            return;
+        }
+        ScalableBloomFilter filter = filter(mongoTemplate.getCollectionName(clazz));
+        for (T document : batch) {
+            filter.add(idOf.apply(document));
+        }
+    }
+
+    /**
+     * Saves the filters to {@code advertisement.dedupe.path}, if set, replacing the previous files atomically.
+     */
+    @PreDestroy
+    public void save() {
+        if (!enabled || path.isBlank()) {
+            return;
+        }
+        filters.forEach((collection, filter) -> {
+            Path file = file(collection);
+            Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+            try {
+                Files.createDirectories(file.getParent());
+                try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                    filter.writeTo(output);
+                }
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                logger.info("Saved the {} id filter with {} ids ({} bytes) to {}",
+                        collection, filter.size(), filter.sizeInBytes(), file);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to save the " + collection + " id filter to " + file, e);
+            }
+        });
+    }
+
+    /**
+     * Returns the filter of a collection, reading it from {@code advertisement.dedupe.path} on first use.
+     */
+    private ScalableBloomFilter filter(String collection) {
+        return filters.computeIfAbsent(collection, key -> {
+            if (!path.isBlank() && Files.exists(file(key))) {
+                try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(file(key))))) {
+                    ScalableBloomFilter filter = ScalableBloomFilter.readFrom(input);
+                    logger.info("Loaded the {} id filter with {} ids from {}", key, filter.size(), file(key));
+                    return filter;
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Failed to read the " + key + " id filter from " + file(key), e);
+                }
+            }
+            return new ScalableBloomFilter(expectedIds, falsePositiveRate);
+        });
+    }
+
+    private Path file(String collection) {
+        return Path.of(path).resolve(collection + FILE_EXTENSION);
+    }
+}
@@ -0,0 +1,217 @@
+package com.example.advertisement.dedupe;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A bloom filter of string ids that grows with the number of ids added. It is a list of fixed-size
+ * bloom filters: once the newest one holds its capacity, a new one with twice the capacity and half the
+ * false-positive rate is added, so the overall false-positive rate stays below the configured one
+ * however many ids are added. An id is probably present if any layer contains it, and definitely absent otherwise.
+ * <p>
+ * Instances are thread-safe.
+ */
+public class ScalableBloomFilter {
+
+    private static final int MAGIC = 0x424C4F4D; // "BLOM"
+    private static final int VERSION = 1;
+    private static final int GROWTH = 2;
+    private static final double TIGHTENING = 0.5;
+
+    private final long initialCapacity;
+    private final double falsePositiveRate;
+    private final List<Layer> layers = new ArrayList<>();
+
+    /**
+     * @param initialCapacity   The number of ids of the first layer.
+     * @param falsePositiveRate The upper bound of the probability that an absent id is reported as present.
+     */
+    public ScalableBloomFilter(long initialCapacity, double falsePositiveRate) {
+        if (initialCapacity <= 0) {
+            throw new IllegalArgumentException("Initial capacity must be positive: " + initialCapacity);
+        }
+        if (falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("False-positive rate must be between 0 and 1: " + falsePositiveRate);
+        }
+        this.initialCapacity = initialCapacity;
+        this.falsePositiveRate = falsePositiveRate;
+    }
+
+    /**
+     * @param id The id to look up.
+     * @return False if the id was never added, true if it probably was.
+     */
+    public synchronized boolean mightContain(String id) {
+        long hash1 = hash(id, 0);
+        return mightContain(hash1, secondHash(id, hash1));
+    }
+
+    private boolean mightContain(long hash1, long hash2) {
+        // Newest layers hold the most ids
+        for (int i = layers.size() - 1; i >= 0; i--) {
+            if (layers.get(i).contains(hash1, hash2)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Adds an id, growing the filter when its newest layer is full. Ids that are probably present already
+     * are not added again, so they do not use capacity.
+     *
+     * @param id The id to add.
+     */
+    public synchronized void add(String id) {
+        long hash1 = hash(id, 0);
+        long hash2 = secondHash(id, hash1);
+        if (mightContain(hash1, hash2)) {
+            return;
+        }
+        Layer layer = layers.isEmpty() ? null : layers.get(layers.size() - 1);
+        if (layer == null || layer.count >= layer.capacity) {
+            layer = addLayer();
+        }
+        layer.add(hash1, hash2);
+    }
+
+    /**
+     * @return The number of ids added, without the ones that were probably present already.
+     */
+    public synchronized long size() {
+        return layers.stream().mapToLong(layer -> layer.count).sum();
+    }
+
+    /**
+     * @return The memory used by the bit arrays, in bytes.
+     */
+    public synchronized long sizeInBytes() {
+        return layers.stream().mapToLong(layer -> (long) layer.words.length * Long.BYTES).sum();
+    }
+
+    /**
+     * Writes the filter in a binary format read by {@link #readFrom(DataInput)}.
+     *
+     * @param output The output to write to.
+     * @throws IOException If the output cannot be written.
+     */
+    public synchronized void writeTo(DataOutput output) throws IOException {
+        output.writeInt(MAGIC);
+        output.writeInt(VERSION);
+        output.writeLong(initialCapacity);
+        output.writeDouble(falsePositiveRate);
+        output.writeInt(layers.size());
+        for (Layer layer : layers) {
+            output.writeLong(layer.capacity);
+            output.writeLong(layer.count);
+            output.writeInt(layer.hashes);
+            output.writeInt(layer.words.length);
+            for (long word : layer.words) {
+                output.writeLong(word);
+            }
+        }
+    }
+
+    /**
+     * Reads a filter written by {@link #writeTo(DataOutput)}.
+     *
+     * @param input The input to read from.
+     * @return The filter.
+     * @throws IOException If the input cannot be read or does not hold a filter.
+     */
+    public static ScalableBloomFilter readFrom(DataInput input) throws IOException {
+        if (input.readInt() != MAGIC || input.readInt() != VERSION) {
+            throw new IOException("Not a bloom filter file");
+        }
+        ScalableBloomFilter filter = new ScalableBloomFilter(input.readLong(), input.readDouble());
+        int layers = input.readInt();
+        for (int i = 0; i < layers; i++) {
+            long capacity = input.readLong();
+            long count = input.readLong();
+            int hashes = input.readInt();
+            long[] words = new long[input.readInt()];
+            for (int w = 0; w < words.length; w++) {
+                words[w] = input.readLong();
+            }
+            Layer layer = new Layer(capacity, hashes, words);
+            layer.count = count;
+            filter.layers.add(layer);
+        }
+        return filter;
+    }
+
+    private Layer addLayer() {
+        int index = layers.size();
+        long capacity = initialCapacity * (long) Math.pow(GROWTH, index);
+        // The rates of all layers sum to at most the configured rate
+        double rate = falsePositiveRate * (1 - TIGHTENING) * Math.pow(TIGHTENING, index);
+        long bits = (long) Math.ceil(-capacity * Math.log(rate) / (Math.log(2) * Math.log(2)));
+        int hashes = Math.max(1, (int) Math.round((double) bits / capacity * Math.log(2)));
+        Layer layer = new Layer(capacity, hashes, new long[(int) Math.min((bits + 63) / 64, Integer.MAX_VALUE - 8)]);
+        layers.add(layer);
+        return layer;
+    }
+
+    /**
+     * The step of double hashing, odd so it is never zero and the probes of an id differ.
+     */
+    private static long secondHash(String id, long hash1) {
+        return hash(id, hash1) | 1;
+    }
+
+    /**
+     * A 64-bit FNV-1a hash of the chars of the id, mixed with the finalizer of MurmurHash3.
+     */
+    private static long hash(String id, long seed) {
+        long hash = 0xCBF29CE484222325L ^ seed;
+        for (int i = 0; i < id.length(); i++) {
+            hash ^= id.charAt(i);
+            hash *= 0x100000001B3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        hash *= 0xC4CEB9FE1A85EC53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    /**
+     * A fixed-size bloom filter probing {@code hashes} bits with double hashing.
+     */
+    private static final class Layer {
+        private final long capacity;
+        private final int hashes;
+        private final long[] words;
+        private final long bits;
+        private long count;
+
+        private Layer(long capacity, int hashes, long[] words) {
+            this.capacity = capacity;
+            this.hashes = hashes;
+            this.words = words;
+            this.bits = (long) words.length * 64;
+        }
+
+        private boolean contains(long hash1, long hash2) {
+            for (int i = 0; i < hashes; i++) {
+                long bit = Math.floorMod(hash1 + i * hash2, bits);
+                if ((words[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void add(long hash1, long hash2) {
+            for (int i = 0; i < hashes; i++) {
+                long bit = Math.floorMod(hash1 + i * hash2, bits);
+                words[(int) (bit >>> 6)] |= 1L << bit;
+            }
+            count++;
+        }
+    }
+}
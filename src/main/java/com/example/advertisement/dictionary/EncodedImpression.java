@@ -0,0 +1,33 @@
+package com.example.advertisement.dictionary;
+
+import com.example.advertisement.model.Impression;
+import lombok.Getter;
+
+/**
+ * An impression whose identifiers were encoded by {@link IdentifierDictionary}. The string fields hold the codes
+ * in decimal form, so encoded impressions are counted and compared like any other, while the int codes are what
+ * {@link EncodedImpressionWriteConverter} stores. Only impressions of this type are written with int codes.
+ */
+@Getter
+public class EncodedImpression extends Impression {
+    private final Integer encodedAppId;
+    private final Integer encodedCountryCode;
+    private final Integer encodedAdvertiserId;
+
+    /**
+     * @param id                  The impression ID, which is not encoded.
+     * @param encodedAppId        The code of the appId, or null if the impression has none.
+     * @param encodedCountryCode  The code of the countryCode, or null if the impression has none.
+     * @param encodedAdvertiserId The code of the advertiserId, or null if the impression has none.
+     */
+    public EncodedImpression(String id, Integer encodedAppId, Integer encodedCountryCode, Integer encodedAdvertiserId) {
+        super(id, toString(encodedAppId), toString(encodedCountryCode), toString(encodedAdvertiserId));
+        this.encodedAppId = encodedAppId;
+        this.encodedCountryCode = encodedCountryCode;
+        this.encodedAdvertiserId = encodedAdvertiserId;
+    }
+
+    private static String toString(Integer code) {
+        return code == null ? null : String.valueOf(code);
+    }
+}
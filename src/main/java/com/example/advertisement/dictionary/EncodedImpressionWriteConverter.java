@@ -0,0 +1,30 @@
+package com.example.advertisement.dictionary;
+
+import org.bson.Document;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.data.convert.WritingConverter;
+
+/**
+ * Writes impressions encoded by {@link IdentifierDictionary} with their int codes instead of strings.
+ * Other impressions are mapped by default, so identifiers that merely look numeric stay strings.
+ * Reading needs no converter, as int values are converted back to strings.
+ */
+@WritingConverter
+public class EncodedImpressionWriteConverter implements Converter<EncodedImpression, Document> {
+
+    @Override
+    public Document convert(EncodedImpression impression) {
+        Document document = new Document("_id", impression.getId());
+        append(document, "appId", impression.getEncodedAppId());
+        append(document, "countryCode", impression.getEncodedCountryCode());
+        append(document, "advertiserId", impression.getEncodedAdvertiserId());
+        return document;
+    }
+
+    private static void append(Document document, String field, Integer code) {
+        // Like the default mapping, null values are left out
+        if (code != null) {
+            document.append(field, code);
+        }
+    }
+}
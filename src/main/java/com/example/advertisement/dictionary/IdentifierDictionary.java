@@ -0,0 +1,261 @@
+package com.example.advertisement.dictionary;
+
+import com.example.advertisement.model.Impression;
+import com.example.advertisement.model.Metrics;
+import com.example.advertisement.model.Recommendation;
+import com.example.advertisement.utils.ReactiveMutex;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.UnaryOperator;
+
+/**
+ * Maps the low-cardinality impression identifiers (appId, countryCode and advertiserId) to dense int codes.
+ * Impressions are encoded before they are written, so documents, indexes and group keys hold ints,
+ * and metrics and recommendations are decoded just before they are written to JSON.
+ * Each field has its own codes, starting at 0, and every code is persisted in the
+ * {@value #DICTIONARY_COLLECTION} collection before a document refers to it.
+ * <p>
+ * Decoding assumes that all impressions were encoded, so the dictionary should be enabled on empty collections.
+ * Codes are assigned in order of arrival and do not sort like the identifiers, so advertisers are ranked
+ * on their decoded identifiers, see {@link #advertiserIdDecoder()}.
+ */
+@Component
+@RequiredArgsConstructor
+public class IdentifierDictionary {
+    public static final String DICTIONARY_COLLECTION = "dictionary";
+    public static final String APP_ID = "appId";
+    public static final String COUNTRY_CODE = "countryCode";
+    public static final String ADVERTISER_ID = "advertiserId";
+
+    private static final Logger logger = LoggerFactory.getLogger(IdentifierDictionary.class);
+    private static final int NO_CODE = -1;
+
+    private final ReactiveMongoTemplate mongoTemplate;
+
+    // Serializes the assignment and persistence of new codes
+    private final ReactiveMutex mutex = new ReactiveMutex();
+
+    // field -> value -> code, and field -> code -> value
+    private final Map<String, Object2IntOpenHashMap<String>> codes = new HashMap<>();
+    private final Map<String, ObjectArrayList<String>> values = new HashMap<>();
+
+    private Mono<Void> loaded;
+
+    @Value("${advertisement.dictionary.enabled:false}")
+    private boolean enabled;
+
+    @PostConstruct
+    void createDictionaries() {
+        for (String field : List.of(APP_ID, COUNTRY_CODE, ADVERTISER_ID)) {
+            Object2IntOpenHashMap<String> fieldCodes = new Object2IntOpenHashMap<>();
+            fieldCodes.defaultReturnValue(NO_CODE);
+            codes.put(field, fieldCodes);
+            values.put(field, new ObjectArrayList<>());
+        }
+
+        // Read the persisted codes once, on first use
+        loaded = mongoTemplate.findAll(Document.class, DICTIONARY_COLLECTION)
+                .doOnNext(this::register)
+                .then()
+                .doOnSuccess(ignored -> logger.info("Loaded identifier dictionary with {} app, {} country and {} advertiser codes",
+                        values.get(APP_ID).size(), values.get(COUNTRY_CODE).size(), values.get(ADVERTISER_ID).size()))
+                .cache();
+    }
+
+    /**
+     * @return True if identifiers are dictionary-encoded ({@code advertisement.dictionary.enabled=true}).
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Replaces the identifiers of a batch of impressions with their codes, assigning and persisting
+     * codes for values seen for the first time.
+     *
+     * @param batch The impressions to encode.
+     * @return A Mono of encoded impressions holding the codes, emitted once all their codes are persisted.
+     */
+    public Mono<List<Impression>> encode(List<Impression> batch) {
+        return loaded.then(mutex.run(Mono.defer(() -> {
+            List<Document> entries = new ArrayList<>();
+            List<Impression> encoded = new ArrayList<>(batch.size());
+            for (Impression impression : batch) {
+                encoded.add(new EncodedImpression(impression.getId(),
+                        encode(APP_ID, impression.getAppId(), entries),
+                        encode(COUNTRY_CODE, impression.getCountryCode(), entries),
+                        encode(ADVERTISER_ID, impression.getAdvertiserId(), entries)));
+            }
+            if (entries.isEmpty()) {
+                return Mono.just(encoded);
+            }
+
+            // Persist new codes before any document refers to them
+            return mongoTemplate.insert(entries, DICTIONARY_COLLECTION)
+                    .then(Mono.just(encoded))
+                    .doOnError(error -> forget(entries));
+        })));
+    }
+
+    /**
+     * Decodes the appId, countryCode and advertiserId of stored impressions.
+     * Impressions are returned unchanged when the dictionary is disabled.
+     *
+     * @param impressions The impressions to decode.
+     * @return A Flux of the decoded impressions.
+     */
+    public Flux<Impression> decodeImpressions(Flux<Impression> impressions) {
+        if (!enabled) {
+            return impressions;
+        }
+        return loaded.thenMany(impressions.map(impression -> new Impression(impression.getId(),
+                decode(APP_ID, impression.getAppId()),
+                decode(COUNTRY_CODE, impression.getCountryCode()),
+                decode(ADVERTISER_ID, impression.getAdvertiserId()))));
+    }
+
+    /**
+     * Decodes the appId and countryCode of metrics. Metrics are returned unchanged when the dictionary is disabled.
+     *
+     * @param metrics The metrics to decode.
+     * @return A Flux of the decoded metrics.
+     */
+    public Flux<Metrics> decodeMetrics(Flux<Metrics> metrics) {
+        if (!enabled) {
+            return metrics;
+        }
+        return loaded.thenMany(metrics.map(item -> {
+            item.setAppId(decode(APP_ID, item.getAppId()));
+            item.setCountryCode(decode(COUNTRY_CODE, item.getCountryCode()));
+            return item;
+        }));
+    }
+
+    /**
+     * Decodes the appId, countryCode and advertiser IDs of recommendations.
+     * Recommendations are returned unchanged when the dictionary is disabled.
+     *
+     * @param recommendations The recommendations to decode.
+     * @return A Flux of the decoded recommendations.
+     */
+    public Flux<Recommendation> decodeRecommendations(Flux<Recommendation> recommendations) {
+        if (!enabled) {
+            return recommendations;
+        }
+        return loaded.thenMany(recommendations.map(item -> {
+            item.setAppId(decode(APP_ID, item.getAppId()));
+            item.setCountryCode(decode(COUNTRY_CODE, item.getCountryCode()));
+            item.setRecommendedAdvertiserIds(item.getRecommendedAdvertiserIds().stream()
+                    .map(advertiserId -> decode(ADVERTISER_ID, advertiserId))
+                    .toList());
+            return item;
+        }));
+    }
+
+    /**
+     * Returns the function that decodes advertiser IDs, so that advertisers with equal revenue are ranked by
+     * their identifier, and the same advertisers are recommended in the same order whether or not they are encoded.
+     * The function returns advertiser IDs unchanged when the dictionary is disabled.
+     *
+     * @return A Mono of the decoding function, emitted once the persisted codes are loaded.
+     */
+    public Mono<UnaryOperator<String>> advertiserIdDecoder() {
+        if (!enabled) {
+            return Mono.just(UnaryOperator.identity());
+        }
+        return loaded.thenReturn(code -> decode(ADVERTISER_ID, code));
+    }
+
+    /**
+     * Looks up the code of a value, assigning the next code of the field if the value is new.
+     *
+     * @param field   The identifier field.
+     * @param value   The value to encode, possibly null.
+     * @param entries Collects the dictionary entries of newly assigned codes.
+     * @return The code, or null for a null value.
+     */
+    private synchronized Integer encode(String field, String value, List<Document> entries) {
+        if (value == null) {
+            return null;
+        }
+        int code = codes.get(field).getInt(value);
+        if (code == NO_CODE) {
+            code = values.get(field).size();
+            Document entry = entry(field, value, code);
+            register(entry);
+            entries.add(entry);
+        }
+        return code;
+    }
+
+    /**
+     * Looks up the value of a code. Values that are not known codes are returned unchanged.
+     *
+     * @param field The identifier field.
+     * @param code  The code as a string, possibly null.
+     * @return The decoded value.
+     */
+    private synchronized String decode(String field, String code) {
+        ObjectArrayList<String> fieldValues = values.get(field);
+        try {
+            int index = code == null ? NO_CODE : Integer.parseInt(code);
+            return index >= 0 && index < fieldValues.size() ? fieldValues.get(index) : code;
+        } catch (NumberFormatException e) {
+            return code;
+        }
+    }
+
+    /**
+     * Adds a persisted or newly assigned dictionary entry to the in-memory dictionaries.
+     *
+     * @param entry The dictionary entry.
+     */
+    private synchronized void register(Document entry) {
+        Document id = entry.get("_id", Document.class);
+        String field = id.getString("field");
+        String value = id.getString("value");
+        int code = entry.getInteger("code");
+
+        codes.get(field).put(value, code);
+        ObjectArrayList<String> fieldValues = values.get(field);
+        while (fieldValues.size() <= code) {
+            fieldValues.add(null);
+        }
+        fieldValues.set(code, value);
+    }
+
+    /**
+     * Removes entries whose persistence failed, so their codes are assigned again.
+     * Codes are assigned in order under the mutex, so the failed entries are the last of each field.
+     *
+     * @param entries The entries to remove.
+     */
+    private synchronized void forget(List<Document> entries) {
+        for (Document entry : entries) {
+            Document id = entry.get("_id", Document.class);
+            String field = id.getString("field");
+            codes.get(field).removeInt(id.getString("value"));
+            values.get(field).size(Math.min(values.get(field).size(), entry.getInteger("code")));
+        }
+    }
+
+    private Document entry(String field, String value, int code) {
+        return new Document("_id", new Document("field", field).append("value", value))
+                .append("code", code);
+    }
+}
@@ -0,0 +1,137 @@
+package com.example.advertisement.generator;
+
+import com.example.advertisement.model.Click;
+import com.example.advertisement.model.Impression;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.UUID;
+
+/**
+ * Generates synthetic impression and click files of any size, following the JSON schemas of {@code load}.
+ * Apps, countries and advertisers are drawn with a Zipf skew, and every impression is clicked
+ * with the click-through rate of the spec. Files are streamed, so memory does not grow with the
+ * number of records, and the impression of every click is found from its index instead of being kept.
+ */
+@Service
+@RequiredArgsConstructor
+public class DatasetGenerator {
+
+    private static final Logger logger = LoggerFactory.getLogger(DatasetGenerator.class);
+    private static final int OUTPUT_BUFFER_SIZE = 1 << 20;
+    private static final long CLICK_SEED_SALT = 0x9E3779B97F4A7C15L;
+
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Writes the impressions of a dataset to a JSON file, replacing an existing file atomically.
+     *
+     * @param spec The shape of the dataset.
+     * @param path The path of the impression file.
+     * @return A Mono of the number of impressions written.
+     */
+    public Mono<Long> impressions(DatasetSpec spec, Path path) {
+        return Mono.fromCallable(() -> write(path, generator -> {
+                    SplittableRandom random = new SplittableRandom(spec.seed());
+                    ZipfSampler apps = new ZipfSampler(spec.apps(), spec.skew());
+                    ZipfSampler advertisers = new ZipfSampler(spec.advertisers(), spec.skew());
+                    ZipfSampler countries = new ZipfSampler(spec.countries(), spec.skew());
+                    String[] countryCodes = countryCodes(spec.countries());
+
+                    for (long index = 0; index < spec.impressions(); index++) {
+                        generator.writeObject(new Impression(impressionId(spec, index),
+                                String.valueOf(1 + apps.sample(random)),
+                                countryCodes[countries.sample(random)],
+                                String.valueOf(1 + advertisers.sample(random))));
+                    }
+                    return spec.impressions();
+                }))
+                .subscribeOn(Schedulers.boundedElastic())
+                .doOnSuccess(count -> logger.info("Generated {} impressions in {}", count, path));
+    }
+
+    /**
+     * Writes the clicks of a dataset to a JSON file, replacing an existing file atomically.
+     * Every click refers to an impression of the same spec.
+     *
+     * @param spec The shape of the dataset.
+     * @param path The path of the click file.
+     * @return A Mono of the number of clicks written.
+     */
+    public Mono<Long> clicks(DatasetSpec spec, Path path) {
+        return Mono.fromCallable(() -> write(path, generator -> {
+                    SplittableRandom random = new SplittableRandom(spec.seed() ^ CLICK_SEED_SALT);
+                    long clicks = 0;
+                    for (long index = 0; index < spec.impressions(); index++) {
+                        if (random.nextDouble() < spec.clickThroughRate()) {
+                            double revenue = spec.revenueDistribution().sample(random, spec.meanRevenue());
+                            generator.writeObject(new Click(clickId(spec, clicks++), impressionId(spec, index),
+                                    Math.round(revenue * 100) / 100.0));
+                        }
+                    }
+                    return clicks;
+                }))
+                .subscribeOn(Schedulers.boundedElastic())
+                .doOnSuccess(count -> logger.info("Generated {} clicks in {}", count, path));
+    }
+
+    /**
+     * Writes a JSON array to a temporary file that replaces the target once complete.
+     */
+    private long write(Path path, ArrayContent content) throws IOException {
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        long count;
+        try (OutputStream output = new BufferedOutputStream(Files.newOutputStream(temp), OUTPUT_BUFFER_SIZE);
+             JsonGenerator generator = objectMapper.getFactory().createGenerator(output, JsonEncoding.UTF8)) {
+            generator.writeStartArray();
+            count = content.write(generator);
+            generator.writeEndArray();
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return count;
+    }
+
+    /**
+     * The ID of an impression, derived from the seed and its index so that clicks can refer to it.
+     */
+    private static String impressionId(DatasetSpec spec, long index) {
+        return new UUID(spec.seed(), index).toString();
+    }
+
+    /**
+     * The ID of a click, derived from the seed like impression IDs, so datasets of different seeds can be loaded together.
+     */
+    private static String clickId(DatasetSpec spec, long index) {
+        return new UUID(spec.seed() ^ CLICK_SEED_SALT, index).toString();
+    }
+
+    private static String[] countryCodes(int countries) {
+        String[] codes = Locale.getISOCountries();
+        Arrays.sort(codes);
+        return Arrays.copyOf(codes, countries);
+    }
+
+    @FunctionalInterface
+    private interface ArrayContent {
+        long write(JsonGenerator generator) throws IOException;
+    }
+}
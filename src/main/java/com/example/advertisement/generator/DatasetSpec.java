@@ -0,0 +1,45 @@
+package com.example.advertisement.generator;
+
+import java.util.Locale;
+
+/**
+ * The shape of a generated dataset.
+ *
+ * @param impressions         The number of impressions.
+ * @param apps                The number of distinct app IDs.
+ * @param countries           The number of distinct country codes, at most the number of ISO countries.
+ * @param advertisers         The number of distinct advertiser IDs.
+ * @param skew                The Zipf exponent of the app, country and advertiser popularity; 0 is uniform.
+ * @param clickThroughRate    The probability of an impression being clicked, from 0 to 1.
+ * @param revenueDistribution The distribution of the click revenue.
+ * @param meanRevenue         The mean click revenue.
+ * @param seed                The seed of the random generator; the same spec always generates the same files.
+ */
+public record DatasetSpec(long impressions, int apps, int countries, int advertisers, double skew,
+                          double clickThroughRate, RevenueDistribution revenueDistribution, double meanRevenue, long seed) {
+
+    public DatasetSpec {
+        if (impressions < 0) {
+            throw new IllegalArgumentException("Number of impressions must not be negative: " + impressions);
+        }
+        if (apps <= 0 || advertisers <= 0) {
+            throw new IllegalArgumentException("Numbers of apps and advertisers must be positive: " + apps + ", " + advertisers);
+        }
+        if (countries <= 0 || countries > Locale.getISOCountries().length) {
+            throw new IllegalArgumentException("Number of countries must be between 1 and "
+                    + Locale.getISOCountries().length + ": " + countries);
+        }
+        if (skew < 0) {
+            throw new IllegalArgumentException("Skew must not be negative: " + skew);
+        }
+        if (clickThroughRate < 0 || clickThroughRate > 1) {
+            throw new IllegalArgumentException("Click-through rate must be between 0 and 1: " + clickThroughRate);
+        }
+        if (revenueDistribution == null) {
+            throw new IllegalArgumentException("Revenue distribution must be set");
+        }
+        if (meanRevenue <= 0) {
+            throw new IllegalArgumentException("Mean revenue must be positive: " + meanRevenue);
+        }
+    }
+}
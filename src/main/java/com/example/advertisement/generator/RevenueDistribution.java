@@ -0,0 +1,57 @@
+package com.example.advertisement.generator;
+
+import java.util.random.RandomGenerator;
+
+/**
+ * The distribution of the revenue of generated clicks.
+ */
+public enum RevenueDistribution {
+    /**
+     * Every click has the mean revenue.
+     */
+    CONSTANT {
+        @Override
+        double sample(RandomGenerator random, double mean) {
+            return mean;
+        }
+    },
+
+    /**
+     * Uniform between 0 and twice the mean.
+     */
+    UNIFORM {
+        @Override
+        double sample(RandomGenerator random, double mean) {
+            return 2 * mean * random.nextDouble();
+        }
+    },
+
+    /**
+     * Exponential with the given mean: many small revenues and a few large ones.
+     */
+    EXPONENTIAL {
+        @Override
+        double sample(RandomGenerator random, double mean) {
+            return mean * random.nextExponential();
+        }
+    },
+
+    /**
+     * Log-normal with the given mean and a shape of 1: a long tail of large revenues.
+     */
+    LOGNORMAL {
+        @Override
+        double sample(RandomGenerator random, double mean) {
+            return Math.exp(Math.log(mean) - 0.5 + random.nextGaussian());
+        }
+    };
+
+    /**
+     * Draws a revenue.
+     *
+     * @param random The source of randomness.
+     * @param mean   The mean revenue.
+     * @return A non-negative revenue.
+     */
+    abstract double sample(RandomGenerator random, double mean);
+}
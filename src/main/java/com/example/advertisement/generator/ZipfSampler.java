@@ -0,0 +1,42 @@
+package com.example.advertisement.generator;
+
+import java.util.Arrays;
+import java.util.random.RandomGenerator;
+
+/**
+ * Draws ranks from 0 to n - 1 following a Zipf distribution, where rank k is drawn with
+ * a probability proportional to 1 / (k + 1)^skew. A skew of 0 is uniform.
+ * Sampling is a binary search over the precomputed cumulative distribution.
+ */
+class ZipfSampler {
+
+    private final double[] cumulative;
+
+    /**
+     * @param n    The number of ranks.
+     * @param skew The Zipf exponent, 0 or more.
+     */
+    ZipfSampler(int n, double skew) {
+        cumulative = new double[n];
+        double sum = 0;
+        for (int k = 0; k < n; k++) {
+            sum += 1 / Math.pow(k + 1, skew);
+            cumulative[k] = sum;
+        }
+        for (int k = 0; k < n; k++) {
+            cumulative[k] /= sum;
+        }
+    }
+
+    /**
+     * @param random The source of randomness.
+     * @return A rank from 0 to n - 1, lower ranks being the most frequent.
+     */
+    int sample(RandomGenerator random) {
+        int index = Arrays.binarySearch(cumulative, random.nextDouble());
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return Math.min(index, cumulative.length - 1);
+    }
+}
@@ -1,20 +1,103 @@
 package com.example.advertisement.impression;
 
+import com.example.advertisement.dedupe.IngestDeduplicator;
+import com.example.advertisement.dictionary.IdentifierDictionary;
+import com.example.advertisement.ingest.IngestManifest;
+import com.example.advertisement.metric.MetricsMaterializer;
+import com.example.advertisement.metric.StreamingMetricsAggregator;
 import com.example.advertisement.model.Impression;
+import com.example.advertisement.storage.StorageLayoutVerifier;
+import com.example.advertisement.utils.ReactiveBulkWriter;
 import com.example.advertisement.utils.ReactiveJsonReader;
+import com.example.advertisement.utils.ReactiveTimers;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.file.Path;
+import java.util.List;
 
 @Service
 @RequiredArgsConstructor
 public class ImpressionService {
 
     private final ReactiveJsonReader reader;
-    private final ImpressionRepository repository;
+    private final ReactiveBulkWriter writer;
+    private final StreamingMetricsAggregator streamingMetricsAggregator;
+    private final MetricsMaterializer metricsMaterializer;
+    private final IdentifierDictionary identifierDictionary;
+    private final IngestDeduplicator deduplicator;
+    private final IngestManifest ingestManifest;
+    private final StorageLayoutVerifier storageLayoutVerifier;
+    private final MeterRegistry meterRegistry;
+
+    private Timer writeTimer;
+    private Counter writtenDocuments;
+
+    @PostConstruct
+    void createMeters() {
+        writeTimer = Timer.builder("advertisement.mongo.write")
+                .description("Latency of one bulk insert")
+                .tag("collection", "impression")
+                .publishPercentileHistogram()
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+        writtenDocuments = Counter.builder("advertisement.mongo.documents")
+                .description("Documents inserted, without skipped duplicates")
+                .tag("collection", "impression")
+                .register(meterRegistry);
+    }
 
     public Flux<Impression> load(String path) {
-        return reader.readJsonFiles(path, Impression.class)
-                .flatMap(repository::save);
+        if (ingestManifest.isEnabled()) {
+            // Skip unchanged files and resume interrupted ones
+            return written(ingestManifest.load(path, Impression.class, this::writeBatch));
+        }
+        return load(reader.readJsonFiles(path, Impression.class));
+    }
+
+    public Flux<Impression> load(List<Path> files) {
+        if (ingestManifest.isEnabled()) {
+            // Skip unchanged files and resume interrupted ones
+            return written(ingestManifest.load(files, Impression.class, this::writeBatch));
+        }
+        return load(reader.readJsonFiles(files, Impression.class));
+    }
+
+    public Flux<Impression> load(Flux<Impression> impressions) {
+        return written(writer.write(impressions, this::writeBatch));
+    }
+
+    private Flux<Impression> written(Flux<List<Impression>> batches) {
+        // Documents of both layouts would not join, so nothing is written over a collection of the other layout
+        return storageLayoutVerifier.verify(Impression.class).thenMany(batches)
+                .doOnNext(streamingMetricsAggregator::onImpressions) // Count only newly stored documents
+                .flatMapIterable(batch -> batch);
+    }
+
+    private Mono<List<Impression>> writeBatch(List<Impression> batch) {
+        // Drop the stored impressions first, so they are neither encoded nor written
+        return deduplicator.newDocuments(batch, Impression.class, Impression::getId)
+                .flatMap(this::insertBatch)
+                .doOnNext(written -> deduplicator.add(batch, Impression.class, Impression::getId));
+    }
+
+    private Mono<List<Impression>> insertBatch(List<Impression> batch) {
+        if (batch.isEmpty()) {
+            return Mono.just(batch);
+        }
+        // Encode identifiers first, so the batch is stored and counted with its codes
+        Mono<List<Impression>> encoded = identifierDictionary.isEnabled() ? identifierDictionary.encode(batch) : Mono.just(batch);
+        return encoded.flatMap(impressions -> {
+            Mono<List<Impression>> write = ReactiveTimers.time(writer.writeBatch(impressions, Impression.class), writeTimer)
+                    .doOnNext(written -> writtenDocuments.increment(written.size()));
+            // In materialized mode the batch is written together with its metrics delta
+            return metricsMaterializer.isEnabled() ? metricsMaterializer.addImpressions(write) : write;
+        });
     }
 }
@@ -0,0 +1,184 @@
+package com.example.advertisement.ingest;
+
+import com.example.advertisement.utils.JsonRecord;
+import com.example.advertisement.utils.ReactiveBulkWriter;
+import com.example.advertisement.utils.ReactiveJsonReader;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.Serializable;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Loads files through a manifest of the files already ingested, kept in the {@value #MANIFEST_COLLECTION}
+ * collection with one entry per file and target collection. Each entry holds the {@link FileFingerprint}
+ * of the file and how far it was written:
+ * <ul>
+ *     <li>files whose entry is complete and whose fingerprint is unchanged are skipped without being read,</li>
+ *     <li>files whose entry is incomplete and unchanged resume after the last checkpoint,</li>
+ *     <li>new and changed files are read from the start.</li>
+ * </ul>
+ * While a file is loaded, its number of written objects and byte offset are checkpointed every
+ * {@code advertisement.manifest.checkpoint-interval} objects, once the batches holding them are written.
+ * Objects written after the last checkpoint of an interrupted load are read again on resume,
+ * and skipped by the bulk insert as duplicates.
+ */
+@Component
+@RequiredArgsConstructor
+public class IngestManifest {
+    public static final String MANIFEST_COLLECTION = "ingest_manifest";
+
+    private static final Logger logger = LoggerFactory.getLogger(IngestManifest.class);
+
+    private final ReactiveJsonReader reader;
+    private final ReactiveBulkWriter writer;
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${advertisement.manifest.enabled:false}")
+    private boolean enabled;
+
+    @Value("${advertisement.manifest.checkpoint-interval:100000}")
+    private long checkpointInterval;
+
+    @Value("${advertisement.manifest.hash-sample-size:1048576}")
+    private long hashSampleSize;
+
+    /**
+     * @return True if {@code load} goes through the manifest ({@code advertisement.manifest.enabled=true}).
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Loads the files matching a path pattern, skipping unchanged files that were fully loaded before and
+     * resuming interrupted ones. Up to {@code advertisement.reader.parallelism} files are loaded at once.
+     *
+     * @param pathPattern The path pattern to match files, e.g., "/x/y/*.json".
+     * @param clazz       The class type of the objects of the files.
+     * @param batchWriter Writes one batch and returns the documents that were inserted.
+     * @param <T>         The type of the objects.
+     * @return A Flux of the written batches, in file order.
+     */
+    public <T extends Serializable> Flux<List<T>> load(String pathPattern, Class<T> clazz, Function<List<T>, Mono<List<T>>> batchWriter) {
+        return load(reader.findFiles(pathPattern, clazz), clazz, batchWriter);
+    }
+
+    /**
+     * Loads the given files like {@link #load(String, Class, Function)}, e.g. the files of a {@code watch} micro-batch.
+     *
+     * @param files       The files to load.
+     * @param clazz       The class type of the objects of the files.
+     * @param batchWriter Writes one batch and returns the documents that were inserted.
+     * @param <T>         The type of the objects.
+     * @return A Flux of the written batches, in the order of the files.
+     */
+    public <T extends Serializable> Flux<List<T>> load(List<Path> files, Class<T> clazz, Function<List<T>, Mono<List<T>>> batchWriter) {
+        return load(Flux.fromIterable(files), clazz, batchWriter);
+    }
+
+    private <T extends Serializable> Flux<List<T>> load(Flux<Path> files, Class<T> clazz, Function<List<T>, Mono<List<T>>> batchWriter) {
+        return files.flatMapSequential(file -> loadFile(file, clazz, batchWriter), reader.parallelism());
+    }
+
+    private <T extends Serializable> Flux<List<T>> loadFile(Path file, Class<T> clazz, Function<List<T>, Mono<List<T>>> batchWriter) {
+        String collection = mongoTemplate.getCollectionName(clazz);
+        Path path = file.toAbsolutePath().normalize();
+        String id = collection + ":" + path;
+
+        return Mono.fromCallable(() -> FileFingerprint.of(file, hashSampleSize))
+                .subscribeOn(Schedulers.boundedElastic())
+                .zipWith(mongoTemplate.findById(id, ManifestEntry.class).map(Optional::of).defaultIfEmpty(Optional.empty()))
+                .flatMapMany(found -> {
+                    FileFingerprint fingerprint = found.getT1();
+                    ManifestEntry entry = found.getT2().filter(previous -> previous.matches(fingerprint)).orElse(null);
+                    if (entry != null && entry.isComplete()) {
+                        logger.info("Skipping unchanged file: {} ({} elements loaded before)", file, entry.getElements());
+                        meterRegistry.counter("advertisement.manifest.files.skipped", "collection", collection).increment();
+                        return Flux.empty();
+                    }
+
+                    if (entry == null) {
+                        // New or changed file, read from the start
+                        entry = new ManifestEntry(id, collection, path.toString(), fingerprint.size(), fingerprint.lastModified(),
+                                fingerprint.hash(), false, 0, -1, Instant.now());
+                    } else {
+                        logger.info("Resuming file: {} after {} elements", file, entry.getElements());
+                        meterRegistry.counter("advertisement.manifest.files.resumed", "collection", collection).increment();
+                    }
+                    return loadFile(file, clazz, batchWriter, entry);
+                });
+    }
+
+    private <T extends Serializable> Flux<List<T>> loadFile(Path file, Class<T> clazz, Function<List<T>, Mono<List<T>>> batchWriter,
+                                                            ManifestEntry entry) {
+        // Updated by one batch at a time, in file order
+        Progress progress = new Progress(entry.getElements(), entry.getOffset());
+        Flux<JsonRecord<T>> records = reader.readJsonRecords(file, clazz, entry.getElements(), entry.getOffset());
+
+        return mongoTemplate.save(entry)
+                .thenMany(writer.write(records, batch -> batchWriter.apply(values(batch))
+                        .map(written -> new WrittenBatch<>(written, batch.get(batch.size() - 1)))))
+                .concatMap(batch -> {
+                    progress.elements = batch.last().elements();
+                    progress.offset = batch.last().offset();
+                    if (progress.elements - entry.getElements() < checkpointInterval) {
+                        return Mono.just(batch.documents());
+                    }
+                    meterRegistry.counter("advertisement.manifest.checkpoints", "collection", entry.getCollection()).increment();
+                    return save(entry, progress, false).thenReturn(batch.documents());
+                })
+                .concatWith(Mono.defer(() -> save(entry, progress, true))
+                        .doOnSuccess(saved -> logger.info("Loaded file: {} ({} elements)", file, saved.getElements()))
+                        .then(Mono.empty()));
+    }
+
+    private Mono<ManifestEntry> save(ManifestEntry entry, Progress progress, boolean complete) {
+        entry.setElements(progress.elements);
+        entry.setOffset(progress.offset);
+        entry.setComplete(complete);
+        entry.setUpdatedAt(Instant.now());
+        return mongoTemplate.save(entry);
+    }
+
+    private static <T> List<T> values(List<JsonRecord<T>> records) {
+        List<T> values = new ArrayList<>(records.size());
+        for (JsonRecord<T> record : records) {
+            values.add(record.value());
+        }
+        return values;
+    }
+
+    /**
+     * The documents inserted from a batch, and the last record of the batch.
+     */
+    private record WrittenBatch<T>(List<T> documents, JsonRecord<T> last) {
+    }
+
+    /**
+     * The position after the last written batch of a file.
+     */
+    private static final class Progress {
+        private long elements;
+        private long offset;
+
+        private Progress(long elements, long offset) {
+            this.elements = elements;
+            this.offset = offset;
+        }
+    }
+}
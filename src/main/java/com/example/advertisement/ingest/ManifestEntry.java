@@ -0,0 +1,56 @@
+package com.example.advertisement.ingest;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+/**
+ * The ingestion state of one file loaded into one collection, stored in the
+ * {@value IngestManifest#MANIFEST_COLLECTION} collection.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(IngestManifest.MANIFEST_COLLECTION)
+public class ManifestEntry {
+    /**
+     * The target collection and the absolute path of the file, e.g. {@code impression:/data/impressions.json}.
+     */
+    @Id
+    private String id;
+
+    private String collection;
+    private String path;
+    private long size;
+    private long lastModified;
+    private String hash;
+
+    /**
+     * True once every object of the file is written.
+     */
+    private boolean complete;
+
+    /**
+     * The number of objects of the file written so far.
+     */
+    private long elements;
+
+    /**
+     * The byte offset right after the last object written, or -1 if it does not map to a file position.
+     */
+    private long offset;
+
+    private Instant updatedAt;
+
+    /**
+     * @param fingerprint The current fingerprint of the file.
+     * @return True if the entry was recorded for the same file content.
+     */
+    public boolean matches(FileFingerprint fingerprint) {
+        return size == fingerprint.size() && lastModified == fingerprint.lastModified() && fingerprint.hash().equals(hash);
+    }
+}
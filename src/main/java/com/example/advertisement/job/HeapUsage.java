@@ -0,0 +1,41 @@
+package com.example.advertisement.job;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+
+/**
+ * Tracks the peak heap usage of the JVM through the heap memory pools.
+ */
+final class HeapUsage {
+
+    private HeapUsage() {
+    }
+
+    /**
+     * Starts a new measurement by resetting the peak usage of every heap pool to its current usage.
+     */
+    static void resetPeak() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+            }
+        }
+    }
+
+    /**
+     * Sums the peak usage of the heap pools since the last reset. The pools may peak at different
+     * times, so this is an upper bound of the peak heap usage.
+     *
+     * @return The peak heap usage in bytes.
+     */
+    static long peakBytes() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+}
@@ -0,0 +1,292 @@
+package com.example.advertisement.job;
+
+import com.example.advertisement.click.ClickService;
+import com.example.advertisement.dictionary.IdentifierDictionary;
+import com.example.advertisement.impression.ImpressionService;
+import com.example.advertisement.metric.MetricsCalculatorService;
+import com.example.advertisement.model.Metrics;
+import com.example.advertisement.model.Recommendation;
+import com.example.advertisement.recommendation.RecommendationService;
+import com.example.advertisement.report.CombinedReport;
+import com.example.advertisement.report.CombinedReportService;
+import com.example.advertisement.snapshot.SnapshotService;
+import com.example.advertisement.utils.DirectoryWatcher;
+import com.example.advertisement.utils.ReactiveJsonWriter;
+import com.example.advertisement.utils.WatchedFile;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/**
+ * Runs loads and reports as tracked stages. Every stage is timed from its subscription to its completion,
+ * its records/sec are logged, and a stage only starts once the stages it depends on have completed.
+ */
+@Service
+@RequiredArgsConstructor
+public class JobRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(JobRunner.class);
+    private final ImpressionService impressionService;
+    private final ClickService clickService;
+    private final MetricsCalculatorService metricsCalculatorService;
+    private final RecommendationService recommendationService;
+    private final CombinedReportService combinedReportService;
+    private final IdentifierDictionary identifierDictionary;
+    private final SnapshotService snapshotService;
+    private final ReactiveJsonWriter jsonWriter;
+    private final DirectoryWatcher directoryWatcher;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${advertisement.watch.batch-files:16}")
+    private int watchBatchFiles;
+
+    @Value("${advertisement.watch.batch-wait:500ms}")
+    private Duration watchBatchWait;
+
+    /**
+     * Runs the full pipeline: impressions and clicks are loaded concurrently, then metrics are written,
+     * then recommendations are written.
+     *
+     * @param impressionFilePath  The path pattern of the impression files.
+     * @param clickFilePath       The path pattern of the click files.
+     * @param metricsPath         The path of the metrics output.
+     * @param recommendationsPath The path of the recommendations output.
+     * @param numberAdvertisers   The number of top recommended advertisers.
+     * @return A Mono of the results of all stages, in order of completion.
+     */
+    public Mono<List<StageResult>> run(String impressionFilePath, String clickFilePath,
+                                       String metricsPath, String recommendationsPath, int numberAdvertisers) {
+        return load(impressionFilePath, clickFilePath)
+                .flatMap(results -> then(results, metrics(metricsPath)))
+                .flatMap(results -> then(results, recommendations(recommendationsPath, numberAdvertisers)));
+    }
+
+    /**
+     * Loads impressions and clicks concurrently.
+     *
+     * @param impressionFilePath The path pattern of the impression files.
+     * @param clickFilePath      The path pattern of the click files.
+     * @return A Mono of the results of both load stages, emitted once both have completed.
+     */
+    public Mono<List<StageResult>> load(String impressionFilePath, String clickFilePath) {
+        return Flux.merge(
+                        stage("load-impressions", impressionService.load(impressionFilePath).count()),
+                        stage("load-clicks", clickService.load(clickFilePath).count()))
+                .collectList();
+    }
+
+    /**
+     * Loads impression and click files as they arrive, until the duration elapses. The complete files that match
+     * each pattern are grouped into micro-batches of up to {@code advertisement.watch.batch-files} files, waiting at
+     * most {@code advertisement.watch.batch-wait} after the first file of a batch. The files of a micro-batch are
+     * parsed concurrently by the reader and written as one stream, so small files share bulk inserts, and the next
+     * micro-batch starts once the previous one is written. With {@code advertisement.manifest.enabled}, micro-batches
+     * go through the ingest manifest like {@code load}, so files loaded before are skipped when they show up again.
+     *
+     * @param impressionFilePath The path pattern of the impression files.
+     * @param clickFilePath      The path pattern of the click files.
+     * @param existing           True to also load the files that match the patterns when the watch starts.
+     * @param duration           How long to watch, or zero to watch until the process stops.
+     * @return A Mono of the result of the watch stage, with the number of documents loaded.
+     */
+    public Mono<StageResult> watch(String impressionFilePath, String clickFilePath, boolean existing, Duration duration) {
+        Flux<Long> loaded = Flux.merge(
+                watch(impressionFilePath, existing, "impression", impressionService::load),
+                watch(clickFilePath, existing, "click", clickService::load));
+        return stage("watch", (duration.isZero() ? loaded : loaded.take(duration)).reduce(0L, Long::sum));
+    }
+
+    /**
+     * Loads the files of one collection in micro-batches as they complete.
+     *
+     * @return A Flux of the number of documents loaded by each micro-batch.
+     */
+    private Flux<Long> watch(String pathPattern, boolean existing, String collection, Function<List<Path>, Flux<?>> load) {
+        Counter files = meterRegistry.counter("advertisement.watch.files", "collection", collection);
+        Counter failedFiles = meterRegistry.counter("advertisement.watch.files.failed", "collection", collection);
+        Timer latency = Timer.builder("advertisement.watch.latency")
+                .description("Time from the first change of a watched file until its documents are written")
+                .tag("collection", collection)
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+
+        return directoryWatcher.watch(pathPattern, existing)
+                // Fair backpressure: a batch that times out while the previous one loads is held, not dropped with an overflow error
+                .bufferTimeout(watchBatchFiles, watchBatchWait, true)
+                .concatMap(batch -> {
+                    List<Path> paths = batch.stream().map(WatchedFile::path).toList();
+                    return load.apply(paths)
+                            .count()
+                            .doOnNext(documents -> {
+                                long now = System.nanoTime();
+                                files.increment(batch.size());
+                                batch.forEach(file -> latency.record(now - file.detectedNanos(), TimeUnit.NANOSECONDS));
+                                logger.info("Loaded {} watched {} files ({} documents)", batch.size(), collection, documents);
+                            })
+                            .onErrorResume(error -> {
+                                // Keep watching; a failed file is loaded again once it is rewritten
+                                logger.error("Failed to load watched {} files: {}", collection, paths, error);
+                                failedFiles.increment(batch.size());
+                                return Mono.just(0L);
+                            });
+                });
+    }
+
+    /**
+     * Calculates metrics and writes them to JSON output.
+     *
+     * @param path The path of the metrics output.
+     * @return A Mono of the result of the metrics stage.
+     */
+    public Mono<StageResult> metrics(String path) {
+        return stage("metrics", writeMetrics(metricsCalculatorService.metrics(), path));
+    }
+
+    /**
+     * Generates recommendations and writes them to JSON output.
+     *
+     * @param path              The path of the recommendations output.
+     * @param numberAdvertisers The number of top recommended advertisers.
+     * @return A Mono of the result of the recommendations stage.
+     */
+    public Mono<StageResult> recommendations(String path, int numberAdvertisers) {
+        return stage("recommendations", writeRecommendations(
+                Flux.defer(() -> recommendationService.recommendations(numberAdvertisers)), path));
+    }
+
+    /**
+     * Computes metrics and recommendations with a single aggregation and writes both outputs concurrently.
+     *
+     * @param metricsPath         The path of the metrics output.
+     * @param recommendationsPath The path of the recommendations output.
+     * @param numberAdvertisers   The number of top recommended advertisers.
+     * @return A Mono of the results of both output stages.
+     */
+    public Mono<List<StageResult>> report(String metricsPath, String recommendationsPath, int numberAdvertisers) {
+        return Mono.defer(() -> {
+            Mono<CombinedReport> report = combinedReportService.report(numberAdvertisers).cache();
+            return Flux.merge(
+                            stage("metrics", writeMetrics(report.flatMapIterable(CombinedReport::metrics), metricsPath)),
+                            stage("recommendations", writeRecommendations(report.flatMapIterable(CombinedReport::recommendations), recommendationsPath)))
+                    .collectList();
+        });
+    }
+
+    /**
+     * Times a stage, tracks the peak heap usage while it runs, and logs its throughput once it completes.
+     *
+     * @param name The name of the stage.
+     * @param work The work of the stage, emitting the number of records it processed.
+     * @return A Mono of the result of the stage.
+     */
+    public Mono<StageResult> stage(String name, Mono<Long> work) {
+        return Mono.defer(() -> {
+            HeapUsage.resetPeak();
+            long start = System.nanoTime();
+            logger.info("Stage {} started", name);
+            return work
+                    .defaultIfEmpty(0L)
+                    .map(records -> new StageResult(name, records, Duration.ofNanos(System.nanoTime() - start),
+                            HeapUsage.peakBytes()))
+                    .doOnNext(result -> logger.info("Stage {}", result))
+                    .doOnError(error -> logger.error("Stage {} failed", name, error));
+        });
+    }
+
+    /**
+     * Computes metrics from a snapshot file and writes them to JSON output.
+     * Snapshots hold the original identifiers, so nothing is decoded.
+     *
+     * @param snapshotPath The path of the snapshot file.
+     * @param path         The path of the metrics output.
+     * @return A Mono of the result of the stage.
+     */
+    public Mono<StageResult> snapshotMetrics(Path snapshotPath, String path) {
+        return stage("snapshot-metrics", write(snapshotService.metrics(snapshotPath), path, JobRunner::partitionHash));
+    }
+
+    /**
+     * Computes recommendations from a snapshot file and writes them to JSON output.
+     * Snapshots hold the original identifiers, so nothing is decoded.
+     *
+     * @param snapshotPath      The path of the snapshot file.
+     * @param path              The path of the recommendations output.
+     * @param numberAdvertisers The number of top recommended advertisers.
+     * @return A Mono of the result of the stage.
+     */
+    public Mono<StageResult> snapshotRecommendations(Path snapshotPath, String path, int numberAdvertisers) {
+        return stage("snapshot-recommendations",
+                write(snapshotService.recommendations(snapshotPath, numberAdvertisers), path, JobRunner::partitionHash));
+    }
+
+    /**
+     * Loads the impressions and clicks of a snapshot file.
+     *
+     * @param snapshotPath The path of the snapshot file.
+     * @return A Mono of the result of the stage.
+     */
+    public Mono<StageResult> snapshotLoad(Path snapshotPath) {
+        return stage("snapshot-load", snapshotService.restore(snapshotPath));
+    }
+
+    private Mono<Long> writeMetrics(Flux<Metrics> metrics, String path) {
+        return write(identifierDictionary.decodeMetrics(metrics), path, JobRunner::partitionHash);
+    }
+
+    private Mono<Long> writeRecommendations(Flux<Recommendation> recommendations, String path) {
+        return write(identifierDictionary.decodeRecommendations(recommendations), path, JobRunner::partitionHash);
+    }
+
+    /**
+     * Writes items to JSON output and counts them.
+     *
+     * @param items         The items to write.
+     * @param path          The path of the output.
+     * @param partitionHash Selects the output part of an item.
+     * @param <T>           The type of the items.
+     * @return A Mono of the number of items written, emitted once the output is complete.
+     */
+    private <T> Mono<Long> write(Flux<T> items, String path, ToIntFunction<T> partitionHash) {
+        return Mono.defer(() -> {
+            AtomicLong written = new AtomicLong();
+            return jsonWriter.writeJsonFiles(items.doOnNext(item -> written.incrementAndGet()), path, partitionHash)
+                    .then(Mono.fromSupplier(written::get));
+        });
+    }
+
+    private static Mono<List<StageResult>> then(List<StageResult> results, Mono<StageResult> next) {
+        return next.map(result -> {
+            List<StageResult> all = new ArrayList<>(results);
+            all.add(result);
+            return all;
+        });
+    }
+
+    /**
+     * Output parts are partitioned by (appId, countryCode), so every group is written to exactly one part.
+     */
+    private static int partitionHash(Metrics metrics) {
+        return Objects.hash(metrics.getAppId(), metrics.getCountryCode());
+    }
+
+    private static int partitionHash(Recommendation recommendation) {
+        return Objects.hash(recommendation.getAppId(), recommendation.getCountryCode());
+    }
+}
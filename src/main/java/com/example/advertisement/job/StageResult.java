@@ -0,0 +1,27 @@
+package com.example.advertisement.job;
+
+import java.time.Duration;
+
+/**
+ * The outcome of one stage of a job.
+ *
+ * @param stage         The name of the stage.
+ * @param records       The number of records the stage loaded or wrote.
+ * @param elapsed       The time from the start to the completion of the stage.
+ * @param peakHeapBytes The peak heap usage of the JVM while the stage ran, shared by concurrent stages.
+ */
+public record StageResult(String stage, long records, Duration elapsed, long peakHeapBytes) {
+
+    /**
+     * @return The throughput of the stage.
+     */
+    public double recordsPerSecond() {
+        return records / Math.max(elapsed.toNanos() / 1e9, 1e-9);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: %d records in %.2f s (%.0f records/s, peak heap %d MB)",
+                stage, records, elapsed.toNanos() / 1e9, recordsPerSecond(), peakHeapBytes >> 20);
+    }
+}
@@ -1,64 +1,180 @@
 package com.example.advertisement.metric;
 
+import com.example.advertisement.model.Click;
 import com.example.advertisement.model.Impression;
 import com.example.advertisement.model.Metrics;
+import com.example.advertisement.storage.StorageSchema;
+import com.example.advertisement.utils.ReactiveTimers;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
 import org.springframework.data.mongodb.core.aggregation.AccumulatorOperators;
 import org.springframework.data.mongodb.core.aggregation.Aggregation;
-import org.springframework.data.mongodb.core.aggregation.ArrayOperators;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOptions;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Locale;
 
 import static org.springframework.data.mongodb.core.aggregation.Aggregation.*;
 
 @Service
 @RequiredArgsConstructor
 public class MetricsCalculatorService {
+    public static final String CLICK_SUMMARY_COLLECTION = "click_summary";
+
     private final ReactiveMongoTemplate mongoTemplate;
+    private final StreamingMetricsAggregator streamingMetricsAggregator;
+    private final AggregationOptions aggregationOptions;
+    private final StorageSchema storageSchema;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${advertisement.metrics.mode:aggregation}")
+    private MetricsMode mode;
+
+    @Value("${advertisement.metrics.persist-click-summary:false}")
+    private boolean persistClickSummary;
 
     /**
      * Calculates metrics based on impressions and clicks.
+     * In streaming mode the metrics accumulated during load are returned without querying Mongo,
+     * in materialized mode they are read from the {@value MetricsMaterializer#METRICS_COLLECTION} collection.
      *
      * @return A Flux of Metrics objects containing aggregated data.
      */
     public Flux<Metrics> metrics() {
-        // Define the aggregation pipeline
+        return ReactiveTimers.time(query(), Timer.builder("advertisement.aggregation")
+                .description("Time to produce all metrics or recommendations")
+                .tag("pipeline", "metrics")
+                .tag("mode", mode.name().toLowerCase(Locale.ROOT))
+                .register(meterRegistry));
+    }
+
+    private Flux<Metrics> query() {
+        if (mode == MetricsMode.STREAMING) {
+            return Flux.defer(() -> Flux.fromIterable(streamingMetricsAggregator.metrics()));
+        }
+        if (mode == MetricsMode.MATERIALIZED) {
+            return mongoTemplate.findAll(Metrics.class, MetricsMaterializer.METRICS_COLLECTION);
+        }
+
+        // Rebuild the persisted click summaries first, so impressions join against current data
+        Mono<Void> clickSummary = persistClickSummary ? persistClickSummary() : Mono.empty();
+
+        // Execute the aggregation and return the results
+        return clickSummary.thenMany(mongoTemplate.aggregate(aggregation(), Impression.class, Metrics.class));
+    }
+
+    /**
+     * @return True if click summaries are persisted in {@value #CLICK_SUMMARY_COLLECTION} before joining.
+     */
+    public boolean isClickSummaryPersisted() {
+        return persistClickSummary;
+    }
+
+    /**
+     * Groups the click collection by impression ID into count and revenue summaries
+     * and replaces the {@value #CLICK_SUMMARY_COLLECTION} collection with them.
+     *
+     * @return A Mono that completes when the summary collection has been written.
+     */
+    public Mono<Void> persistClickSummary() {
         Aggregation aggregation = newAggregation(
-                // Stage 1: Project fields to include in the aggregation
-                project()
-                        .and("_id").as("_id")
-                        .and("appId").as("appId")
-                        .and("countryCode").as("countryCode"),
+                // Stage 1: Group clicks by impression ID into a compact summary, reading either storage layout
+                context -> new Document("$group", new Document("_id", storageSchema.clickImpressionId())
+                        .append("clicks", new Document("$sum", 1)) // Number of clicks of the impression
+                        .append("revenue", new Document("$sum", storageSchema.clickRevenue()))), // Revenue of the impression
 
-                // Stage 2: Lookup operation to join "click" collection based on impression ID
-                lookup("click", "_id", "impressionId", "clickData"),
+                // Stage 2: Replace the summary collection with the result
+                out(CLICK_SUMMARY_COLLECTION)
+        ).withOptions(aggregationOptions);
+
+        return mongoTemplate.aggregate(aggregation, Click.class, Document.class).then();
+    }
 
-                // Stage 3: Project additional fields including the size of the clickData array
-                // and sum of revenue from clickData
+    /**
+     * Builds the aggregation pipeline that calculates metrics from the impression collection.
+     * Each impression is joined with one summary of its clicks instead of the array of all its clicks.
+     *
+     * @return The metrics aggregation pipeline.
+     */
+    public Aggregation aggregation() {
+        return aggregation(persistClickSummary);
+    }
+
+    /**
+     * Builds the metrics aggregation pipeline with the given source of click summaries.
+     *
+     * @param persistedClickSummary True to join the {@value #CLICK_SUMMARY_COLLECTION} collection,
+     *                              false to group the clicks of each impression inside the lookup.
+     * @return The metrics aggregation pipeline.
+     */
+    public Aggregation aggregation(boolean persistedClickSummary) {
+        // Define the aggregation pipeline
+        return newAggregation(
+                // Stage 1: Join the click summary of each impression, either from the persisted
+                // summary collection or grouped per impression inside the lookup
+                clickSummaryJoin(persistedClickSummary),
+
+                // Stage 2: Project the number of clicks and revenue from the click summary
                 project()
                         .and("_id").as("_id")
-                        .and("appId").as("appId")
-                        .and("countryCode").as("countryCode")
-                        .and(ArrayOperators.Size.lengthOfArray("clickData")).as("clicks") // Count number of clicks
-                        .and(AccumulatorOperators.Sum.sumOf("clickData.revenue")).as("revenue"), // Sum of revenue
+                        .and(storageSchema.impressionField("appId")).as("appId")
+                        .and(storageSchema.impressionField("countryCode")).as("countryCode")
+                        .and(AccumulatorOperators.Sum.sumOf("clickSummary.clicks")).as("clicks") // Number of clicks
+                        .and(AccumulatorOperators.Sum.sumOf("clickSummary.revenue")).as("revenue"), // Sum of revenue
 
-                // Stage 4: Group by appId and countryCode, and calculate totals
+                // Stage 3: Group by appId and countryCode, and calculate totals
                 group("appId", "countryCode")
                         .count().as("impressions") // Total number of impressions
                         .sum("clicks").as("clicks") // Total number of clicks
                         .sum("revenue").as("revenue"), // Total revenue
 
-                // Stage 5: Final projection to format the output
+                // Stage 4: Final projection to format the output
                 project()
                         .and("_id.appId").as("appId")
                         .and("_id.countryCode").as("countryCode")
                         .and("impressions").as("impressions")
                         .and("clicks").as("clicks")
                         .and("revenue").as("revenue")
-        );
+        ).withOptions(aggregationOptions);
+    }
 
-        // Execute the aggregation and return the results
-        return mongoTemplate.aggregate(aggregation, Impression.class, Metrics.class);
+    /**
+     * Builds the stage that joins one click summary with the clicks and revenue of each impression
+     * as {@code clickSummary}, as configured with {@code advertisement.metrics.persist-click-summary}.
+     *
+     * @return The $lookup stage.
+     */
+    public AggregationOperation clickSummaryJoin() {
+        return clickSummaryJoin(persistClickSummary);
+    }
+
+    private AggregationOperation clickSummaryJoin(boolean persistedClickSummary) {
+        return persistedClickSummary
+                ? lookup(CLICK_SUMMARY_COLLECTION, "_id", "_id", "clickSummary")
+                : clickSummaryLookup();
+    }
+
+    /**
+     * Builds a lookup that joins the clicks of each impression and groups them into a single
+     * count and revenue summary, so no array of click documents is materialized per impression.
+     *
+     * @return The $lookup stage with a grouping sub-pipeline.
+     */
+    private AggregationOperation clickSummaryLookup() {
+        return context -> new Document("$lookup", new Document("from", mongoTemplate.getCollectionName(Click.class))
+                .append("localField", "_id")
+                .append("foreignField", storageSchema.fieldName("impressionId"))
+                .append("pipeline", List.of(new Document("$group", new Document("_id", null)
+                        .append("clicks", new Document("$sum", 1))
+                        .append("revenue", new Document("$sum", storageSchema.clickRevenue())))))
+                .append("as", "clickSummary"));
     }
 }
@@ -0,0 +1,200 @@
+package com.example.advertisement.metric;
+
+import com.example.advertisement.model.Click;
+import com.example.advertisement.model.Impression;
+import com.example.advertisement.storage.StorageSchema;
+import com.example.advertisement.utils.ReactiveMutex;
+import lombok.RequiredArgsConstructor;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOptions;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.*;
+
+/**
+ * Maintains the materialized {@value #METRICS_COLLECTION} collection, which holds one document
+ * per (appId, countryCode) with the same fields as the output of the metrics aggregation.
+ * Every written batch of impressions or clicks adds its delta to the counters with {@code $merge}.
+ * <p>
+ * A click is counted exactly once: by the delta of its own batch if its impression is already stored,
+ * otherwise by the delta of the impression batch that stores its impression. To make that decision
+ * reliable, the insert of a batch and the merge of its delta run as one unit, one batch at a time.
+ */
+@Service
+@RequiredArgsConstructor
+public class MetricsMaterializer {
+    public static final String METRICS_COLLECTION = "metrics";
+
+    private static final Logger logger = LoggerFactory.getLogger(MetricsMaterializer.class);
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final MetricsCalculatorService metricsCalculatorService;
+    private final AggregationOptions aggregationOptions;
+    private final StorageSchema storageSchema;
+
+    // Serializes batch writes with their deltas, and rebuilds
+    private final ReactiveMutex mutex = new ReactiveMutex();
+
+    @Value("${advertisement.metrics.mode:aggregation}")
+    private MetricsMode mode;
+
+    /**
+     * @return True if metrics are materialized during load ({@code advertisement.metrics.mode=materialized}).
+     */
+    public boolean isEnabled() {
+        return mode == MetricsMode.MATERIALIZED;
+    }
+
+    /**
+     * Writes a batch of impressions and merges the metrics of the inserted impressions,
+     * including the clicks already stored for them.
+     *
+     * @param write The write of the batch, emitting the impressions that were inserted.
+     * @return A Mono of the inserted impressions, emitted once their delta has been merged.
+     */
+    public Mono<List<Impression>> addImpressions(Mono<List<Impression>> write) {
+        return mutex.run(write.flatMap(written -> mergeDelta(written, Impression::getId, Impression.class, this::impressionDelta)));
+    }
+
+    /**
+     * Writes a batch of clicks and merges the clicks that were inserted and whose impression is already stored.
+     *
+     * @param write The write of the batch, emitting the clicks that were inserted.
+     * @return A Mono of the inserted clicks, emitted once their delta has been merged.
+     */
+    public Mono<List<Click>> addClicks(Mono<List<Click>> write) {
+        return mutex.run(write.flatMap(written -> mergeDelta(written, Click::getId, Click.class, this::clickDelta)));
+    }
+
+    /**
+     * Replaces the {@value #METRICS_COLLECTION} collection with a full recompute of the metrics aggregation.
+     *
+     * @return A Mono that completes when the collection has been rebuilt.
+     */
+    public Mono<Void> rebuild() {
+        // Rebuild the persisted click summaries first, so impressions join against current data
+        Mono<Void> clickSummary = metricsCalculatorService.isClickSummaryPersisted()
+                ? metricsCalculatorService.persistClickSummary()
+                : Mono.empty();
+
+        List<AggregationOperation> operations = new ArrayList<>(metricsCalculatorService.aggregation().getPipeline().getOperations());
+        operations.add(out(METRICS_COLLECTION));
+
+        return mutex.run(clickSummary
+                .then(mongoTemplate.aggregate(newAggregation(operations).withOptions(aggregationOptions), Impression.class, Document.class).then())
+                .doOnSuccess(ignored -> logger.info("Rebuilt the {} collection", METRICS_COLLECTION)));
+    }
+
+    /**
+     * Runs the given delta pipeline over the inserted documents of a batch.
+     *
+     * @param written  The inserted documents.
+     * @param id       Extracts the id of a document.
+     * @param clazz    The class type mapped to the collection of the documents.
+     * @param pipeline Builds the delta pipeline for the given stored document ids.
+     * @param <T>      The type of the documents.
+     * @return A Mono of the inserted documents, emitted once the delta has been merged.
+     */
+    private <T> Mono<List<T>> mergeDelta(List<T> written, Function<T, String> id, Class<T> clazz,
+                                         Function<List<Object>, Aggregation> pipeline) {
+        if (written.isEmpty()) {
+            return Mono.just(written);
+        }
+        List<Object> ids = storageSchema.storedIds(written.stream().map(id).toList());
+        return mongoTemplate.aggregate(pipeline.apply(ids).withOptions(aggregationOptions), clazz, Document.class).then(Mono.just(written));
+    }
+
+    /**
+     * Builds the delta pipeline for a batch of impressions: the metrics aggregation restricted to the
+     * batch, so impressions and the clicks already stored for them are counted exactly as in a full recompute.
+     *
+     * @param ids The stored ids of the inserted impressions.
+     * @return The aggregation merging the delta into {@value #METRICS_COLLECTION}.
+     */
+    private Aggregation impressionDelta(List<Object> ids) {
+        List<AggregationOperation> operations = new ArrayList<>();
+
+        // Stage 1: Restrict the metrics aggregation to the impressions of the batch
+        operations.add(match(Criteria.where("_id").in(ids)));
+
+        // Stage 2: Join click summaries, group and project exactly like the metrics aggregation.
+        // The persisted summaries are only current after a rebuild, so clicks are always grouped in the lookup
+        operations.addAll(metricsCalculatorService.aggregation(false).getPipeline().getOperations());
+
+        // Stage 3: Add the delta to the materialized counters
+        operations.add(mergeIntoMetrics());
+        return newAggregation(operations);
+    }
+
+    /**
+     * Builds the delta pipeline for a batch of clicks. Clicks without a stored impression are left out;
+     * they are counted by the delta of the batch that stores their impression.
+     *
+     * @param ids The stored ids of the inserted clicks.
+     * @return The aggregation merging the delta into {@value #METRICS_COLLECTION}.
+     */
+    private Aggregation clickDelta(List<Object> ids) {
+        return newAggregation(
+                // Stage 1: Restrict to the clicks of the batch
+                match(Criteria.where("_id").in(ids)),
+
+                // Stage 2: Join the impression of each click, dropping clicks without one
+                lookup(mongoTemplate.getCollectionName(Impression.class), storageSchema.fieldName("impressionId"), "_id", "impression"),
+                unwind("impression"),
+
+                // Stage 3: Group by the appId and countryCode of the impression, reading either storage layout
+                context -> new Document("$group", new Document("_id", new Document()
+                        .append("appId", storageSchema.impressionField("impression", "appId"))
+                        .append("countryCode", storageSchema.impressionField("impression", "countryCode")))
+                        .append("clicks", new Document("$sum", 1)) // Number of clicks
+                        .append("revenue", new Document("$sum", storageSchema.clickRevenue()))), // Sum of revenue
+
+                // Stage 4: Project the same fields as the metrics aggregation, without impressions
+                project()
+                        .and("_id.appId").as("appId")
+                        .and("_id.countryCode").as("countryCode")
+                        .and("clicks").as("clicks")
+                        .and("revenue").as("revenue"),
+
+                // Stage 5: Add the delta to the materialized counters
+                mergeIntoMetrics()
+        );
+    }
+
+    /**
+     * Builds a $merge stage that adds the counters of each delta document to the matching
+     * (appId, countryCode) document, or inserts the delta if the group is new.
+     *
+     * @return The $merge stage.
+     */
+    private AggregationOperation mergeIntoMetrics() {
+        return context -> new Document("$merge", new Document("into", METRICS_COLLECTION)
+                .append("on", "_id")
+                .append("whenMatched", List.of(new Document("$set", new Document()
+                        .append("impressions", addDelta("impressions"))
+                        .append("clicks", addDelta("clicks"))
+                        .append("revenue", addDelta("revenue")))))
+                .append("whenNotMatched", "insert"));
+    }
+
+    /**
+     * @param field The counter to update.
+     * @return An expression adding the counter of the incoming delta document, if present, to the stored counter.
+     */
+    private Document addDelta(String field) {
+        return new Document("$add", List.of(
+                new Document("$ifNull", List.of("$" + field, 0)),
+                new Document("$ifNull", List.of("$$new." + field, 0))));
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.advertisement.metric;
+
+/**
+ * How the metrics command obtains its results, set with {@code advertisement.metrics.mode}.
+ */
+public enum MetricsMode {
+    /**
+     * Aggregate the impression and click collections in Mongo on every request.
+     */
+    AGGREGATION,
+
+    /**
+     * Serve the metrics accumulated in memory while data is loaded.
+     */
+    STREAMING,
+
+    /**
+     * Add the delta of every loaded batch to the materialized {@code metrics} collection and serve it from there.
+     */
+    MATERIALIZED
+}
@@ -0,0 +1,163 @@
+package com.example.advertisement.metric;
+
+import com.example.advertisement.model.Click;
+import com.example.advertisement.model.Impression;
+import com.example.advertisement.model.Metrics;
+import it.unimi.dsi.fastutil.doubles.DoubleArrayList;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.objects.Object2DoubleOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Maintains the per-(appId, countryCode) metrics in memory while impressions and clicks are loaded,
+ * so that metrics can be produced without running the Mongo aggregation.
+ * Only data loaded through this instance is counted.
+ */
+@Component
+public class StreamingMetricsAggregator {
+
+    private static final int NO_GROUP = -1;
+
+    @Value("${advertisement.metrics.mode:aggregation}")
+    private MetricsMode mode;
+
+    // (appId, countryCode) -> group index into the accumulator columns
+    private final Object2IntOpenHashMap<GroupKey> groupIndex = new Object2IntOpenHashMap<>();
+    private final List<GroupKey> groups = new ArrayList<>();
+    private final LongArrayList impressions = new LongArrayList();
+    private final LongArrayList clicks = new LongArrayList();
+    private final DoubleArrayList revenue = new DoubleArrayList();
+
+    // impression id -> group index
+    private final Object2IntOpenHashMap<String> impressionGroups = new Object2IntOpenHashMap<>();
+
+    // Clicks whose impression has not been loaded yet, by impression id
+    private final Object2IntOpenHashMap<String> pendingClicks = new Object2IntOpenHashMap<>();
+    private final Object2DoubleOpenHashMap<String> pendingRevenue = new Object2DoubleOpenHashMap<>();
+
+    public StreamingMetricsAggregator() {
+        groupIndex.defaultReturnValue(NO_GROUP);
+        impressionGroups.defaultReturnValue(NO_GROUP);
+    }
+
+    /**
+     * Creates an aggregator outside the application context, e.g. to compute the metrics of a snapshot.
+     *
+     * @param mode The metrics mode; data is only counted in {@link MetricsMode#STREAMING} mode.
+     */
+    public StreamingMetricsAggregator(MetricsMode mode) {
+        this();
+        this.mode = mode;
+    }
+
+    /**
+     * @return True if metrics are served from memory ({@code advertisement.metrics.mode=streaming}).
+     */
+    public boolean isEnabled() {
+        return mode == MetricsMode.STREAMING;
+    }
+
+    /**
+     * Adds a batch of newly stored impressions to the accumulators.
+     *
+     * @param batch The impressions to add.
+     */
+    public synchronized void onImpressions(List<Impression> batch) {
+        if (!isEnabled()) {
+            return;
+        }
+
+        for (Impression impression : batch) {
+            int group = group(impression.getAppId(), impression.getCountryCode());
+            if (impressionGroups.putIfAbsent(impression.getId(), group) != NO_GROUP) {
+                continue; // Already counted
+            }
+            impressions.set(group, impressions.getLong(group) + 1);
+
+            // Apply the clicks that arrived before their impression
+            if (pendingClicks.containsKey(impression.getId())) {
+                clicks.set(group, clicks.getLong(group) + pendingClicks.removeInt(impression.getId()));
+                revenue.set(group, revenue.getDouble(group) + pendingRevenue.removeDouble(impression.getId()));
+            }
+        }
+    }
+
+    /**
+     * Adds a batch of newly stored clicks to the accumulators.
+     *
+     * @param batch The clicks to add.
+     */
+    public synchronized void onClicks(List<Click> batch) {
+        if (!isEnabled()) {
+            return;
+        }
+
+        for (Click click : batch) {
+            double clickRevenue = click.getRevenue() == null ? 0 : click.getRevenue();
+            int group = impressionGroups.getInt(click.getImpressionId());
+            if (group == NO_GROUP) {
+                // Keep the click until its impression is loaded
+                pendingClicks.addTo(click.getImpressionId(), 1);
+                pendingRevenue.addTo(click.getImpressionId(), clickRevenue);
+            } else {
+                clicks.set(group, clicks.getLong(group) + 1);
+                revenue.set(group, revenue.getDouble(group) + clickRevenue);
+            }
+        }
+    }
+
+    /**
+     * Returns the current metrics of every (appId, countryCode) group.
+     *
+     * @return A list of Metrics objects, one per group.
+     */
+    public synchronized List<Metrics> metrics() {
+        List<Metrics> result = new ArrayList<>(groups.size());
+        for (int group = 0; group < groups.size(); group++) {
+            Metrics metrics = new Metrics();
+            metrics.setAppId(groups.get(group).appId());
+            metrics.setCountryCode(groups.get(group).countryCode());
+            metrics.setImpressions(impressions.getLong(group));
+            metrics.setClicks(clicks.getLong(group));
+            metrics.setRevenue(revenue.getDouble(group));
+            result.add(metrics);
+        }
+        return result;
+    }
+
+    /**
+     * Discards all accumulated data.
+     */
+    public synchronized void reset() {
+        groupIndex.clear();
+        groups.clear();
+        impressions.clear();
+        clicks.clear();
+        revenue.clear();
+        impressionGroups.clear();
+        pendingClicks.clear();
+        pendingRevenue.clear();
+    }
+
+    private int group(String appId, String countryCode) {
+        GroupKey key = new GroupKey(appId, countryCode);
+        int group = groupIndex.getInt(key);
+        if (group == NO_GROUP) {
+            group = groups.size();
+            groupIndex.put(key, group);
+            groups.add(key);
+            impressions.add(0);
+            clicks.add(0);
+            revenue.add(0);
+        }
+        return group;
+    }
+
+    private record GroupKey(String appId, String countryCode) {
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.advertisement.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AdvertiserMetrics {
+    private String appId;
+    private String countryCode;
+    private String advertiserId;
+    private Long impressions;
+    private Long clicks;
+    private Double revenue;
+}
@@ -0,0 +1,15 @@
+package com.example.advertisement.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AdvertiserRevenue {
+    private String appId;
+    private String countryCode;
+    private String advertiserId;
+    private Double revenue;
+}
@@ -0,0 +1,24 @@
+package com.example.advertisement.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StorageReport {
+    private String collection;
+    private long documents;
+    private long sampledDocuments;
+    private double storedBytesPerDocument;
+    private double standardBytesPerDocument;
+    private double compactBytesPerDocument;
+
+    /**
+     * @return The average number of bytes per document saved by the compact layout.
+     */
+    public double getSavedBytesPerDocument() {
+        return standardBytesPerDocument - compactBytesPerDocument;
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.advertisement.recommendation;
+
+/**
+ * Where the advertisers of each (appId, countryCode) are ranked,
+ * set with {@code advertisement.recommendations.ranking}.
+ */
+public enum RecommendationRanking {
+    /**
+     * Rank advertisers inside the Mongo aggregation pipeline with {@code $topN}.
+     * Not used when identifiers are dictionary-encoded, as ties would be broken on codes.
+     */
+    PIPELINE,
+
+    /**
+     * Stream the revenue per (appId, countryCode, advertiserId) from Mongo and keep
+     * the top advertisers of each group in a bounded heap with {@link TopKAdvertiserRanker}.
+     */
+    ENGINE
+}
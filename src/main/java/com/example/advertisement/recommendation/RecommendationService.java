@@ -1,57 +1,188 @@
 package com.example.advertisement.recommendation;
 
+import com.example.advertisement.dictionary.IdentifierDictionary;
+import com.example.advertisement.model.AdvertiserRevenue;
+import com.example.advertisement.model.Click;
 import com.example.advertisement.model.Impression;
 import com.example.advertisement.model.Recommendation;
+import com.example.advertisement.storage.StorageSchema;
+import com.example.advertisement.utils.ReactiveTimers;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
-import org.springframework.data.domain.Sort;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
 import org.springframework.data.mongodb.core.aggregation.AccumulatorOperators;
 import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOptions;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.UnaryOperator;
+
 import static org.springframework.data.mongodb.core.aggregation.Aggregation.*;
 
 @Service
 @RequiredArgsConstructor
 public class RecommendationService {
     private final ReactiveMongoTemplate mongoTemplate;
+    private final AggregationOptions aggregationOptions;
+    private final StorageSchema storageSchema;
+    private final IdentifierDictionary identifierDictionary;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${advertisement.recommendations.ranking:engine}")
+    private RecommendationRanking ranking;
 
     /**
      * Generates a list of recommended advertisers based on the click data.
      *
      * @param numberAdvertisers The number of top recommended advertisers to return.
      * @return A Flux of Recommendation objects containing recommended advertiser IDs.
+     * @throws IllegalArgumentException If the number of advertisers is not positive, whatever the ranking.
      */
     public Flux<Recommendation> recommendations(int numberAdvertisers) {
-        // Define the aggregation pipeline
-        Aggregation aggregation = newAggregation(
-                // Stage 1: Perform a lookup to join the "click" collection based on the impression ID
-                lookup("click", "_id", "impressionId", "clickData"),
+        if (numberAdvertisers <= 0) {
+            throw new IllegalArgumentException("Number of advertisers must be positive: " + numberAdvertisers);
+        }
+        return ReactiveTimers.time(query(numberAdvertisers), Timer.builder("advertisement.aggregation")
+                .description("Time to produce all metrics or recommendations")
+                .tag("pipeline", "recommendations")
+                .tag("mode", ranking.name().toLowerCase(Locale.ROOT))
+                .register(meterRegistry));
+    }
 
-                // Stage 2: Project fields and compute the sum of revenue from the clickData
-                project()
-                        .and("_id").as("_id")
-                        .and("appId").as("appId")
-                        .and("countryCode").as("countryCode")
-                        .and("advertiserId").as("advertiserId")
-                        .and(AccumulatorOperators.Sum.sumOf("clickData.revenue")).as("revenue"), // Calculate total revenue
+    private Flux<Recommendation> query(int numberAdvertisers) {
+        if (isRankedByEngine()) {
+            // Ties are broken on the identifiers of encoded advertisers, not on their codes
+            return identifierDictionary.advertiserIdDecoder().flatMapMany(advertiserKey -> rank(
+                    mongoTemplate.aggregate(advertiserRevenueAggregation(), Impression.class, AdvertiserRevenue.class),
+                    numberAdvertisers, advertiserKey));
+        }
 
-                // Stage 3: Sort the documents by revenue in descending order
-                sort(Sort.by(Sort.Order.desc("revenue"))),
+        // Execute the aggregation pipeline and return the resulting Flux of Recommendation objects
+        return mongoTemplate.aggregate(aggregation(numberAdvertisers), Impression.class, Recommendation.class);
+    }
 
-                // Stage 4: Group by appId and countryCode, and collect unique advertiser IDs into a set
-                group("appId", "countryCode")
-                        .addToSet("advertiserId").as("recommendedAdvertiserIds"),
+    /**
+     * Advertisers are also ranked in memory when identifiers are dictionary-encoded, because {@code $topN} would
+     * break ties on codes, which do not sort like the identifiers they stand for.
+     *
+     * @return True if advertisers are ranked in memory by {@link TopKAdvertiserRanker}.
+     */
+    public boolean isRankedByEngine() {
+        return ranking == RecommendationRanking.ENGINE || identifierDictionary.isEnabled();
+    }
 
-                // Stage 5: Project the output and limit the number of recommended advertiser IDs to the specified number
+    /**
+     * Ranks a stream of advertiser revenues, keeping only the top advertisers of each group in memory.
+     *
+     * @param revenues          The total revenue of every (appId, countryCode, advertiserId).
+     * @param numberAdvertisers The number of top recommended advertisers to return.
+     * @return A Flux of Recommendation objects with advertisers ordered by descending revenue.
+     */
+    public Flux<Recommendation> rank(Flux<AdvertiserRevenue> revenues, int numberAdvertisers) {
+        return rank(revenues, numberAdvertisers, UnaryOperator.identity());
+    }
+
+    private Flux<Recommendation> rank(Flux<AdvertiserRevenue> revenues, int numberAdvertisers, UnaryOperator<String> advertiserKey) {
+        return revenues
+                .collect(() -> new TopKAdvertiserRanker(numberAdvertisers, advertiserKey), TopKAdvertiserRanker::add)
+                .flatMapIterable(TopKAdvertiserRanker::recommendations);
+    }
+
+    /**
+     * Builds the aggregation pipeline that sums the revenue of every (appId, countryCode, advertiserId)
+     * from the impression collection, without sorting.
+     *
+     * @return The advertiser revenue aggregation pipeline.
+     */
+    public Aggregation advertiserRevenueAggregation() {
+        return newAggregation(
+                // Stage 1: Join the revenue of the clicks of each impression as a single summary
+                clickRevenueLookup(),
+
+                // Stage 2: Project the revenue of each impression from the summary
+                project()
+                        .and(storageSchema.impressionField("appId")).as("appId")
+                        .and(storageSchema.impressionField("countryCode")).as("countryCode")
+                        .and(storageSchema.impressionField("advertiserId")).as("advertiserId")
+                        .and(AccumulatorOperators.Sum.sumOf("clickSummary.revenue")).as("revenue"),
+
+                // Stage 3: Group by appId, countryCode and advertiserId, and calculate the total revenue
+                group("appId", "countryCode", "advertiserId")
+                        .sum("revenue").as("revenue"),
+
+                // Stage 4: Final projection to format the output
                 project()
                         .and("_id.appId").as("appId")
                         .and("_id.countryCode").as("countryCode")
-                        .and("recommendedAdvertiserIds").slice(numberAdvertisers).as("recommendedAdvertiserIds") // Limit the number of IDs
-        );
+                        .and("_id.advertiserId").as("advertiserId")
+                        .and("revenue").as("revenue")
+        ).withOptions(aggregationOptions);
+    }
 
-        // Execute the aggregation pipeline and return the resulting Flux of Recommendation objects
-        return mongoTemplate.aggregate(aggregation, Impression.class, Recommendation.class);
+    /**
+     * Builds the aggregation pipeline that ranks advertisers from the impression collection.
+     * Revenue is summed per advertiser first, and {@code $topN} keeps the best advertisers of each
+     * (appId, countryCode), so no global sort of the impressions is needed.
+     *
+     * @param numberAdvertisers The number of top recommended advertisers to return.
+     * @return The recommendations aggregation pipeline.
+     * @throws IllegalArgumentException If the number of advertisers is not positive, as {@code $topN} requires.
+     */
+    public Aggregation aggregation(int numberAdvertisers) {
+        if (numberAdvertisers <= 0) {
+            throw new IllegalArgumentException("Number of advertisers must be positive: " + numberAdvertisers);
+        }
+
+        // Stages 1-4: Sum the revenue of every (appId, countryCode, advertiserId)
+        List<AggregationOperation> operations = new ArrayList<>(advertiserRevenueAggregation().getPipeline().getOperations());
+
+        // Stage 5: Group by appId and countryCode, and keep the advertisers with the highest revenue in order
+        operations.add(topAdvertisers(numberAdvertisers));
+
+        // Stage 6: Project the output
+        operations.add(project()
+                .and("_id.appId").as("appId")
+                .and("_id.countryCode").as("countryCode")
+                .and("recommendedAdvertiserIds").as("recommendedAdvertiserIds"));
+
+        return newAggregation(operations).withOptions(aggregationOptions);
+    }
+
+    /**
+     * Builds a group stage that collects the top advertisers of each (appId, countryCode) with {@code $topN},
+     * ordered by descending revenue and then by advertiser ID, like {@link TopKAdvertiserRanker}.
+     *
+     * @param numberAdvertisers The number of advertisers to keep per group.
+     * @return The $group stage.
+     */
+    private AggregationOperation topAdvertisers(int numberAdvertisers) {
+        return context -> new Document("$group", new Document("_id", new Document("appId", "$appId")
+                .append("countryCode", "$countryCode"))
+                .append("recommendedAdvertiserIds", new Document("$topN", new Document("n", numberAdvertisers)
+                        .append("sortBy", new Document("revenue", -1).append("advertiserId", 1))
+                        .append("output", "$advertiserId"))));
+    }
+
+    /**
+     * Builds a lookup that joins the clicks of each impression and sums their revenue,
+     * so no array of click documents is materialized per impression.
+     *
+     * @return The $lookup stage with a grouping sub-pipeline.
+     */
+    private AggregationOperation clickRevenueLookup() {
+        return context -> new Document("$lookup", new Document("from", mongoTemplate.getCollectionName(Click.class))
+                .append("localField", "_id")
+                .append("foreignField", storageSchema.fieldName("impressionId"))
+                .append("pipeline", List.of(new Document("$group", new Document("_id", null)
+                        .append("revenue", new Document("$sum", storageSchema.clickRevenue())))))
+                .append("as", "clickSummary"));
     }
 }
@@ -0,0 +1,94 @@
+package com.example.advertisement.recommendation;
+
+import com.example.advertisement.model.AdvertiserRevenue;
+import com.example.advertisement.model.Recommendation;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.function.UnaryOperator;
+
+/**
+ * Keeps the K advertisers with the highest revenue of every (appId, countryCode).
+ * Each group holds a min-heap of at most K entries whose root is the weakest advertiser kept,
+ * so memory is O(groups * K) regardless of the number of advertisers added.
+ * Advertisers with equal revenue are ranked by advertiser ID, or by the key the advertiser ID maps to,
+ * e.g. the identifier of an encoded advertiser ID.
+ * <p>
+ * Every (appId, countryCode, advertiserId) is expected to be added once with its total revenue.
+ * Instances are not thread-safe.
+ */
+public class TopKAdvertiserRanker {
+
+    // Best advertiser first: highest revenue, then smallest advertiser ID
+    private final Comparator<AdvertiserRevenue> ranking;
+
+    private final int k;
+    private final Map<GroupKey, PriorityQueue<AdvertiserRevenue>> groups = new HashMap<>();
+
+    /**
+     * @param k The number of advertisers to keep per (appId, countryCode).
+     */
+    public TopKAdvertiserRanker(int k) {
+        this(k, UnaryOperator.identity());
+    }
+
+    /**
+     * @param k             The number of advertisers to keep per (appId, countryCode).
+     * @param advertiserKey Maps an advertiser ID to the key that ranks advertisers with equal revenue.
+     * @throws IllegalArgumentException If k is not positive.
+     */
+    public TopKAdvertiserRanker(int k, UnaryOperator<String> advertiserKey) {
+        if (k <= 0) {
+            throw new IllegalArgumentException("Number of advertisers must be positive: " + k);
+        }
+        this.k = k;
+        this.ranking = Comparator
+                .comparingDouble((AdvertiserRevenue advertiser) -> revenueOf(advertiser)).reversed()
+                .thenComparing(advertiser -> advertiserKey.apply(advertiser.getAdvertiserId()),
+                        Comparator.nullsFirst(Comparator.naturalOrder()));
+    }
+
+    /**
+     * Offers an advertiser to the heap of its (appId, countryCode).
+     *
+     * @param advertiser The advertiser with its total revenue in the group.
+     */
+    public void add(AdvertiserRevenue advertiser) {
+        PriorityQueue<AdvertiserRevenue> heap = groups.computeIfAbsent(
+                new GroupKey(advertiser.getAppId(), advertiser.getCountryCode()),
+                key -> new PriorityQueue<>(k + 1, ranking.reversed())); // Weakest advertiser at the root
+
+        if (heap.size() < k) {
+            heap.add(advertiser);
+        } else if (ranking.compare(advertiser, heap.peek()) < 0) {
+            // Replace the weakest advertiser kept
+            heap.poll();
+            heap.add(advertiser);
+        }
+    }
+
+    /**
+     * @return One recommendation per (appId, countryCode) with its advertisers ordered by descending revenue.
+     */
+    public List<Recommendation> recommendations() {
+        List<Recommendation> recommendations = new ArrayList<>(groups.size());
+        groups.forEach((key, heap) -> {
+            List<AdvertiserRevenue> ranked = new ArrayList<>(heap);
+            ranked.sort(ranking);
+            recommendations.add(new Recommendation(key.appId(), key.countryCode(),
+                    ranked.stream().map(AdvertiserRevenue::getAdvertiserId).toList()));
+        });
+        return recommendations;
+    }
+
+    private static double revenueOf(AdvertiserRevenue advertiser) {
+        return advertiser.getRevenue() == null ? 0.0 : advertiser.getRevenue();
+    }
+
+    private record GroupKey(String appId, String countryCode) {
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.advertisement.report;
+
+import com.example.advertisement.model.AdvertiserMetrics;
+import com.example.advertisement.model.AdvertiserRevenue;
+import com.example.advertisement.model.Metrics;
+import com.example.advertisement.model.Recommendation;
+import com.example.advertisement.recommendation.TopKAdvertiserRanker;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.UnaryOperator;
+
+/**
+ * Builds the metrics and the recommendations from the same stream of per-advertiser totals.
+ * Metrics are the sums over the advertisers of each (appId, countryCode), and recommendations
+ * rank the same advertisers with {@link TopKAdvertiserRanker}.
+ * <p>
+ * Every (appId, countryCode, advertiserId) is expected to be added once. Instances are not thread-safe.
+ */
+public class CombinedReport {
+
+    private final Map<GroupKey, Metrics> metrics = new LinkedHashMap<>();
+    private final TopKAdvertiserRanker ranker;
+
+    /**
+     * @param numberAdvertisers The number of top recommended advertisers per (appId, countryCode).
+     */
+    public CombinedReport(int numberAdvertisers) {
+        this(numberAdvertisers, UnaryOperator.identity());
+    }
+
+    /**
+     * @param numberAdvertisers The number of top recommended advertisers per (appId, countryCode).
+     * @param advertiserKey     Maps an advertiser ID to the key that ranks advertisers with equal revenue.
+     */
+    public CombinedReport(int numberAdvertisers, UnaryOperator<String> advertiserKey) {
+        this.ranker = new TopKAdvertiserRanker(numberAdvertisers, advertiserKey);
+    }
+
+    /**
+     * Adds the totals of one advertiser to the metrics of its group and offers it to the ranking.
+     *
+     * @param advertiser The totals of an (appId, countryCode, advertiserId).
+     */
+    public void add(AdvertiserMetrics advertiser) {
+        Metrics group = metrics.computeIfAbsent(new GroupKey(advertiser.getAppId(), advertiser.getCountryCode()), key -> {
+            Metrics created = new Metrics();
+            created.setAppId(key.appId());
+            created.setCountryCode(key.countryCode());
+            created.setImpressions(0L);
+            created.setClicks(0L);
+            created.setRevenue(0.0);
+            return created;
+        });
+        group.setImpressions(group.getImpressions() + valueOf(advertiser.getImpressions()));
+        group.setClicks(group.getClicks() + valueOf(advertiser.getClicks()));
+        group.setRevenue(group.getRevenue() + (advertiser.getRevenue() == null ? 0.0 : advertiser.getRevenue()));
+
+        ranker.add(new AdvertiserRevenue(advertiser.getAppId(), advertiser.getCountryCode(),
+                advertiser.getAdvertiserId(), advertiser.getRevenue()));
+    }
+
+    /**
+     * @return One Metrics object per (appId, countryCode).
+     */
+    public List<Metrics> metrics() {
+        return new ArrayList<>(metrics.values());
+    }
+
+    /**
+     * @return One recommendation per (appId, countryCode) with its advertisers ordered by descending revenue.
+     */
+    public List<Recommendation> recommendations() {
+        return ranker.recommendations();
+    }
+
+    private static long valueOf(Long value) {
+        return value == null ? 0 : value;
+    }
+
+    private record GroupKey(String appId, String countryCode) {
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.advertisement.report;
+
+import com.example.advertisement.dictionary.IdentifierDictionary;
+import com.example.advertisement.metric.MetricsCalculatorService;
+import com.example.advertisement.model.AdvertiserMetrics;
+import com.example.advertisement.model.Impression;
+import com.example.advertisement.storage.StorageSchema;
+import com.example.advertisement.utils.ReactiveTimers;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.AccumulatorOperators;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOptions;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.*;
+
+/**
+ * Produces the metrics and the recommendations with a single join of impressions and clicks,
+ * instead of one join for each report.
+ */
+@Service
+@RequiredArgsConstructor
+public class CombinedReportService {
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final MetricsCalculatorService metricsCalculatorService;
+    private final AggregationOptions aggregationOptions;
+    private final StorageSchema storageSchema;
+    private final IdentifierDictionary identifierDictionary;
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Runs the combined aggregation once and collects its per-advertiser totals into both reports.
+     * Metrics are always computed from the stored impressions and clicks, whatever the metrics mode.
+     *
+     * @param numberAdvertisers The number of top recommended advertisers to return per (appId, countryCode).
+     * @return A Mono of the combined report, emitted once the aggregation has completed.
+     * @throws IllegalArgumentException If the number of advertisers is not positive.
+     */
+    public Mono<CombinedReport> report(int numberAdvertisers) {
+        if (numberAdvertisers <= 0) {
+            throw new IllegalArgumentException("Number of advertisers must be positive: " + numberAdvertisers);
+        }
+
+        // Rebuild the persisted click summaries first, so impressions join against current data
+        Mono<Void> clickSummary = metricsCalculatorService.isClickSummaryPersisted()
+                ? metricsCalculatorService.persistClickSummary()
+                : Mono.empty();
+
+        // Ties are broken on the identifiers of encoded advertisers, not on their codes
+        Mono<CombinedReport> report = clickSummary.then(identifierDictionary.advertiserIdDecoder())
+                .flatMap(advertiserKey -> mongoTemplate.aggregate(aggregation(), Impression.class, AdvertiserMetrics.class)
+                        .collect(() -> new CombinedReport(numberAdvertisers, advertiserKey), CombinedReport::add));
+        return ReactiveTimers.time(report, Timer.builder("advertisement.aggregation")
+                .description("Time to produce all metrics or recommendations")
+                .tag("pipeline", "report")
+                .tag("mode", "aggregation")
+                .register(meterRegistry));
+    }
+
+    /**
+     * Builds the aggregation pipeline that joins the click summary of each impression once and totals
+     * impressions, clicks and revenue per (appId, countryCode, advertiserId). These totals are enough for
+     * both the metrics, which sum them per (appId, countryCode), and the recommendations, which rank them.
+     *
+     * @return The combined aggregation pipeline.
+     */
+    public Aggregation aggregation() {
+        return newAggregation(
+                // Stage 1: Join the click summary of each impression, like the metrics aggregation
+                metricsCalculatorService.clickSummaryJoin(),
+
+                // Stage 2: Project the identifiers, number of clicks and revenue of each impression
+                project()
+                        .and(storageSchema.impressionField("appId")).as("appId")
+                        .and(storageSchema.impressionField("countryCode")).as("countryCode")
+                        .and(storageSchema.impressionField("advertiserId")).as("advertiserId")
+                        .and(AccumulatorOperators.Sum.sumOf("clickSummary.clicks")).as("clicks") // Number of clicks
+                        .and(AccumulatorOperators.Sum.sumOf("clickSummary.revenue")).as("revenue"), // Sum of revenue
+
+                // Stage 3: Group by appId, countryCode and advertiserId, and calculate totals
+                group("appId", "countryCode", "advertiserId")
+                        .count().as("impressions") // Total number of impressions
+                        .sum("clicks").as("clicks") // Total number of clicks
+                        .sum("revenue").as("revenue"), // Total revenue
+
+                // Stage 4: Final projection to format the output
+                project()
+                        .and("_id.appId").as("appId")
+                        .and("_id.countryCode").as("countryCode")
+                        .and("_id.advertiserId").as("advertiserId")
+                        .and("impressions").as("impressions")
+                        .and("clicks").as("clicks")
+                        .and("revenue").as("revenue")
+        ).withOptions(aggregationOptions);
+    }
+}
@@ -1,42 +1,185 @@
 package com.example.advertisement.shell;
 
-import com.example.advertisement.click.ClickService;
-import com.example.advertisement.impression.ImpressionService;
-import com.example.advertisement.metric.MetricsCalculatorService;
-import com.example.advertisement.model.Metrics;
-import com.example.advertisement.model.Recommendation;
-import com.example.advertisement.recommendation.RecommendationService;
-import com.example.advertisement.utils.ReactiveJsonWriter;
+import com.example.advertisement.generator.DatasetGenerator;
+import com.example.advertisement.generator.DatasetSpec;
+import com.example.advertisement.generator.RevenueDistribution;
+import com.example.advertisement.job.JobRunner;
+import com.example.advertisement.job.StageResult;
+import com.example.advertisement.metric.MetricsMaterializer;
+import com.example.advertisement.snapshot.SnapshotService;
+import com.example.advertisement.stats.StatsService;
+import com.example.advertisement.storage.StorageReportService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.boot.convert.DurationStyle;
 import org.springframework.shell.standard.ShellComponent;
 import org.springframework.shell.standard.ShellMethod;
-import reactor.core.publisher.Flux;
+import org.springframework.shell.standard.ShellOption;
+import reactor.core.publisher.Mono;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
+/**
+ * Shell commands. Every command waits for its work to complete and prints the records/sec of each stage,
+ * so commands can be chained, and run non-interactively, e.g. from cron.
+ */
 @ShellComponent
 @RequiredArgsConstructor
 public class ShellService {
 
-    private final ImpressionService impressionService;
-    private final ClickService clickService;
-    private final MetricsCalculatorService metricsCalculatorService;
-    private final RecommendationService recommendationService;
-    private final ReactiveJsonWriter jsonWriter;
+    private final JobRunner jobRunner;
+    private final MetricsMaterializer metricsMaterializer;
+    private final StorageReportService storageReportService;
+    private final SnapshotService snapshotService;
+    private final StatsService statsService;
+    private final DatasetGenerator datasetGenerator;
+
+    @ShellMethod(value = "Load impressions and clicks, then calculate metrics, then generate recommendations.", key = "job")
+    public String runJob(@ShellOption("--impressions") String impressionFilePath,
+                         @ShellOption("--clicks") String clickFilePath,
+                         @ShellOption("--metrics") String metricsPath,
+                         @ShellOption("--recommendations") String recommendationsPath,
+                         @ShellOption(value = "--number-advertisers", defaultValue = "5") int numberAdvertisers) {
+        return format(jobRunner.run(impressionFilePath, clickFilePath, metricsPath, recommendationsPath, numberAdvertisers));
+    }
+
+    @ShellMethod(value = "Generate synthetic impressions.json and clicks.json files in a directory.", key = "generate")
+    public String generateDataset(@ShellOption("--dir") String dir,
+                                  @ShellOption(value = "--impressions", defaultValue = "1000000") long impressions,
+                                  @ShellOption(value = "--apps", defaultValue = "100") int apps,
+                                  @ShellOption(value = "--countries", defaultValue = "20") int countries,
+                                  @ShellOption(value = "--advertisers", defaultValue = "1000") int advertisers,
+                                  @ShellOption(value = "--skew", defaultValue = "1.0") double skew,
+                                  @ShellOption(value = "--click-through-rate", defaultValue = "0.05") double clickThroughRate,
+                                  @ShellOption(value = "--revenue-distribution", defaultValue = "lognormal") String revenueDistribution,
+                                  @ShellOption(value = "--mean-revenue", defaultValue = "1.0") double meanRevenue,
+                                  @ShellOption(value = "--seed", defaultValue = "42") long seed) {
+        DatasetSpec spec = spec(impressions, apps, countries, advertisers, skew, clickThroughRate, revenueDistribution, meanRevenue, seed);
+        return format(generate(spec, Path.of(dir)));
+    }
+
+    @ShellMethod(value = "Generate a synthetic dataset in a directory, then load it, calculate metrics and generate recommendations.", key = "e2e")
+    public String runEndToEnd(@ShellOption("--dir") String dir,
+                              @ShellOption(value = "--impressions", defaultValue = "1000000") long impressions,
+                              @ShellOption(value = "--apps", defaultValue = "100") int apps,
+                              @ShellOption(value = "--countries", defaultValue = "20") int countries,
+                              @ShellOption(value = "--advertisers", defaultValue = "1000") int advertisers,
+                              @ShellOption(value = "--skew", defaultValue = "1.0") double skew,
+                              @ShellOption(value = "--click-through-rate", defaultValue = "0.05") double clickThroughRate,
+                              @ShellOption(value = "--revenue-distribution", defaultValue = "lognormal") String revenueDistribution,
+                              @ShellOption(value = "--mean-revenue", defaultValue = "1.0") double meanRevenue,
+                              @ShellOption(value = "--seed", defaultValue = "42") long seed,
+                              @ShellOption(value = "--number-advertisers", defaultValue = "5") int numberAdvertisers) {
+        DatasetSpec spec = spec(impressions, apps, countries, advertisers, skew, clickThroughRate, revenueDistribution, meanRevenue, seed);
+        Path directory = Path.of(dir);
+        return format(generate(spec, directory).flatMap(generated -> jobRunner.run(
+                        directory.resolve("impressions.json").toString(), directory.resolve("clicks.json").toString(),
+                        directory.resolve("metrics.json").toString(), directory.resolve("recommendations.json").toString(),
+                        numberAdvertisers)
+                .map(stages -> {
+                    List<StageResult> all = new ArrayList<>(generated);
+                    all.addAll(stages);
+                    return all;
+                })));
+    }
 
     @ShellMethod(value = "Load impression and click data from file paths.", key = "load")
-    public void loadData(String impressionFilePath, String clickFilePath) {
-        impressionService.load(impressionFilePath).subscribe();
-        clickService.load(clickFilePath).subscribe();
+    public String loadData(String impressionFilePath, String clickFilePath) {
+        return format(jobRunner.load(impressionFilePath, clickFilePath));
+    }
+
+    @ShellMethod(value = "Watch directories and load impression and click files as they arrive.", key = "watch")
+    public String watchData(@ShellOption("--impressions") String impressionFilePath,
+                            @ShellOption("--clicks") String clickFilePath,
+                            @ShellOption(value = "--existing", defaultValue = "false") boolean existing,
+                            @ShellOption(value = "--duration", defaultValue = "0s") String duration) {
+        return format(jobRunner.watch(impressionFilePath, clickFilePath, existing, DurationStyle.detectAndParse(duration))
+                .map(List::of));
     }
 
     @ShellMethod(value = "Calculate and aggregate advertisement metrics.", key = "metrics")
-    public void calculateMetrics(String path) {
-        Flux<Metrics> metrics = metricsCalculatorService.metrics();
-        jsonWriter.writeJsonFile(metrics, path).subscribe();
+    public String calculateMetrics(String path) {
+        return format(jobRunner.metrics(path).map(List::of));
+    }
+
+    @ShellMethod(value = "Rebuild the materialized metrics collection from all stored impressions and clicks.", key = "metrics-rebuild")
+    public String rebuildMetrics() {
+        metricsMaterializer.rebuild().block();
+        return "Rebuilt the " + MetricsMaterializer.METRICS_COLLECTION + " collection";
     }
 
     @ShellMethod(value = "Generate recommendations based on data.", key = "recommendations")
-    public void generateRecommendations(String path, int numberAdvertisers) {
-        Flux<Recommendation> recommendations = recommendationService.recommendations(numberAdvertisers);
-        jsonWriter.writeJsonFile(recommendations, path).subscribe();
+    public String generateRecommendations(String path, int numberAdvertisers) {
+        return format(jobRunner.recommendations(path, numberAdvertisers).map(List::of));
+    }
+
+    @ShellMethod(value = "Calculate metrics and generate recommendations with a single pass over the data.", key = "report")
+    public String generateReport(String metricsPath, String recommendationsPath, int numberAdvertisers) {
+        return format(jobRunner.report(metricsPath, recommendationsPath, numberAdvertisers));
+    }
+
+    @ShellMethod(value = "Report the bytes per document of the standard and compact storage layouts.", key = "storage-report")
+    public String reportStorage(@ShellOption(value = "--sample-size", defaultValue = "1000") int sampleSize) {
+        return storageReportService.report(sampleSize)
+                .map(report -> String.format("%s: %d documents, %d sampled, %.1f bytes stored, %.1f standard, %.1f compact, %.1f saved per document",
+                        report.getCollection(), report.getDocuments(), report.getSampledDocuments(),
+                        report.getStoredBytesPerDocument(), report.getStandardBytesPerDocument(),
+                        report.getCompactBytesPerDocument(), report.getSavedBytesPerDocument()))
+                .collect(Collectors.joining("\n"))
+                .block();
+    }
+
+    @ShellMethod(value = "Show the counters and timers of file parsing, Mongo writes, aggregations and output.", key = "stats")
+    public String showStats() {
+        return String.join("\n", statsService.stats());
+    }
+
+    @ShellMethod(value = "Save all stored impressions and clicks to a columnar snapshot file.", key = "snapshot-save")
+    public String saveSnapshot(String path) {
+        return "Saved snapshot " + path + " (" + snapshotService.save(Path.of(path)).block() + " bytes)";
+    }
+
+    @ShellMethod(value = "Load impressions and clicks from a snapshot file.", key = "snapshot-load")
+    public String loadSnapshot(String path) {
+        return format(jobRunner.snapshotLoad(Path.of(path)).map(List::of));
+    }
+
+    @ShellMethod(value = "Calculate metrics directly from a snapshot file.", key = "snapshot-metrics")
+    public String calculateSnapshotMetrics(String snapshotPath, String path) {
+        return format(jobRunner.snapshotMetrics(Path.of(snapshotPath), path).map(List::of));
+    }
+
+    @ShellMethod(value = "Generate recommendations directly from a snapshot file.", key = "snapshot-recommendations")
+    public String generateSnapshotRecommendations(String snapshotPath, String path, int numberAdvertisers) {
+        return format(jobRunner.snapshotRecommendations(Path.of(snapshotPath), path, numberAdvertisers).map(List::of));
+    }
+
+    /**
+     * Generates the impression file, then the click file, of a dataset in a directory.
+     */
+    private Mono<List<StageResult>> generate(DatasetSpec spec, Path dir) {
+        return Mono.fromCallable(() -> Files.createDirectories(dir))
+                .then(jobRunner.stage("generate-impressions", datasetGenerator.impressions(spec, dir.resolve("impressions.json"))))
+                .flatMap(impressions -> jobRunner.stage("generate-clicks", datasetGenerator.clicks(spec, dir.resolve("clicks.json")))
+                        .map(clicks -> List.of(impressions, clicks)));
+    }
+
+    private static DatasetSpec spec(long impressions, int apps, int countries, int advertisers, double skew,
+                                    double clickThroughRate, String revenueDistribution, double meanRevenue, long seed) {
+        return new DatasetSpec(impressions, apps, countries, advertisers, skew, clickThroughRate,
+                RevenueDistribution.valueOf(revenueDistribution.toUpperCase(Locale.ROOT)), meanRevenue, seed);
+    }
+
+    /**
+     * Waits for the stages to complete and formats one line per stage.
+     */
+    private static String format(Mono<List<StageResult>> stages) {
+        return stages.block().stream()
+                .map(StageResult::toString)
+                .collect(Collectors.joining("\n"));
     }
 }
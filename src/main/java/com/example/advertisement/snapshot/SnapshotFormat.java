@@ -0,0 +1,33 @@
+package com.example.advertisement.snapshot;
+
+/**
+ * Layout of a snapshot file. All numbers are big-endian.
+ * <pre>
+ * header:    int magic, int version, long impressions, long clicks, int columns,
+ *            then (long offset, long length) per column
+ * columns:   impression id, appId, countryCode, advertiserId, click id, impressionId, revenue
+ * </pre>
+ * String columns hold one int byte length per row (-1 for null) followed by the UTF-8 bytes of all rows.
+ * Dictionary columns hold an int entry count, each entry as an int byte length and its UTF-8 bytes,
+ * then one int code per row (-1 for null). The revenue column holds one double per row (NaN for null).
+ * Columns are mapped in chunks of at most {@link #CHUNK_SIZE} bytes, so they are not limited to the 2 GB of one mapping.
+ */
+final class SnapshotFormat {
+    static final int MAGIC = 0x41445331; // "ADS1"
+    static final int VERSION = 1;
+    static final int COLUMNS = 7;
+    static final int HEADER_SIZE = 4 + 4 + 8 + 8 + 4 + COLUMNS * 16;
+    static final int NULL = -1;
+    static final int CHUNK_SIZE = 1 << 30;
+
+    static final int IMPRESSION_ID = 0;
+    static final int APP_ID = 1;
+    static final int COUNTRY_CODE = 2;
+    static final int ADVERTISER_ID = 3;
+    static final int CLICK_ID = 4;
+    static final int CLICK_IMPRESSION_ID = 5;
+    static final int REVENUE = 6;
+
+    private SnapshotFormat() {
+    }
+}
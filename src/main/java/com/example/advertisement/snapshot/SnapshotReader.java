@@ -0,0 +1,255 @@
+package com.example.advertisement.snapshot;
+
+import com.example.advertisement.model.Click;
+import com.example.advertisement.model.Impression;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static com.example.advertisement.snapshot.SnapshotFormat.*;
+
+/**
+ * Reads a snapshot file written by {@link SnapshotWriter}. Every column is memory-mapped once, in chunks of
+ * {@link SnapshotFormat#CHUNK_SIZE} bytes; rows are decoded on demand while the Flux is consumed,
+ * and dictionary values are decoded only once.
+ */
+class SnapshotReader {
+
+    private final long impressions;
+    private final long clicks;
+    private final MappedColumn[] columns = new MappedColumn[COLUMNS];
+
+    private SnapshotReader(long impressions, long clicks) {
+        this.impressions = impressions;
+        this.clicks = clicks;
+    }
+
+    /**
+     * Maps the columns of a snapshot file. The mappings stay valid after the file is closed.
+     *
+     * @param path The path of the snapshot file.
+     * @return The reader.
+     * @throws IOException If the file cannot be read or is not a snapshot.
+     */
+    static SnapshotReader open(Path path) throws IOException {
+        return open(path, CHUNK_SIZE);
+    }
+
+    /**
+     * @param path      The path of the snapshot file.
+     * @param chunkSize The maximum size of one mapping, excluding the overlap with the next one.
+     * @return The reader.
+     * @throws IOException If the file cannot be read or is not a snapshot.
+     */
+    static SnapshotReader open(Path path, int chunkSize) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_SIZE) {
+                throw new IOException("Not a snapshot file: " + path);
+            }
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+            if (header.getInt() != MAGIC) {
+                throw new IOException("Not a snapshot file: " + path);
+            }
+            int version = header.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported snapshot version " + version + ": " + path);
+            }
+
+            SnapshotReader reader = new SnapshotReader(header.getLong(), header.getLong());
+            int columns = header.getInt();
+            if (columns != COLUMNS) {
+                throw new IOException("Unexpected number of snapshot columns " + columns + ": " + path);
+            }
+            for (int i = 0; i < columns; i++) {
+                long offset = header.getLong();
+                long length = header.getLong();
+                // Subtracting keeps the check from overflowing on a corrupted offset or length
+                if (offset < HEADER_SIZE || length < 0 || length > channel.size() - offset) {
+                    throw new IOException("Snapshot column " + i + " lies outside the file: " + path);
+                }
+                reader.columns[i] = MappedColumn.map(channel, offset, length, chunkSize);
+            }
+            return reader;
+        }
+    }
+
+    long impressionCount() {
+        return impressions;
+    }
+
+    long clickCount() {
+        return clicks;
+    }
+
+    /**
+     * @return A Flux of the impressions of the snapshot, in the order they were written.
+     */
+    Flux<Impression> impressions() {
+        return Flux.generate(
+                () -> new ImpressionCursor(
+                        new StringCursor(columns[IMPRESSION_ID], impressions),
+                        new DictionaryCursor(columns[APP_ID]),
+                        new DictionaryCursor(columns[COUNTRY_CODE]),
+                        new DictionaryCursor(columns[ADVERTISER_ID])),
+                (cursor, sink) -> {
+                    if (cursor.row == impressions) {
+                        sink.complete();
+                    } else {
+                        cursor.row++;
+                        sink.next(new Impression(cursor.ids.next(), cursor.appIds.next(),
+                                cursor.countryCodes.next(), cursor.advertiserIds.next()));
+                    }
+                    return cursor;
+                });
+    }
+
+    /**
+     * @return A Flux of the clicks of the snapshot, in the order they were written.
+     */
+    Flux<Click> clicks() {
+        MappedColumn revenues = columns[REVENUE];
+        return Flux.generate(
+                () -> new ClickCursor(
+                        new StringCursor(columns[CLICK_ID], clicks),
+                        new StringCursor(columns[CLICK_IMPRESSION_ID], clicks)),
+                (cursor, sink) -> {
+                    if (cursor.row == clicks) {
+                        sink.complete();
+                    } else {
+                        double revenue = revenues.getDouble(8 * cursor.row++);
+                        sink.next(new Click(cursor.ids.next(), cursor.impressionIds.next(),
+                                Double.isNaN(revenue) ? null : revenue));
+                    }
+                    return cursor;
+                });
+    }
+
+    private static class ImpressionCursor {
+        private final StringCursor ids;
+        private final DictionaryCursor appIds;
+        private final DictionaryCursor countryCodes;
+        private final DictionaryCursor advertiserIds;
+        private long row;
+
+        ImpressionCursor(StringCursor ids, DictionaryCursor appIds, DictionaryCursor countryCodes, DictionaryCursor advertiserIds) {
+            this.ids = ids;
+            this.appIds = appIds;
+            this.countryCodes = countryCodes;
+            this.advertiserIds = advertiserIds;
+        }
+    }
+
+    private static class ClickCursor {
+        private final StringCursor ids;
+        private final StringCursor impressionIds;
+        private long row;
+
+        ClickCursor(StringCursor ids, StringCursor impressionIds) {
+            this.ids = ids;
+            this.impressionIds = impressionIds;
+        }
+    }
+
+    /**
+     * Reads a string column row by row, keeping one position in the lengths and one in the bytes.
+     */
+    private static class StringCursor {
+        private final MappedColumn column;
+        private long lengthPosition;
+        private long dataPosition;
+
+        StringCursor(MappedColumn column, long rows) {
+            this.column = column;
+            this.dataPosition = 4 * rows;
+        }
+
+        String next() {
+            int length = column.getInt(lengthPosition);
+            lengthPosition += 4;
+            if (length == NULL) {
+                return null;
+            }
+            byte[] utf8 = new byte[length];
+            column.get(dataPosition, utf8);
+            dataPosition += length;
+            return new String(utf8, StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Reads a dictionary column row by row, returning the same String instance for every row of an entry.
+     */
+    private static class DictionaryCursor {
+        private final MappedColumn column;
+        private final String[] entries;
+        private long codePosition;
+
+        DictionaryCursor(MappedColumn column) {
+            this.column = column;
+            this.entries = new String[column.getInt(0)];
+            long position = 4;
+            for (int i = 0; i < entries.length; i++) {
+                int length = column.getInt(position);
+                byte[] utf8 = new byte[length];
+                column.get(position + 4, utf8);
+                entries[i] = new String(utf8, StandardCharsets.UTF_8);
+                position += 4 + length;
+            }
+            this.codePosition = position;
+        }
+
+        String next() {
+            int code = column.getInt(codePosition);
+            codePosition += 4;
+            return code == NULL ? null : entries[code];
+        }
+    }
+
+    /**
+     * A column mapped as consecutive chunks. Each chunk also maps the first bytes of the next one,
+     * so a number starting in a chunk is read from that chunk alone.
+     */
+    private static class MappedColumn {
+        private final ByteBuffer[] chunks;
+        private final int chunkSize;
+
+        private MappedColumn(ByteBuffer[] chunks, int chunkSize) {
+            this.chunks = chunks;
+            this.chunkSize = chunkSize;
+        }
+
+        static MappedColumn map(FileChannel channel, long offset, long length, int chunkSize) throws IOException {
+            ByteBuffer[] chunks = new ByteBuffer[(int) Math.max(1, (length + chunkSize - 1) / chunkSize)];
+            for (int i = 0; i < chunks.length; i++) {
+                long start = (long) i * chunkSize;
+                chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, offset + start,
+                        Math.min((long) chunkSize + Long.BYTES, length - start));
+            }
+            return new MappedColumn(chunks, chunkSize);
+        }
+
+        int getInt(long position) {
+            return chunks[(int) (position / chunkSize)].getInt((int) (position % chunkSize));
+        }
+
+        double getDouble(long position) {
+            return chunks[(int) (position / chunkSize)].getDouble((int) (position % chunkSize));
+        }
+
+        void get(long position, byte[] bytes) {
+            int copied = 0;
+            while (copied < bytes.length) {
+                long current = position + copied;
+                int index = (int) (current % chunkSize);
+                int count = Math.min(bytes.length - copied, chunkSize - index);
+                chunks[(int) (current / chunkSize)].get(index, bytes, copied, count);
+                copied += count;
+            }
+        }
+    }
+}
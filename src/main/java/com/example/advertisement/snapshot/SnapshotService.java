@@ -0,0 +1,144 @@
+package com.example.advertisement.snapshot;
+
+import com.example.advertisement.click.ClickService;
+import com.example.advertisement.dictionary.IdentifierDictionary;
+import com.example.advertisement.impression.ImpressionService;
+import com.example.advertisement.metric.MetricsMode;
+import com.example.advertisement.metric.StreamingMetricsAggregator;
+import com.example.advertisement.model.AdvertiserRevenue;
+import com.example.advertisement.model.Click;
+import com.example.advertisement.model.Impression;
+import com.example.advertisement.model.Metrics;
+import com.example.advertisement.model.Recommendation;
+import com.example.advertisement.recommendation.RecommendationService;
+import it.unimi.dsi.fastutil.objects.Object2DoubleOpenHashMap;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.nio.file.Path;
+
+/**
+ * Saves the stored impressions and clicks to a columnar snapshot file, and reads snapshots back,
+ * either into Mongo or straight into the metrics and recommendations computations.
+ * Snapshots always hold the original identifiers, so they can be restored regardless of
+ * the storage layout and dictionary settings.
+ */
+@Service
+@RequiredArgsConstructor
+public class SnapshotService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SnapshotService.class);
+    private static final int BATCH_SIZE = 10_000;
+
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final ImpressionService impressionService;
+    private final ClickService clickService;
+    private final RecommendationService recommendationService;
+    private final IdentifierDictionary identifierDictionary;
+
+    /**
+     * Writes all stored impressions and clicks to a snapshot file, replacing an existing file atomically.
+     *
+     * @param path The path of the snapshot file.
+     * @return A Mono of the size of the snapshot file in bytes.
+     */
+    public Mono<Long> save(Path path) {
+        return Mono.fromSupplier(SnapshotWriter::new)
+                .flatMap(writer -> identifierDictionary.decodeImpressions(mongoTemplate.findAll(Impression.class))
+                        .doOnNext(writer::add)
+                        .thenMany(mongoTemplate.findAll(Click.class))
+                        .doOnNext(writer::add)
+                        .then(Mono.fromCallable(() -> writer.write(path)).subscribeOn(Schedulers.boundedElastic())))
+                .doOnSuccess(size -> logger.info("Saved snapshot {} ({} bytes)", path, size));
+    }
+
+    /**
+     * Loads the impressions and then the clicks of a snapshot through the regular write path,
+     * so duplicates are skipped and metrics are maintained as during {@code load}.
+     *
+     * @param path The path of the snapshot file.
+     * @return A Mono of the number of inserted documents.
+     */
+    public Mono<Long> restore(Path path) {
+        return open(path)
+                .flatMap(reader -> impressionService.load(reader.impressions()).count()
+                        // Load clicks once all impressions are stored
+                        .flatMap(impressions -> clickService.load(reader.clicks()).count().map(clicks -> impressions + clicks)))
+                .doOnSuccess(count -> logger.info("Restored {} documents from snapshot {}", count, path));
+    }
+
+    /**
+     * Computes the metrics of a snapshot in memory, without Mongo.
+     *
+     * @param path The path of the snapshot file.
+     * @return A Flux of Metrics objects, one per (appId, countryCode).
+     */
+    public Flux<Metrics> metrics(Path path) {
+        return open(path)
+                .flatMap(reader -> reader.impressions().buffer(BATCH_SIZE)
+                        .reduceWith(() -> new StreamingMetricsAggregator(MetricsMode.STREAMING), (aggregator, batch) -> {
+                            aggregator.onImpressions(batch);
+                            return aggregator;
+                        })
+                        .flatMap(aggregator -> reader.clicks().buffer(BATCH_SIZE)
+                                .reduce(aggregator, (same, batch) -> {
+                                    same.onClicks(batch);
+                                    return same;
+                                })))
+                .flatMapIterable(StreamingMetricsAggregator::metrics);
+    }
+
+    /**
+     * Computes the recommendations of a snapshot in memory, without Mongo. Revenue is summed per
+     * (appId, countryCode, advertiserId) like the recommendations aggregation, including advertisers
+     * without revenue, and ranked by {@link com.example.advertisement.recommendation.TopKAdvertiserRanker}.
+     *
+     * @param path              The path of the snapshot file.
+     * @param numberAdvertisers The number of top recommended advertisers to return.
+     * @return A Flux of Recommendation objects with advertisers ordered by descending revenue.
+     */
+    public Flux<Recommendation> recommendations(Path path, int numberAdvertisers) {
+        Flux<AdvertiserRevenue> revenues = open(path)
+                .flatMap(reader -> reader.clicks()
+                        // Revenue of every clicked impression
+                        .reduceWith(Object2DoubleOpenHashMap<String>::new, (impressionRevenue, click) -> {
+                            impressionRevenue.addTo(click.getImpressionId(), click.getRevenue() == null ? 0 : click.getRevenue());
+                            return impressionRevenue;
+                        })
+                        // Revenue of every (appId, countryCode, advertiserId), clicked or not
+                        .flatMap(impressionRevenue -> reader.impressions()
+                                .reduceWith(Object2DoubleOpenHashMap<AdvertiserKey>::new, (advertiserRevenue, impression) -> {
+                                    advertiserRevenue.addTo(new AdvertiserKey(impression.getAppId(),
+                                                    impression.getCountryCode(), impression.getAdvertiserId()),
+                                            impressionRevenue.getDouble(impression.getId()));
+                                    return advertiserRevenue;
+                                })))
+                .flatMapIterable(advertiserRevenue -> advertiserRevenue.object2DoubleEntrySet().stream()
+                        .map(entry -> new AdvertiserRevenue(entry.getKey().appId(), entry.getKey().countryCode(),
+                                entry.getKey().advertiserId(), entry.getDoubleValue()))
+                        .toList());
+        return recommendationService.rank(revenues, numberAdvertisers);
+    }
+
+    /**
+     * Maps a snapshot file on a blocking-friendly thread.
+     *
+     * @param path The path of the snapshot file.
+     * @return A Mono of the reader.
+     */
+    private Mono<SnapshotReader> open(Path path) {
+        return Mono.fromCallable(() -> SnapshotReader.open(path))
+                .subscribeOn(Schedulers.boundedElastic())
+                .doOnNext(reader -> logger.info("Opened snapshot {} with {} impressions and {} clicks",
+                        path, reader.impressionCount(), reader.clickCount()));
+    }
+
+    private record AdvertiserKey(String appId, String countryCode, String advertiserId) {
+    }
+}
@@ -0,0 +1,294 @@
+package com.example.advertisement.snapshot;
+
+import com.example.advertisement.model.Click;
+import com.example.advertisement.model.Impression;
+import it.unimi.dsi.fastutil.bytes.ByteArrayList;
+import it.unimi.dsi.fastutil.doubles.DoubleArrayList;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.example.advertisement.snapshot.SnapshotFormat.*;
+
+/**
+ * Collects impressions and clicks into columns and writes them as a snapshot file through memory-mapped buffers.
+ * See {@link SnapshotFormat} for the layout. Columns are collected in memory, then each is written through
+ * mappings of at most {@link SnapshotFormat#CHUNK_SIZE} bytes. Instances are not thread-safe.
+ */
+class SnapshotWriter {
+
+    private final int chunkSize;
+    private final StringColumn impressionIds = new StringColumn();
+    private final DictionaryColumn appIds = new DictionaryColumn();
+    private final DictionaryColumn countryCodes = new DictionaryColumn();
+    private final DictionaryColumn advertiserIds = new DictionaryColumn();
+    private final StringColumn clickIds = new StringColumn();
+    private final StringColumn clickImpressionIds = new StringColumn();
+    private final DoubleArrayList revenues = new DoubleArrayList();
+
+    SnapshotWriter() {
+        this(CHUNK_SIZE);
+    }
+
+    /**
+     * @param chunkSize The maximum size of one mapping, at least the size of a long.
+     */
+    SnapshotWriter(int chunkSize) {
+        if (chunkSize < Long.BYTES) {
+            throw new IllegalArgumentException("Chunk size must be at least " + Long.BYTES + " bytes: " + chunkSize);
+        }
+        this.chunkSize = chunkSize;
+    }
+
+    void add(Impression impression) {
+        impressionIds.add(impression.getId());
+        appIds.add(impression.getAppId());
+        countryCodes.add(impression.getCountryCode());
+        advertiserIds.add(impression.getAdvertiserId());
+    }
+
+    void add(Click click) {
+        clickIds.add(click.getId());
+        clickImpressionIds.add(click.getImpressionId());
+        revenues.add(click.getRevenue() == null ? Double.NaN : click.getRevenue());
+    }
+
+    /**
+     * Writes the collected columns to a temporary file next to the given path and moves it into place,
+     * so a reader never sees a partially written snapshot. The temporary file is deleted if writing fails.
+     *
+     * @param path The path of the snapshot file.
+     * @return The size of the snapshot file in bytes.
+     * @throws IOException If the file cannot be written.
+     */
+    long write(Path path) throws IOException {
+        List<Column> columns = List.of(impressionIds, appIds, countryCodes, advertiserIds,
+                clickIds, clickImpressionIds, new RevenueColumn(revenues));
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+
+        try {
+            long size;
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+                header.putInt(MAGIC)
+                        .putInt(VERSION)
+                        .putLong(impressionIds.size())
+                        .putLong(clickIds.size())
+                        .putInt(COLUMNS);
+
+                long offset = HEADER_SIZE;
+                for (Column column : columns) {
+                    long length = column.byteSize();
+                    header.putLong(offset).putLong(length);
+
+                    ColumnOutput output = new ColumnOutput(channel, offset, length, chunkSize);
+                    column.write(output);
+                    output.force();
+                    offset += length;
+                }
+                header.force();
+                size = offset;
+            }
+
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return size;
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+    }
+
+    private interface Column {
+        long byteSize();
+
+        void write(ColumnOutput output) throws IOException;
+    }
+
+    /**
+     * Writes a column through consecutive mappings of at most chunkSize bytes. The next mapping starts where
+     * the current one is full, or where it cannot hold the next number, so numbers never span two mappings.
+     */
+    private static class ColumnOutput {
+        private final FileChannel channel;
+        private final long end;
+        private final int chunkSize;
+        private long windowStart;
+        private MappedByteBuffer window;
+
+        ColumnOutput(FileChannel channel, long offset, long length, int chunkSize) {
+            this.channel = channel;
+            this.end = offset + length;
+            this.chunkSize = chunkSize;
+            this.windowStart = offset;
+        }
+
+        void putInt(int value) throws IOException {
+            window(Integer.BYTES).putInt(value);
+        }
+
+        void put(byte[] bytes, int offset, int length) throws IOException {
+            while (length > 0) {
+                MappedByteBuffer buffer = window(1);
+                int count = Math.min(length, buffer.remaining());
+                buffer.put(bytes, offset, count);
+                offset += count;
+                length -= count;
+            }
+        }
+
+        void putInts(int[] values, int offset, int length) throws IOException {
+            while (length > 0) {
+                MappedByteBuffer buffer = window(Integer.BYTES);
+                int count = Math.min(length, buffer.remaining() / Integer.BYTES);
+                buffer.asIntBuffer().put(values, offset, count);
+                buffer.position(buffer.position() + count * Integer.BYTES);
+                offset += count;
+                length -= count;
+            }
+        }
+
+        void putDoubles(double[] values, int offset, int length) throws IOException {
+            while (length > 0) {
+                MappedByteBuffer buffer = window(Double.BYTES);
+                int count = Math.min(length, buffer.remaining() / Double.BYTES);
+                buffer.asDoubleBuffer().put(values, offset, count);
+                buffer.position(buffer.position() + count * Double.BYTES);
+                offset += count;
+                length -= count;
+            }
+        }
+
+        void force() {
+            if (window != null) {
+                window.force();
+            }
+        }
+
+        /**
+         * @param bytes The number of bytes about to be written.
+         * @return The current mapping, or the next one if the current one has less than the given bytes left.
+         */
+        private MappedByteBuffer window(int bytes) throws IOException {
+            if (window == null || window.remaining() < bytes) {
+                force();
+                if (window != null) {
+                    windowStart += window.position();
+                }
+                window = channel.map(FileChannel.MapMode.READ_WRITE, windowStart, Math.min(chunkSize, end - windowStart));
+            }
+            return window;
+        }
+    }
+
+    /**
+     * A column of arbitrary strings, such as ids. The bytes are kept in blocks, so they are not limited to
+     * the size of one array.
+     */
+    private static class StringColumn implements Column {
+        private static final int BLOCK_SIZE = 1 << 26;
+
+        private final IntArrayList lengths = new IntArrayList();
+        private final List<ByteArrayList> blocks = new ArrayList<>();
+        private long byteCount;
+
+        void add(String value) {
+            if (value == null) {
+                lengths.add(NULL);
+                return;
+            }
+            byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+            lengths.add(utf8.length);
+            if (blocks.isEmpty() || blocks.get(blocks.size() - 1).size() > BLOCK_SIZE - utf8.length) {
+                blocks.add(new ByteArrayList());
+            }
+            ByteArrayList block = blocks.get(blocks.size() - 1);
+            block.addElements(block.size(), utf8);
+            byteCount += utf8.length;
+        }
+
+        int size() {
+            return lengths.size();
+        }
+
+        @Override
+        public long byteSize() {
+            return 4L * lengths.size() + byteCount;
+        }
+
+        @Override
+        public void write(ColumnOutput output) throws IOException {
+            output.putInts(lengths.elements(), 0, lengths.size());
+            for (ByteArrayList block : blocks) {
+                output.put(block.elements(), 0, block.size());
+            }
+        }
+    }
+
+    /**
+     * A column of low-cardinality strings, stored once in a dictionary and referenced by code.
+     */
+    private static class DictionaryColumn implements Column {
+        private final Object2IntOpenHashMap<String> codes = new Object2IntOpenHashMap<>();
+        private final List<byte[]> entries = new ArrayList<>();
+        private final IntArrayList rows = new IntArrayList();
+        private long entryBytes;
+
+        DictionaryColumn() {
+            codes.defaultReturnValue(NULL);
+        }
+
+        void add(String value) {
+            if (value == null) {
+                rows.add(NULL);
+                return;
+            }
+            int code = codes.getInt(value);
+            if (code == NULL) {
+                code = entries.size();
+                byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+                codes.put(value, code);
+                entries.add(utf8);
+                entryBytes += 4 + utf8.length;
+            }
+            rows.add(code);
+        }
+
+        @Override
+        public long byteSize() {
+            return 4 + entryBytes + 4L * rows.size();
+        }
+
+        @Override
+        public void write(ColumnOutput output) throws IOException {
+            output.putInt(entries.size());
+            for (byte[] entry : entries) {
+                output.putInt(entry.length);
+                output.put(entry, 0, entry.length);
+            }
+            output.putInts(rows.elements(), 0, rows.size());
+        }
+    }
+
+    private record RevenueColumn(DoubleArrayList revenues) implements Column {
+        @Override
+        public long byteSize() {
+            return 8L * revenues.size();
+        }
+
+        @Override
+        public void write(ColumnOutput output) throws IOException {
+            output.putDoubles(revenues.elements(), 0, revenues.size());
+        }
+    }
+}
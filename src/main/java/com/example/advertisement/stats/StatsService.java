@@ -0,0 +1,79 @@
+package com.example.advertisement.stats;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Formats the application meters (those named {@code advertisement.*}) for the {@code stats} command.
+ * The same meters are exported over JMX under the {@code advertisement} domain.
+ */
+@Service
+@RequiredArgsConstructor
+public class StatsService {
+    private static final String PREFIX = "advertisement.";
+
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * @return One line per application meter, ordered by name and tags.
+     */
+    public List<String> stats() {
+        return meterRegistry.getMeters().stream()
+                .filter(meter -> meter.getId().getName().startsWith(PREFIX))
+                .sorted(Comparator.comparing((Meter meter) -> meter.getId().getName()).thenComparing(StatsService::tags))
+                .map(this::format)
+                .toList();
+    }
+
+    private String format(Meter meter) {
+        String name = meter.getId().getName() + tags(meter);
+        if (meter instanceof Timer timer) {
+            StringBuilder line = new StringBuilder(String.format("%s: count %d, total %.2f s, mean %.1f ms, max %.1f ms",
+                    name, timer.count(), timer.totalTime(TimeUnit.SECONDS),
+                    timer.mean(TimeUnit.MILLISECONDS), timer.max(TimeUnit.MILLISECONDS)));
+            for (ValueAtPercentile percentile : timer.takeSnapshot().percentileValues()) {
+                line.append(String.format(", p%.0f %.1f ms", percentile.percentile() * 100, percentile.value(TimeUnit.MILLISECONDS)));
+            }
+            return line.toString();
+        }
+        if (meter instanceof DistributionSummary summary) {
+            StringBuilder line = new StringBuilder(String.format("%s: count %d, mean %.0f, max %.0f",
+                    name, summary.count(), summary.mean(), summary.max()));
+            for (ValueAtPercentile percentile : summary.takeSnapshot().percentileValues()) {
+                line.append(String.format(", p%.0f %.0f", percentile.percentile() * 100, percentile.value()));
+            }
+            return line.toString();
+        }
+        if (meter instanceof Counter counter) {
+            String line = String.format("%s: %.0f", name, counter.count());
+            if (meter.getId().getName().equals("advertisement.reader.records")) {
+                // Parse throughput of the type, per file being read
+                Timer parse = meterRegistry.find("advertisement.reader.parse").tags(meter.getId().getTags()).timer();
+                if (parse != null && parse.totalTime(TimeUnit.SECONDS) > 0) {
+                    line += String.format(" (%.0f records/s per file)", counter.count() / parse.totalTime(TimeUnit.SECONDS));
+                }
+            }
+            return line;
+        }
+        return name + ": " + meter.measure();
+    }
+
+    private static String tags(Meter meter) {
+        List<Tag> tags = meter.getId().getTags();
+        return tags.isEmpty() ? "" : tags.stream()
+                .map(tag -> tag.getKey() + "=" + tag.getValue())
+                .collect(Collectors.joining(",", "{", "}"));
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.advertisement.storage;
+
+import com.example.advertisement.model.Click;
+import org.bson.Document;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.data.convert.ReadingConverter;
+
+/**
+ * Reads clicks stored in either the standard or the compact layout.
+ */
+@ReadingConverter
+public class ClickReadConverter implements Converter<Document, Click> {
+
+    @Override
+    public Click convert(Document document) {
+        Object revenue = document.get("revenue");
+        return new Click(
+                CompactFields.fromStored(document.get("_id")),
+                CompactFields.fromStored(ImpressionReadConverter.field(document, "impressionId", CompactFields.IMPRESSION_ID)),
+                revenue != null
+                        ? Double.valueOf(((Number) revenue).doubleValue())
+                        : CompactFields.fromMicros((Number) document.get(CompactFields.REVENUE_MICROS)));
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.advertisement.storage;
+
+import com.example.advertisement.model.Click;
+import org.bson.Document;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.data.convert.WritingConverter;
+
+/**
+ * Writes clicks in the compact layout, with the revenue as integer micros.
+ */
+@WritingConverter
+public class CompactClickWriteConverter implements Converter<Click, Document> {
+
+    @Override
+    public Document convert(Click click) {
+        Document document = new Document("_id", CompactFields.toStored(click.getId()));
+        CompactImpressionWriteConverter.append(document, CompactFields.IMPRESSION_ID, CompactFields.toStored(click.getImpressionId()));
+        CompactImpressionWriteConverter.append(document, CompactFields.REVENUE_MICROS, CompactFields.toMicros(click.getRevenue()));
+        return document;
+    }
+}
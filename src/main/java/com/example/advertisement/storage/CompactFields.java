@@ -0,0 +1,63 @@
+package com.example.advertisement.storage;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.regex.Pattern;
+
+/**
+ * Field names and value conversions of the compact storage layout.
+ */
+public final class CompactFields {
+    public static final String APP_ID = "a";
+    public static final String COUNTRY_CODE = "c";
+    public static final String ADVERTISER_ID = "v";
+    public static final String IMPRESSION_ID = "i";
+    public static final String REVENUE_MICROS = "r";
+
+    public static final long MICROS_PER_UNIT = 1_000_000L;
+
+    // Decimal numbers without leading zeros, short enough to fit a long, so they convert back to the same string
+    private static final Pattern CANONICAL_NUMBER = Pattern.compile("0|-?[1-9][0-9]{0,17}");
+
+    private CompactFields() {
+    }
+
+    /**
+     * @param value An id or identifier.
+     * @return The value as an Integer or Long if it is a canonical decimal number, otherwise the value unchanged.
+     */
+    public static Object toStored(String value) {
+        if (value == null || !CANONICAL_NUMBER.matcher(value).matches()) {
+            return value;
+        }
+        long number = Long.parseLong(value);
+        return number == (int) number ? (Object) (int) number : (Object) number;
+    }
+
+    /**
+     * @param value A stored id or identifier in either layout.
+     * @return The value as a string.
+     */
+    public static String fromStored(Object value) {
+        return value == null ? null : value.toString();
+    }
+
+    /**
+     * @param revenue A revenue.
+     * @return The revenue in micros, rounded to the nearest micro.
+     */
+    public static Long toMicros(Double revenue) {
+        return revenue == null ? null : BigDecimal.valueOf(revenue)
+                .movePointRight(6)
+                .setScale(0, RoundingMode.HALF_UP)
+                .longValueExact();
+    }
+
+    /**
+     * @param micros A revenue in micros.
+     * @return The revenue.
+     */
+    public static Double fromMicros(Number micros) {
+        return micros == null ? null : micros.longValue() / (double) MICROS_PER_UNIT;
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.advertisement.storage;
+
+import com.example.advertisement.model.Impression;
+import org.bson.Document;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.data.convert.WritingConverter;
+
+/**
+ * Writes impressions in the compact layout. Dictionary codes are numeric, so they are stored as ints as well.
+ */
+@WritingConverter
+public class CompactImpressionWriteConverter implements Converter<Impression, Document> {
+
+    @Override
+    public Document convert(Impression impression) {
+        Document document = new Document("_id", CompactFields.toStored(impression.getId()));
+        append(document, CompactFields.APP_ID, CompactFields.toStored(impression.getAppId()));
+        append(document, CompactFields.COUNTRY_CODE, CompactFields.toStored(impression.getCountryCode()));
+        append(document, CompactFields.ADVERTISER_ID, CompactFields.toStored(impression.getAdvertiserId()));
+        return document;
+    }
+
+    static void append(Document document, String field, Object value) {
+        // Like the default mapping, null values are left out
+        if (value != null) {
+            document.append(field, value);
+        }
+    }
+}
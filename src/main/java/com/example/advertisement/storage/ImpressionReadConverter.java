@@ -0,0 +1,27 @@
+package com.example.advertisement.storage;
+
+import com.example.advertisement.model.Impression;
+import org.bson.Document;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.data.convert.ReadingConverter;
+
+/**
+ * Reads impressions stored in either the standard or the compact layout.
+ */
+@ReadingConverter
+public class ImpressionReadConverter implements Converter<Document, Impression> {
+
+    @Override
+    public Impression convert(Document document) {
+        return new Impression(
+                CompactFields.fromStored(document.get("_id")),
+                CompactFields.fromStored(field(document, "appId", CompactFields.APP_ID)),
+                CompactFields.fromStored(field(document, "countryCode", CompactFields.COUNTRY_CODE)),
+                CompactFields.fromStored(field(document, "advertiserId", CompactFields.ADVERTISER_ID)));
+    }
+
+    static Object field(Document document, String standardName, String compactName) {
+        Object value = document.get(standardName);
+        return value != null ? value : document.get(compactName);
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.advertisement.storage;
+
+import com.example.advertisement.dictionary.EncodedImpressionWriteConverter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Configuration
+public class StorageConfiguration {
+
+    /**
+     * Registers the converters of the configured storage layout and of dictionary encoding.
+     * Without either, no converter is registered and documents are mapped by default.
+     *
+     * @param layout            The storage layout of impressions and clicks.
+     * @param dictionaryEnabled Whether impression identifiers are dictionary-encoded.
+     * @return The custom conversions replacing the default ones of Spring Boot.
+     */
+    @Bean
+    public MongoCustomConversions mongoCustomConversions(
+            @Value("${advertisement.storage.layout:standard}") StorageLayout layout,
+            @Value("${advertisement.dictionary.enabled:false}") boolean dictionaryEnabled) {
+        List<Object> converters = new ArrayList<>();
+        if (layout == StorageLayout.COMPACT) {
+            // Codes are numeric, so the compact writer stores them as ints without a dictionary converter
+            converters.add(new CompactImpressionWriteConverter());
+            converters.add(new CompactClickWriteConverter());
+            // Documents written before switching to the compact layout remain readable
+            converters.add(new ImpressionReadConverter());
+            converters.add(new ClickReadConverter());
+        } else if (dictionaryEnabled) {
+            converters.add(new EncodedImpressionWriteConverter());
+        }
+        return new MongoCustomConversions(converters);
+    }
+}
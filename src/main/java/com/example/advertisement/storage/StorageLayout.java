@@ -0,0 +1,16 @@
+package com.example.advertisement.storage;
+
+/**
+ * How impression and click documents are persisted, set with {@code advertisement.storage.layout}.
+ */
+public enum StorageLayout {
+    /**
+     * Full-length field names and string ids, as mapped by default.
+     */
+    STANDARD,
+
+    /**
+     * Single-letter field names, numeric ids where the id is a number, and revenue as integer micros.
+     */
+    COMPACT
+}
@@ -0,0 +1,61 @@
+package com.example.advertisement.storage;
+
+import com.example.advertisement.model.Click;
+import lombok.RequiredArgsConstructor;
+import org.bson.Document;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * Rejects loads into a collection that holds documents of the other storage layout.
+ * Pipelines read fields from either layout, but the click join and the {@code _id} matching follow the configured
+ * layout only, so clicks and impressions written in different layouts would silently stop joining.
+ * <p>
+ * Any stored document holding a field of the other layout rejects the load, wherever it sits in the collection.
+ */
+@Component
+@RequiredArgsConstructor
+public class StorageLayoutVerifier {
+
+    private static final List<String> STANDARD_IMPRESSION_FIELDS = List.of("appId", "countryCode", "advertiserId");
+    private static final List<String> COMPACT_IMPRESSION_FIELDS =
+            List.of(CompactFields.APP_ID, CompactFields.COUNTRY_CODE, CompactFields.ADVERTISER_ID);
+    private static final List<String> STANDARD_CLICK_FIELDS = List.of("impressionId", "revenue");
+    private static final List<String> COMPACT_CLICK_FIELDS = List.of(CompactFields.IMPRESSION_ID, CompactFields.REVENUE_MICROS);
+
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final StorageSchema storageSchema;
+
+    /**
+     * Checks that a collection is empty or was written in the configured layout.
+     *
+     * @param clazz The class type mapped to the collection, Impression or Click.
+     * @return A Mono that completes if the collection can be loaded, or errors with an IllegalStateException.
+     */
+    public Mono<Void> verify(Class<?> clazz) {
+        String collection = mongoTemplate.getCollectionName(clazz);
+        boolean clicks = clazz == Click.class;
+        // Fields of the layout that is not configured
+        List<String> otherFields = storageSchema.isCompact()
+                ? (clicks ? STANDARD_CLICK_FIELDS : STANDARD_IMPRESSION_FIELDS)
+                : (clicks ? COMPACT_CLICK_FIELDS : COMPACT_IMPRESSION_FIELDS);
+
+        Query query = new Query(new Criteria().orOperator(otherFields.stream()
+                .map(field -> Criteria.where(field).exists(true))
+                .toArray(Criteria[]::new)));
+        query.fields().include("_id");
+
+        // findOne limits the query to a single document, the scan stops at the first match
+        return mongoTemplate.findOne(query, Document.class, collection)
+                .flatMap(document -> Mono.<Void>error(new IllegalStateException(String.format(
+                        "Collection %s holds documents of another storage layout than %s; " +
+                                "load it with the layout it was written in, or drop it before switching layouts",
+                        collection, storageSchema.isCompact() ? StorageLayout.COMPACT : StorageLayout.STANDARD))))
+                .then();
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.advertisement.storage;
+
+import com.example.advertisement.model.Click;
+import com.example.advertisement.model.Impression;
+import com.example.advertisement.model.StorageReport;
+import lombok.RequiredArgsConstructor;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.DocumentCodec;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.function.Function;
+
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.*;
+
+@Service
+@RequiredArgsConstructor
+public class StorageReportService {
+
+    private static final DocumentCodec DOCUMENT_CODEC = new DocumentCodec();
+
+    private final ReactiveMongoTemplate mongoTemplate;
+
+    /**
+     * Measures the BSON size of a random sample of impression and click documents as they are stored,
+     * and as they would be stored in the standard and in the compact layout.
+     *
+     * @param sampleSize The number of documents to sample per collection.
+     * @return A Flux of one StorageReport per collection.
+     */
+    public Flux<StorageReport> report(int sampleSize) {
+        return Flux.concat(
+                report(Impression.class, new ImpressionReadConverter(), this::standardImpression,
+                        new CompactImpressionWriteConverter(), sampleSize),
+                report(Click.class, new ClickReadConverter(), this::standardClick,
+                        new CompactClickWriteConverter(), sampleSize)
+        );
+    }
+
+    /**
+     * Builds the report of one collection.
+     *
+     * @param clazz      The class type mapped to the collection.
+     * @param reader     Reads a document of either layout.
+     * @param standard   Writes an object in the standard layout.
+     * @param compact    Writes an object in the compact layout.
+     * @param sampleSize The number of documents to sample.
+     * @param <T>        The type of the documents.
+     * @return A Mono of the report.
+     */
+    private <T> Mono<StorageReport> report(Class<T> clazz, Converter<Document, T> reader, Function<T, Document> standard,
+                                           Converter<T, Document> compact, int sampleSize) {
+        String collection = mongoTemplate.getCollectionName(clazz);
+
+        // Sums of the stored, standard and compact sizes, and the number of sampled documents
+        Mono<long[]> sizes = mongoTemplate.aggregate(newAggregation(sample(sampleSize)), collection, Document.class)
+                .reduceWith(() -> new long[4], (totals, document) -> {
+                    T object = reader.convert(document);
+                    totals[0] += bsonSize(document);
+                    totals[1] += bsonSize(standard.apply(object));
+                    totals[2] += bsonSize(compact.convert(object));
+                    totals[3]++;
+                    return totals;
+                });
+
+        return Mono.zip(mongoTemplate.estimatedCount(collection), sizes)
+                .map(tuple -> {
+                    long[] totals = tuple.getT2();
+                    long sampled = Math.max(totals[3], 1);
+                    return new StorageReport(collection, tuple.getT1(), totals[3],
+                            (double) totals[0] / sampled, (double) totals[1] / sampled, (double) totals[2] / sampled);
+                });
+    }
+
+    /**
+     * Writes an impression the way the default mapping does, including the type hint.
+     *
+     * @param impression The impression to write.
+     * @return The document in the standard layout.
+     */
+    private Document standardImpression(Impression impression) {
+        Document document = new Document("_id", impression.getId());
+        CompactImpressionWriteConverter.append(document, "appId", impression.getAppId());
+        CompactImpressionWriteConverter.append(document, "countryCode", impression.getCountryCode());
+        CompactImpressionWriteConverter.append(document, "advertiserId", impression.getAdvertiserId());
+        return document.append("_class", Impression.class.getName());
+    }
+
+    /**
+     * Writes a click the way the default mapping does, including the type hint.
+     *
+     * @param click The click to write.
+     * @return The document in the standard layout.
+     */
+    private Document standardClick(Click click) {
+        Document document = new Document("_id", click.getId());
+        CompactImpressionWriteConverter.append(document, "impressionId", click.getImpressionId());
+        CompactImpressionWriteConverter.append(document, "revenue", click.getRevenue());
+        return document.append("_class", Click.class.getName());
+    }
+
+    private int bsonSize(Document document) {
+        return new RawBsonDocument(document, DOCUMENT_CODEC).getByteBuffer().remaining();
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.advertisement.storage;
+
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.aggregation.AggregationExpression;
+import org.springframework.data.mongodb.core.aggregation.ConditionalOperators;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Field names and expressions for aggregation pipelines and indexes over impressions and clicks.
+ * Expressions read a field from either layout, so the same pipelines work on collections written in the standard
+ * or the compact layout. Join and index keys and {@code _id} matching follow the configured layout only, so a
+ * collection mixing both layouts does not join correctly; loads into one are rejected by {@link StorageLayoutVerifier}.
+ */
+@Component
+public class StorageSchema {
+
+    private static final Map<String, String> COMPACT_NAMES = Map.of(
+            "appId", CompactFields.APP_ID,
+            "countryCode", CompactFields.COUNTRY_CODE,
+            "advertiserId", CompactFields.ADVERTISER_ID,
+            "impressionId", CompactFields.IMPRESSION_ID);
+
+    @Value("${advertisement.storage.layout:standard}")
+    private StorageLayout layout;
+
+    /**
+     * @return True if impressions and clicks are written in the compact layout.
+     */
+    public boolean isCompact() {
+        return layout == StorageLayout.COMPACT;
+    }
+
+    /**
+     * @param field The standard name of an impression or click field.
+     * @return The name of the field in the configured layout.
+     */
+    public String fieldName(String field) {
+        return isCompact() ? COMPACT_NAMES.getOrDefault(field, field) : field;
+    }
+
+    /**
+     * @param id A document id.
+     * @return The id as stored in the configured layout, for matching on {@code _id}.
+     */
+    public Object storedId(String id) {
+        return isCompact() ? CompactFields.toStored(id) : id;
+    }
+
+    /**
+     * @param ids Document ids.
+     * @return The ids as stored in the configured layout.
+     */
+    public List<Object> storedIds(List<String> ids) {
+        return ids.stream().map(this::storedId).toList();
+    }
+
+    /**
+     * @param field The standard name of an impression field.
+     * @return An expression reading the field from either layout.
+     */
+    public AggregationExpression impressionField(String field) {
+        return ConditionalOperators.ifNull(field).thenValueOf(COMPACT_NAMES.get(field));
+    }
+
+    /**
+     * @param prefix The path of an embedded impression, such as a lookup result.
+     * @param field  The standard name of an impression field.
+     * @return An expression reading the field of the embedded impression from either layout.
+     */
+    public Document impressionField(String prefix, String field) {
+        return new Document("$ifNull", List.of("$" + prefix + "." + field, "$" + prefix + "." + COMPACT_NAMES.get(field)));
+    }
+
+    /**
+     * @return An expression reading the impression ID of a click from either layout.
+     */
+    public Document clickImpressionId() {
+        return new Document("$ifNull", List.of("$impressionId", "$" + CompactFields.IMPRESSION_ID));
+    }
+
+    /**
+     * @return An expression reading the revenue of a click from either layout, converting micros back to units.
+     */
+    public Document clickRevenue() {
+        return new Document("$ifNull", List.of("$revenue",
+                new Document("$divide", List.of("$" + CompactFields.REVENUE_MICROS, CompactFields.MICROS_PER_UNIT))));
+    }
+}
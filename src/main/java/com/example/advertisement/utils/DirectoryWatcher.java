@@ -0,0 +1,240 @@
+package com.example.advertisement.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+/**
+ * Watches the root directory of a path pattern, as computed by {@link ReactiveJsonReader#getRootPath(String)},
+ * and its subdirectories with a {@link WatchService}, and emits the files that match the pattern once they are complete.
+ * A file is complete once its size and modification time have not changed for {@code advertisement.watch.settle-time}:
+ * files moved into place atomically are emitted one settle time after they appear, and files written in place
+ * are emitted once their producer pauses for longer than the settle time. A file that changes after it was
+ * emitted is emitted again.
+ */
+@Component
+public class DirectoryWatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(DirectoryWatcher.class);
+
+    @Value("${advertisement.watch.poll-interval:250ms}")
+    private Duration pollInterval;
+
+    @Value("${advertisement.watch.settle-time:1s}")
+    private Duration settleTime;
+
+    /**
+     * Watches for complete files that match a path pattern. Watching starts on subscription, runs on its own
+     * thread, and stops when the subscription is cancelled.
+     *
+     * @param pathPattern The path pattern to match files, e.g., "/x/y/*.json".
+     * @param existing    True to also emit the files that match the pattern when watching starts.
+     * @return An endless Flux of the complete files, in the order they complete.
+     */
+    public Flux<WatchedFile> watch(String pathPattern, boolean existing) {
+        Path rootPath = ReactiveJsonReader.getRootPath(pathPattern);
+        PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + pathPattern);
+        return Flux.create(sink -> {
+            // Cancelling interrupts the thread blocked polling the watch service
+            Disposable task = Schedulers.boundedElastic().schedule(() -> run(rootPath, matcher, existing, sink));
+            sink.onDispose(task);
+        });
+    }
+
+    private void run(Path rootPath, PathMatcher matcher, boolean existing, FluxSink<WatchedFile> sink) {
+        logger.info("Watching {} for files matching {}", rootPath, matcher);
+        try (Watch watch = new Watch(rootPath, matcher, existing)) {
+            while (!sink.isCancelled()) {
+                watch.poll().forEach(sink::next);
+            }
+        } catch (InterruptedException e) {
+            // Cancelled
+            Thread.currentThread().interrupt();
+        } catch (IOException | RuntimeException e) {
+            logger.error("Error watching {}", rootPath, e);
+            sink.error(e);
+        }
+        logger.info("Stopped watching {}", rootPath);
+    }
+
+    /**
+     * The state of one watch: the registered directories, the files changed recently that have not settled yet,
+     * and the files already emitted. Only used by the watch thread.
+     */
+    private final class Watch implements Closeable {
+        private final Path rootPath;
+        private final PathMatcher matcher;
+        private final WatchService watchService;
+        // Files changed recently, until their size and modification time settle
+        private final Map<Path, PendingFile> pending = new LinkedHashMap<>();
+        // The state of the files when they were emitted, to ignore events that leave them unchanged
+        private final Map<Path, FileState> emitted = new HashMap<>();
+
+        private Watch(Path rootPath, PathMatcher matcher, boolean existing) throws IOException {
+            if (!Files.isDirectory(rootPath)) {
+                throw new NoSuchFileException(rootPath.toString(), null, "Watched directory does not exist");
+            }
+            this.rootPath = rootPath;
+            this.matcher = matcher;
+            this.watchService = rootPath.getFileSystem().newWatchService();
+            try {
+                scan(rootPath, existing);
+            } catch (IOException | RuntimeException e) {
+                watchService.close();
+                throw e;
+            }
+        }
+
+        /**
+         * Waits up to the poll interval for changes, then returns the files that have settled.
+         */
+        private List<WatchedFile> poll() throws IOException, InterruptedException {
+            WatchKey key = watchService.poll(pollInterval.toNanos(), TimeUnit.NANOSECONDS);
+            while (key != null) {
+                Path directory = (Path) key.watchable();
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == OVERFLOW) {
+                        // Events were lost, so look for changed files in the whole tree
+                        logger.warn("Watch events lost in {}, rescanning {}", directory, rootPath);
+                        scan(rootPath, true);
+                        continue;
+                    }
+
+                    Path path = directory.resolve((Path) event.context());
+                    if (event.kind() == ENTRY_DELETE) {
+                        pending.remove(path);
+                        emitted.remove(path);
+                    } else if (Files.isDirectory(path)) {
+                        if (event.kind() == ENTRY_CREATE) {
+                            // Files may have been created in the new directory before it was registered
+                            scan(path, true);
+                        }
+                    } else if (matcher.matches(path)) {
+                        pending.computeIfAbsent(path, file -> new PendingFile(System.nanoTime()));
+                    }
+                }
+                key.reset();
+                key = watchService.poll();
+            }
+            return settled();
+        }
+
+        /**
+         * Registers a directory and its subdirectories, and marks their matching files as pending, or as emitted.
+         */
+        private void scan(Path directory, boolean pendingFiles) throws IOException {
+            try (Stream<Path> paths = Files.walk(directory)) {
+                for (Iterator<Path> iterator = paths.iterator(); iterator.hasNext(); ) {
+                    Path path = iterator.next();
+                    if (Files.isDirectory(path)) {
+                        path.register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+                    } else if (Files.isRegularFile(path) && matcher.matches(path)) {
+                        if (pendingFiles) {
+                            pending.computeIfAbsent(path, file -> new PendingFile(System.nanoTime()));
+                        } else {
+                            FileState state = FileState.of(path);
+                            if (state != null) {
+                                emitted.put(path, state);
+                            }
+                        }
+                    }
+                }
+            } catch (NoSuchFileException | UncheckedIOException e) {
+                // A directory or file was removed while the tree was walked, the next event or rescan picks up the rest
+                logger.debug("Tree changed while scanning {}", directory, e);
+            }
+        }
+
+        /**
+         * Removes and returns the pending files whose state has not changed for the settle time.
+         */
+        private List<WatchedFile> settled() throws IOException {
+            long now = System.nanoTime();
+            List<WatchedFile> files = new ArrayList<>();
+            for (Iterator<Map.Entry<Path, PendingFile>> iterator = pending.entrySet().iterator(); iterator.hasNext(); ) {
+                Map.Entry<Path, PendingFile> entry = iterator.next();
+                PendingFile file = entry.getValue();
+                FileState state = FileState.of(entry.getKey());
+                if (state == null) {
+                    // Deleted or moved away before it settled
+                    iterator.remove();
+                } else if (!state.equals(file.state)) {
+                    file.state = state;
+                    file.changedNanos = now;
+                } else if (now - file.changedNanos >= settleTime.toNanos()) {
+                    iterator.remove();
+                    if (!state.equals(emitted.put(entry.getKey(), state))) {
+                        files.add(new WatchedFile(entry.getKey(), file.detectedNanos));
+                    }
+                }
+            }
+            return files;
+        }
+
+        @Override
+        public void close() throws IOException {
+            watchService.close();
+        }
+    }
+
+    /**
+     * A changed file, with the time of its first change and its last observed state.
+     */
+    private static final class PendingFile {
+        private final long detectedNanos;
+        private FileState state;
+        private long changedNanos;
+
+        private PendingFile(long detectedNanos) {
+            this.detectedNanos = detectedNanos;
+            this.changedNanos = detectedNanos;
+        }
+    }
+
+    private record FileState(long size, long lastModified) {
+
+        /**
+         * @return The current state of a file, or null if it no longer exists.
+         */
+        private static FileState of(Path file) throws IOException {
+            try {
+                BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                return new FileState(attributes.size(), attributes.lastModifiedTime().toMillis());
+            } catch (NoSuchFileException e) {
+                return null;
+            }
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.advertisement.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Compression formats of input files, detected by file extension or magic bytes.
+ */
+enum InputCompression {
+    NONE,
+    GZIP,
+    DEFLATE;
+
+    /**
+     * Number of leading bytes needed by {@link #detect(Path, byte[], int)}.
+     */
+    static final int HEADER_LENGTH = 2;
+
+    /**
+     * Detects the compression of a file from its extension, falling back to its leading bytes.
+     *
+     * @param file   The file to inspect.
+     * @param header The leading bytes of the file.
+     * @param length The number of valid bytes in the header.
+     * @return The detected compression.
+     */
+    static InputCompression detect(Path file, byte[] header, int length) {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        if (name.endsWith(".gz") || name.endsWith(".gzip")) {
+            return GZIP;
+        }
+        if (name.endsWith(".deflate") || name.endsWith(".zz") || name.endsWith(".zlib")) {
+            return DEFLATE;
+        }
+
+        if (length >= 2 && isGzipHeader(header)) {
+            return GZIP;
+        }
+        if (length >= 2 && isZlibHeader(header)) {
+            return DEFLATE;
+        }
+        return NONE;
+    }
+
+    /**
+     * Wraps the given stream so that it is decompressed while it is read.
+     *
+     * @param input      The compressed stream, which must support mark and reset.
+     * @param bufferSize The size of the decompression buffer.
+     * @return The decompressed stream.
+     * @throws IOException If the compressed stream header cannot be read.
+     */
+    InputStream decompress(InputStream input, int bufferSize) throws IOException {
+        return switch (this) {
+            case NONE -> input;
+            case GZIP -> new GZIPInputStream(input, bufferSize);
+            case DEFLATE -> {
+                // .deflate files may hold either zlib-wrapped or raw deflate data
+                input.mark(HEADER_LENGTH);
+                byte[] header = input.readNBytes(HEADER_LENGTH);
+                input.reset();
+                Inflater inflater = new Inflater(!(header.length == HEADER_LENGTH && isZlibHeader(header)));
+                yield new InflaterInputStream(input, inflater, bufferSize) {
+                    @Override
+                    public void close() throws IOException {
+                        // A supplied Inflater is not released by InflaterInputStream itself
+                        try {
+                            super.close();
+                        } finally {
+                            inflater.end();
+                        }
+                    }
+                };
+            }
+        };
+    }
+
+    private static boolean isGzipHeader(byte[] header) {
+        return (header[0] & 0xff) == 0x1f && (header[1] & 0xff) == 0x8b;
+    }
+
+    private static boolean isZlibHeader(byte[] header) {
+        int cmf = header[0] & 0xff;
+        int flg = header[1] & 0xff;
+        return (cmf & 0x0f) == 8 && ((cmf << 8) | flg) % 31 == 0;
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.advertisement.utils;
+
+/**
+ * Layouts of JSON output files, set with {@code advertisement.output.format}.
+ */
+public enum JsonOutputFormat {
+    /**
+     * One JSON array with one item per line.
+     */
+    ARRAY("[\n", ",\n", "\n]"),
+
+    /**
+     * Newline-delimited JSON: one item per line, without enclosing array.
+     */
+    NDJSON("", "\n", "\n");
+
+    private final String start;
+    private final String separator;
+    private final String end;
+
+    JsonOutputFormat(String start, String separator, String end) {
+        this.start = start;
+        this.separator = separator;
+        this.end = end;
+    }
+
+    String start() {
+        return start;
+    }
+
+    String separator() {
+        return separator;
+    }
+
+    /**
+     * @param items The number of items written.
+     * @return The text closing a file; an empty NDJSON file has no lines at all.
+     */
+    String end(long items) {
+        return this == NDJSON && items == 0 ? "" : end;
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.advertisement.utils;
+
+import java.util.List;
+
+/**
+ * Describes the part files of a sharded JSON output, written next to the parts once all of them are complete.
+ *
+ * @param format The layout of the parts, {@code array} or {@code ndjson}.
+ * @param gzip   True if the parts are gzip-compressed.
+ * @param rows   The total number of items in all parts.
+ * @param parts  The parts, in partition order.
+ */
+public record JsonOutputManifest(String format, boolean gzip, long rows, List<Part> parts) {
+
+    /**
+     * @param file  The file name of the part, relative to the manifest.
+     * @param rows  The number of items in the part.
+     * @param bytes The size of the part file in bytes.
+     */
+    public record Part(String file, long rows, long bytes) {
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.advertisement.utils;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Settings of the metrics and recommendations output of {@link ReactiveJsonWriter},
+ * bound from {@code advertisement.output}.
+ *
+ * @param parts  The number of part files the output is split into.
+ * @param format The layout of the output files.
+ * @param gzip   True to gzip-compress the output files.
+ */
+@ConfigurationProperties("advertisement.output")
+public record JsonOutputProperties(@DefaultValue("1") int parts,
+                                   @DefaultValue("array") JsonOutputFormat format,
+                                   @DefaultValue("false") boolean gzip) {
+}
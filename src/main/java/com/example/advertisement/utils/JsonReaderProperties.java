@@ -0,0 +1,25 @@
+package com.example.advertisement.utils;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Settings of {@link ReactiveJsonReader}, bound from {@code advertisement.reader}.
+ *
+ * @param parallelism             The number of files, or chunks of a file, parsed concurrently.
+ * @param ordered                 True to emit objects in file order, false to interleave files for throughput.
+ * @param bufferSize              The size of the read buffer of each file, in bytes.
+ * @param mmapThreshold           The size from which uncompressed files are memory-mapped, in bytes.
+ * @param decompressionBufferSize The size of the buffer of compressed input, in bytes.
+ * @param splitThreshold          The size from which newline-delimited files are split into chunks, in bytes.
+ * @param splitChunkSize          The size of the chunks of split files, in bytes.
+ */
+@ConfigurationProperties("advertisement.reader")
+public record JsonReaderProperties(@DefaultValue("4") int parallelism,
+                                   @DefaultValue("true") boolean ordered,
+                                   @DefaultValue("65536") int bufferSize,
+                                   @DefaultValue("67108864") long mmapThreshold,
+                                   @DefaultValue("65536") int decompressionBufferSize,
+                                   @DefaultValue("268435456") long splitThreshold,
+                                   @DefaultValue("67108864") long splitChunkSize) {
+}
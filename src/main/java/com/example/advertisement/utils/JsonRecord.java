@@ -0,0 +1,13 @@
+package com.example.advertisement.utils;
+
+/**
+ * An object read from a JSON file together with its position in the file.
+ *
+ * @param value    The object.
+ * @param elements The number of objects of the file up to and including this one.
+ * @param offset   The byte offset right after the object, or -1 if it does not map to a file position,
+ *                 as in compressed files.
+ * @param <T>      The type of the object.
+ */
+public record JsonRecord<T>(T value, long elements, long offset) {
+}
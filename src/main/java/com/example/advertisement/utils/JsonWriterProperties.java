@@ -0,0 +1,15 @@
+package com.example.advertisement.utils;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Settings of {@link ReactiveJsonWriter}, bound from {@code advertisement.writer}.
+ *
+ * @param bufferSize       The size of the write buffer of each file, in bytes.
+ * @param requestBatchSize The number of objects requested from upstream at once.
+ */
+@ConfigurationProperties("advertisement.writer")
+public record JsonWriterProperties(@DefaultValue("1048576") int bufferSize,
+                                   @DefaultValue("256") int requestBatchSize) {
+}
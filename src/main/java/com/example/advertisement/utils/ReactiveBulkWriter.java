@@ -0,0 +1,159 @@
+package com.example.advertisement.utils;
+
+import com.mongodb.ErrorCategory;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+@Component
+@RequiredArgsConstructor
+public class ReactiveBulkWriter {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveBulkWriter.class);
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${advertisement.ingest.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${advertisement.ingest.max-in-flight-batches:4}")
+    private int maxInFlightBatches;
+
+    /**
+     * Writes a Flux of documents to the collection of the given class using unordered bulk inserts.
+     * Documents are grouped into batches of {@code advertisement.ingest.batch-size} and at most
+     * {@code advertisement.ingest.max-in-flight-batches} batches are written concurrently.
+     * Documents whose id already exists in the collection are skipped.
+     *
+     * @param flux  The Flux of documents to write.
+     * @param clazz The class type mapped to the target collection.
+     * @param <T>   The type of the documents to write.
+     * @return A Flux of the written batches, in source order, containing only newly inserted documents.
+     */
+    public <T> Flux<List<T>> write(Flux<T> flux, Class<T> clazz) {
+        return write(flux, batch -> writeBatch(batch, clazz));
+    }
+
+    /**
+     * Groups a Flux of documents into batches and writes each batch with the given function,
+     * with the same batch size and concurrency as {@link #write(Flux, Class)}.
+     *
+     * @param flux        The Flux of documents to write.
+     * @param batchWriter Writes one batch and returns its result, e.g. the documents that were inserted.
+     * @param <T>         The type of the documents to write.
+     * @param <R>         The type of the result of a batch.
+     * @return A Flux of the results of the written batches, in source order.
+     */
+    public <T, R> Flux<R> write(Flux<T> flux, Function<List<T>, Mono<R>> batchWriter) {
+        return flux
+                .buffer(batchSize) // Group documents into batches
+                .flatMapSequential(batchWriter, maxInFlightBatches); // Keep source order
+    }
+
+    /**
+     * Writes a single batch with one unordered bulk insert, and logs and records its throughput.
+     *
+     * @param batch The documents to insert.
+     * @param clazz The class type mapped to the target collection.
+     * @param <T>   The type of the documents to write.
+     * @return A Mono of the documents that were inserted.
+     */
+    public <T> Mono<List<T>> writeBatch(List<T> batch, Class<T> clazz) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return mongoTemplate.bulkOps(BulkMode.UNORDERED, clazz)
+                    .insert(batch)
+                    .execute()
+                    .map(result -> batch)
+                    // An unordered bulk insert still writes every non-conflicting document,
+                    // so duplicates only need to be removed from the reported batch
+                    .onErrorResume(error -> isDuplicatesOnly(error),
+                            error -> Mono.just(withoutDuplicates(batch, findBulkWriteException(error))))
+                    .doOnNext(written -> logThroughput(clazz, batch.size(), written.size(), start));
+        });
+    }
+
+    /**
+     * Checks whether the given error was caused only by duplicate key violations.
+     *
+     * @param error The error raised by the bulk write.
+     * @return True if every write error of the bulk write is a duplicate key error.
+     */
+    private boolean isDuplicatesOnly(Throwable error) {
+        MongoBulkWriteException bulkWriteException = findBulkWriteException(error);
+        return bulkWriteException != null
+                && bulkWriteException.getWriteConcernError() == null
+                && bulkWriteException.getWriteErrors().stream()
+                .allMatch(writeError -> ErrorCategory.fromErrorCode(writeError.getCode()) == ErrorCategory.DUPLICATE_KEY);
+    }
+
+    /**
+     * Finds the driver bulk write exception in the cause chain of the given error.
+     *
+     * @param error The error raised by the bulk write.
+     * @return The MongoBulkWriteException, or null if the error was not caused by one.
+     */
+    private MongoBulkWriteException findBulkWriteException(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof MongoBulkWriteException bulkWriteException) {
+                return bulkWriteException;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Removes the documents rejected as duplicates from the batch.
+     *
+     * @param batch              The batch that was written.
+     * @param bulkWriteException The exception describing the rejected documents.
+     * @param <T>                The type of the documents.
+     * @return The documents that were inserted.
+     */
+    private <T> List<T> withoutDuplicates(List<T> batch, MongoBulkWriteException bulkWriteException) {
+        Set<Integer> rejected = new HashSet<>();
+        for (BulkWriteError writeError : bulkWriteException.getWriteErrors()) {
+            rejected.add(writeError.getIndex());
+        }
+
+        List<T> inserted = new ArrayList<>(batch.size() - rejected.size());
+        for (int i = 0; i < batch.size(); i++) {
+            if (!rejected.contains(i)) {
+                inserted.add(batch.get(i));
+            }
+        }
+        return inserted;
+    }
+
+    private void logThroughput(Class<?> clazz, int batchSize, int inserted, long start) {
+        long elapsedNanos = Math.max(System.nanoTime() - start, 1);
+        long docsPerSecond = batchSize * TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+        logger.info("Wrote batch of {} {} documents ({} duplicates skipped) in {} ms ({} docs/s)",
+                batchSize, clazz.getSimpleName(), batchSize - inserted,
+                TimeUnit.NANOSECONDS.toMillis(elapsedNanos), docsPerSecond);
+        DistributionSummary.builder("advertisement.mongo.throughput")
+                .description("Documents per second of one bulk insert")
+                .baseUnit("documents/s")
+                .tag("collection", mongoTemplate.getCollectionName(clazz))
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry)
+                .record(docsPerSecond);
+    }
+}
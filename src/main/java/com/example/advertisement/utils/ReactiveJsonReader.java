@@ -1,19 +1,39 @@
 package com.example.advertisement.utils;
 
-import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
 
+import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
 import java.util.stream.Stream;
 
 @Component
@@ -21,10 +41,30 @@ import java.util.stream.Stream;
 public class ReactiveJsonReader {
 
     private static final Logger logger = LoggerFactory.getLogger(ReactiveJsonReader.class);
+    private static final long MAX_CHUNK_SIZE = 1L << 30;
+    private static final int SCAN_BUFFER_SIZE = 8192;
     private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final JsonReaderProperties properties;
+    private final ConcurrentMap<Class<?>, ObjectReader> objectReaders = new ConcurrentHashMap<>();
+
+    private Scheduler scheduler;
+
+    @PostConstruct
+    void createScheduler() {
+        // Dedicated bounded scheduler so blocking file parsing never runs on shared or Netty threads
+        scheduler = Schedulers.newBoundedElastic(properties.parallelism(), Schedulers.DEFAULT_BOUNDED_ELASTIC_QUEUESIZE, "json-reader");
+    }
+
+    @PreDestroy
+    void disposeScheduler() {
+        scheduler.dispose();
+    }
 
     /**
      * Reads JSON files that match the specified path pattern and converts them into Flux of objects.
+     * Files are parsed in parallel according to {@code advertisement.reader.parallelism}
+     * and {@code advertisement.reader.ordered}.
      *
      * @param pathPattern The path pattern to match files, e.g., "/x/y/*.json".
      * @param clazz       The class type to convert JSON data into.
@@ -32,6 +72,172 @@ public class ReactiveJsonReader {
      * @return A Flux of objects of type T.
      */
     public <T extends Serializable> Flux<T> readJsonFiles(String pathPattern, Class<T> clazz) {
+        return readJsonFiles(pathPattern, clazz, properties.parallelism(), properties.ordered());
+    }
+
+    /**
+     * Reads JSON files that match the specified path pattern and converts them into Flux of objects,
+     * parsing up to {@code parallelism} files at once on the reader scheduler.
+     *
+     * @param pathPattern The path pattern to match files, e.g., "/x/y/*.json".
+     * @param clazz       The class type to convert JSON data into.
+     * @param parallelism The maximum number of files parsed concurrently.
+     * @param ordered     True to emit objects in file path order, false to interleave files for throughput.
+     * @param <T>         The type of the objects to be created from JSON.
+     * @return A Flux of objects of type T.
+     */
+    public <T extends Serializable> Flux<T> readJsonFiles(String pathPattern, Class<T> clazz, int parallelism, boolean ordered) {
+        Flux<Path> files = matchingFiles(pathPattern)
+                .doOnNext(file -> counter("advertisement.reader.files.discovered", clazz).increment());
+
+        return readJsonFiles(ordered ? files.sort() : files, clazz, parallelism, ordered)
+                .doOnError(error -> logger.error("Error processing files in path: {}", pathPattern, error)); // Log any errors
+    }
+
+    /**
+     * Reads the given JSON files and converts them into Flux of objects. Files are parsed in parallel
+     * according to {@code advertisement.reader.parallelism} and {@code advertisement.reader.ordered}.
+     *
+     * @param files The files to read.
+     * @param clazz The class type to convert JSON data into.
+     * @param <T>   The type of the objects to be created from JSON.
+     * @return A Flux of objects of type T, in the order of the files if ordered.
+     */
+    public <T extends Serializable> Flux<T> readJsonFiles(List<Path> files, Class<T> clazz) {
+        return readJsonFiles(Flux.fromIterable(files), clazz, properties.parallelism(), properties.ordered())
+                .doOnError(error -> logger.error("Error processing files: {}", files, error));
+    }
+
+    private <T extends Serializable> Flux<T> readJsonFiles(Flux<Path> files, Class<T> clazz, int parallelism, boolean ordered) {
+        // Read each file as JSON on the reader scheduler
+        Function<Path, Flux<T>> read = file -> readJsonFile(file, clazz, parallelism, ordered).subscribeOn(scheduler);
+
+        return ordered
+                ? files.flatMapSequential(read, parallelism) // Merge results in file order
+                : files.flatMap(read, parallelism); // Interleave results for maximum throughput
+    }
+
+    /**
+     * Finds the regular files that match the specified path pattern.
+     *
+     * @param pathPattern The path pattern to match files, e.g., "/x/y/*.json".
+     * @param clazz       The class type the files hold, used to count the files discovered.
+     * @return A Flux of the matching files, in path order.
+     */
+    public Flux<Path> findFiles(String pathPattern, Class<?> clazz) {
+        return matchingFiles(pathPattern)
+                .doOnNext(file -> counter("advertisement.reader.files.discovered", clazz).increment())
+                .sort();
+    }
+
+    /**
+     * @return The number of files parsed concurrently ({@code advertisement.reader.parallelism}).
+     */
+    public int parallelism() {
+        return properties.parallelism();
+    }
+
+    /**
+     * Reads the objects of one JSON file together with their position, so that a later read can resume
+     * after the last object that was processed. A read resumes by seeking to {@code offset} in uncompressed
+     * newline-delimited files, and by skipping the first {@code elements} objects, without deserializing
+     * them, in other files. Files are parsed sequentially on the reader scheduler, without splitting.
+     *
+     * @param file     The file to read.
+     * @param clazz    The class type to convert JSON data into.
+     * @param elements The number of objects already processed, 0 to read the whole file.
+     * @param offset   The byte offset right after the last object already processed, or -1 if unknown.
+     * @param <T>      The type of the objects to be created from JSON.
+     * @return A Flux of the objects after the resume point with their position.
+     */
+    public <T extends Serializable> Flux<JsonRecord<T>> readJsonRecords(Path file, Class<T> clazz, long elements, long offset) {
+        Counter records = counter("advertisement.reader.records", clazz);
+        Counter parsed = counter("advertisement.reader.files.parsed", clazz);
+        Timer parseTimer = Timer.builder("advertisement.reader.parse")
+                .description("Time to read and parse one file")
+                .tag("type", clazz.getSimpleName())
+                .register(meterRegistry);
+        ObjectReader objectReader = objectReader(clazz);
+
+        Flux<JsonRecord<T>> objects = Flux.<JsonRecord<T>, RecordCursor>generate(
+                        () -> openRecordCursor(file, elements, offset),
+                        (cursor, sink) -> {
+                            try {
+                                // Parse one element per request
+                                JsonToken token = cursor.state.nextToken();
+                                if (token == null || token == JsonToken.END_ARRAY) {
+                                    sink.complete();
+                                } else {
+                                    T obj = objectReader.readValue(cursor.state.parser);
+                                    cursor.elements++;
+                                    long end = cursor.baseOffset < 0 ? -1
+                                            : cursor.baseOffset + cursor.state.parser.currentLocation().getByteOffset();
+                                    sink.next(new JsonRecord<>(obj, cursor.elements, end));
+                                }
+                            } catch (IOException e) {
+                                sink.error(e);
+                            }
+                            return cursor;
+                        },
+                        cursor -> closeParser(file, cursor.state.parser))
+                .doOnNext(record -> records.increment())
+                .doOnComplete(parsed::increment)
+                .doOnError(error -> logger.error("Error reading file: {}", file, error));
+        return ReactiveTimers.time(objects, parseTimer).subscribeOn(scheduler);
+    }
+
+    /**
+     * Opens a parser over a file positioned after the objects already processed.
+     *
+     * @param file     The file to read.
+     * @param elements The number of objects already processed.
+     * @param offset   The byte offset right after the last object already processed, or -1 if unknown.
+     * @return The cursor positioned before the first object to read.
+     * @throws IOException If the file cannot be opened or ends before the resume point.
+     */
+    private RecordCursor openRecordCursor(Path file, long elements, long offset) throws IOException {
+        boolean seekable;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // Byte offsets only map to file positions in uncompressed files
+            seekable = channel.size() > 0 && detectCompression(file, channel) == InputCompression.NONE;
+            if (seekable && offset > 0 && elements > 0 && firstNonWhitespace(channel) == '{') {
+                logger.info("Resuming file: {} at offset {} after {} elements", file, offset, elements);
+                FileChannel resumed = FileChannel.open(file, StandardOpenOption.READ);
+                try {
+                    JsonParser jsonParser = objectMapper.getFactory().createParser(
+                            new BufferedInputStream(Channels.newInputStream(resumed.position(offset)), properties.bufferSize()));
+                    return new RecordCursor(new ParserState(jsonParser, false), elements, offset);
+                } catch (IOException | RuntimeException e) {
+                    // The parser owns the channel only once it is created
+                    resumed.close();
+                    throw e;
+                }
+            }
+        }
+
+        ParserState state = openParser(file);
+        if (elements > 0) {
+            logger.info("Resuming file: {} by skipping {} elements", file, elements);
+        }
+        try {
+            for (long skipped = 0; skipped < elements; skipped++) {
+                JsonToken token = state.nextToken();
+                if (token == null || token == JsonToken.END_ARRAY) {
+                    throw new IOException("File ends after " + skipped + " elements, before the resume point at " + elements);
+                }
+                state.parser.skipChildren();
+            }
+        } catch (IOException | RuntimeException e) {
+            closeParser(file, state.parser);
+            throw e;
+        }
+        return new RecordCursor(state, elements, seekable ? 0 : -1);
+    }
+
+    /**
+     * Finds the regular files that match the specified path pattern, in walk order.
+     */
+    private Flux<Path> matchingFiles(String pathPattern) {
         // Determine the root path and pattern for file matching
         Path rootPath = getRootPath(pathPattern);
 
@@ -45,68 +251,378 @@ public class ReactiveJsonReader {
                 () -> Files.walk(rootPath),
                 stream -> Flux.fromStream(stream)
                         .filter(Files::isRegularFile) // Filter to include only regular files
-                        .filter(matcher::matches) // Filter files based on the path pattern
-                        .flatMap(file -> readJsonFile(file.toFile(), clazz)), // Read each file as JSON
+                        .filter(matcher::matches), // Filter files based on the path pattern
                 Stream::close
-        ).doOnError(error -> logger.error("Error processing files in path: {}", pathPattern, error)); // Log any errors
+        );
     }
 
     /**
-     * Determines the root path from the given path pattern.
+     * Determines the root path from the given path pattern: the deepest directory that holds every
+     * matching file, i.e. the directory of the pattern up to its first wildcard.
      *
      * @param pathPattern The path pattern to extract the root path from.
      * @return The root path for the given pattern.
      */
-    private Path getRootPath(String pathPattern) {
-        int wildcardIndex = Math.min(
-                pathPattern.indexOf('*'),
-                pathPattern.indexOf('?')
-        );
+    public static Path getRootPath(String pathPattern) {
+        int wildcardIndex = -1;
+        for (int i = 0; i < pathPattern.length() && wildcardIndex == -1; i++) {
+            if ("*?[{".indexOf(pathPattern.charAt(i)) >= 0) {
+                wildcardIndex = i;
+            }
+        }
 
         // If no wildcard is present, return the parent of the path
+        Path rootPath;
         if (wildcardIndex == -1) {
-            return Paths.get(pathPattern).getParent();
+            rootPath = Paths.get(pathPattern).getParent();
         } else {
-            // Extract the root path from the pattern
-            return Paths.get(pathPattern.substring(0, wildcardIndex)).getParent();
+            // Extract the directory before the wildcard, e.g. "/x/y" from "/x/y/*.json" or "/x/y/a*.json"
+            String prefix = pathPattern.substring(0, wildcardIndex);
+            int separatorIndex = Math.max(prefix.lastIndexOf('/'), prefix.lastIndexOf(File.separatorChar));
+            rootPath = separatorIndex == -1 ? null : Paths.get(prefix.substring(0, separatorIndex + 1));
         }
+        // Patterns without a directory are relative to the working directory
+        return rootPath == null ? Paths.get("") : rootPath;
     }
 
     /**
      * Reads a JSON file and converts it into a Flux of objects of the specified type.
+     * The file may hold a top-level JSON array or newline-delimited JSON objects; the format is
+     * detected from its first token. Uncompressed newline-delimited files of at least
+     * {@code advertisement.reader.split-threshold} bytes are split into newline-aligned chunks
+     * that are parsed concurrently.
+     * The parser only advances when downstream requests more objects, so memory stays
+     * bounded by the downstream prefetch regardless of the file size.
      *
-     * @param file  The file to read.
-     * @param clazz The class type to convert JSON data into.
-     * @param <T>   The type of the objects to be created from JSON.
+     * @param file        The file to read.
+     * @param clazz       The class type to convert JSON data into.
+     * @param parallelism The maximum number of chunks of the file parsed concurrently.
+     * @param ordered     True to emit objects in file order, false to interleave chunks for throughput.
+     * @param <T>         The type of the objects to be created from JSON.
      * @return A Flux of objects of type T.
      */
-    private <T extends Serializable> Flux<T> readJsonFile(File file, Class<T> clazz) {
-        return Flux.create(sink -> {
-            // Skip empty files
-            if (file.length() == 0) {
-                logger.info("Skipping empty file: {}", file);
-                sink.complete();
-                return;
-            }
+    private <T extends Serializable> Flux<T> readJsonFile(Path file, Class<T> clazz, int parallelism, boolean ordered) {
+        Counter records = counter("advertisement.reader.records", clazz);
+        Counter parsed = counter("advertisement.reader.files.parsed", clazz);
+        Timer parseTimer = Timer.builder("advertisement.reader.parse")
+                .description("Time to read and parse one file")
+                .tag("type", clazz.getSimpleName())
+                .register(meterRegistry);
+
+        Flux<T> objects = Mono.fromCallable(() -> Files.size(file))
+                .flatMapMany(size -> {
+                    // Skip empty files
+                    if (size == 0) {
+                        logger.info("Skipping empty file: {}", file);
+                        return Flux.<T>empty();
+                    }
+
+                    return Mono.fromCallable(() -> splitFile(file, size))
+                            .flatMapMany(chunks -> {
+                                if (chunks.isEmpty()) {
+                                    return parse(() -> openParser(file), file, clazz);
+                                }
+
+                                logger.info("Reading and processing file: {} in {} chunks", file, chunks.size());
+                                Function<FileChunk, Flux<T>> read = chunk ->
+                                        parse(() -> openChunkParser(file, chunk), file, clazz).subscribeOn(scheduler);
+                                return ordered
+                                        ? Flux.fromIterable(chunks).flatMapSequential(read, parallelism)
+                                        : Flux.fromIterable(chunks).flatMap(read, parallelism);
+                            });
+                })
+                .doOnNext(object -> records.increment())
+                .doOnComplete(parsed::increment)
+                .doOnError(error -> logger.error("Error reading file: {}", file, error));
+        return ReactiveTimers.time(objects, parseTimer);
+    }
 
-            try (JsonParser jsonParser = new JsonFactory().createParser(file)) {
-                logger.info("Reading and processing file: {}", file);
+    private Counter counter(String name, Class<?> clazz) {
+        return Counter.builder(name)
+                .tag("type", clazz.getSimpleName())
+                .register(meterRegistry);
+    }
 
-                // Parse JSON array from the file
-                if (jsonParser.nextToken() == JsonToken.START_ARRAY) {
-                    while (jsonParser.nextToken() != JsonToken.END_ARRAY) {
-                        T obj = objectMapper.readValue(jsonParser, clazz);
-                        sink.next(obj);
+    /**
+     * Parses the objects of an opened parser, one object per downstream request.
+     *
+     * @param parserSupplier Opens the parser on first request.
+     * @param file           The file being read, used for logging.
+     * @param clazz          The class type to convert JSON data into.
+     * @param <T>            The type of the objects to be created from JSON.
+     * @return A Flux of objects of type T.
+     */
+    private <T extends Serializable> Flux<T> parse(Callable<ParserState> parserSupplier, Path file, Class<T> clazz) {
+        ObjectReader objectReader = objectReader(clazz);
+        return Flux.<T, ParserState>generate(
+                parserSupplier,
+                (state, sink) -> {
+                    try {
+                        // Parse one element per request
+                        JsonToken token = state.nextToken();
+                        if (token == null || token == JsonToken.END_ARRAY) {
+                            sink.complete();
+                        } else {
+                            T obj = objectReader.readValue(state.parser);
+                            sink.next(obj);
+                        }
+                    } catch (IOException e) {
+                        sink.error(e);
                     }
-                } else {
-                    sink.error(new IOException("Expected start of array token"));
+                    return state;
+                },
+                state -> closeParser(file, state.parser)
+        );
+    }
+
+    /**
+     * Opens a parser over the given file and detects whether it holds a JSON array or newline-delimited JSON.
+     *
+     * @param file The file to read.
+     * @return The parser positioned before the first element.
+     * @throws IOException If the file cannot be opened or holds neither format.
+     */
+    private ParserState openParser(Path file) throws IOException {
+        JsonParser jsonParser = objectMapper.getFactory().createParser(openInputStream(file));
+        logger.info("Reading and processing file: {}", file);
+
+        // Detect the format from the first token
+        JsonToken token = jsonParser.nextToken();
+        if (token == null) {
+            // A compressed file may be non-empty on disk but hold no content
+            logger.info("Skipping empty file: {}", file);
+            return new ParserState(jsonParser, true);
+        } else if (token == JsonToken.START_ARRAY) {
+            return new ParserState(jsonParser, false);
+        } else if (token == JsonToken.START_OBJECT) {
+            // Newline-delimited JSON, the first object starts at the current token
+            return new ParserState(jsonParser, true);
+        }
+        jsonParser.close();
+        throw new IOException("Expected start of array or object token");
+    }
+
+    /**
+     * Opens a parser over one newline-aligned chunk of a newline-delimited JSON file.
+     *
+     * @param file  The file to read.
+     * @param chunk The byte range of the chunk.
+     * @return The parser positioned before the first object of the chunk.
+     * @throws IOException If the chunk cannot be mapped or parsed.
+     */
+    private ParserState openChunkParser(Path file, FileChunk chunk) throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // The mapping stays valid after the channel is closed
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, chunk.position(), chunk.length());
+        }
+        JsonParser jsonParser = objectMapper.getFactory().createParser(new ByteBufferBackedInputStream(buffer));
+        logger.debug("Reading chunk of file: {} at {} ({} bytes)", file, chunk.position(), chunk.length());
+
+        JsonToken token = jsonParser.nextToken();
+        if (token != null && token != JsonToken.START_OBJECT) {
+            jsonParser.close();
+            throw new IOException("Expected start of object token at chunk offset " + chunk.position());
+        }
+        return new ParserState(jsonParser, true);
+    }
+
+    private void closeParser(Path file, JsonParser jsonParser) {
+        try {
+            // Closes the underlying input stream as well
+            jsonParser.close();
+        } catch (IOException e) {
+            logger.warn("Failed to close file: {}", file, e);
+        }
+    }
+
+    /**
+     * Splits a large uncompressed newline-delimited JSON file into chunks of about
+     * {@code advertisement.reader.split-chunk-size} bytes, each ending right after a newline.
+     *
+     * @param file The file to split.
+     * @param size The size of the file.
+     * @return The chunks of the file, or an empty list if the file must be read as a whole.
+     * @throws IOException If the file cannot be read.
+     */
+    private List<FileChunk> splitFile(Path file, long size) throws IOException {
+        if (size < properties.splitThreshold()) {
+            return List.of();
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // Only uncompressed newline-delimited JSON has record boundaries that can be found by seeking
+            if (detectCompression(file, channel) != InputCompression.NONE || firstNonWhitespace(channel) != '{') {
+                return List.of();
+            }
+
+            long chunkSize = Math.min(properties.splitChunkSize(), MAX_CHUNK_SIZE);
+            List<FileChunk> chunks = new ArrayList<>();
+            long position = 0;
+            while (position < size) {
+                long end = nextLineStart(channel, Math.min(position + chunkSize, size), size);
+                if (end - position > Integer.MAX_VALUE) {
+                    // A single line too long to be mapped, read the file as a whole
+                    return List.of();
                 }
+                chunks.add(new FileChunk(position, end - position));
+                position = end;
+            }
+            return chunks;
+        }
+    }
 
-                sink.complete();
-            } catch (IOException e) {
-                logger.error("Error reading file: {}", file, e);
-                sink.error(e);
+    /**
+     * Returns the first non-whitespace byte of the file.
+     *
+     * @param channel The channel open on the file.
+     * @return The first non-whitespace byte, or -1 if the file holds only whitespace.
+     * @throws IOException If the file cannot be read.
+     */
+    private int firstNonWhitespace(FileChannel channel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+        long position = 0;
+        while (channel.read(buffer.clear(), position) > 0) {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                byte b = buffer.get();
+                if (b != ' ' && b != '\t' && b != '\r' && b != '\n') {
+                    return b;
+                }
             }
-        });
+            position += buffer.limit();
+        }
+        return -1;
+    }
+
+    /**
+     * Finds the position right after the first newline at or after the given position.
+     *
+     * @param channel  The channel open on the file.
+     * @param position The position to start searching from.
+     * @param size     The size of the file.
+     * @return The start of the next line, or the size of the file if there is no further newline.
+     * @throws IOException If the file cannot be read.
+     */
+    private long nextLineStart(FileChannel channel, long position, long size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+        while (position < size && channel.read(buffer.clear(), position) > 0) {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                if (buffer.get() == '\n') {
+                    return position + buffer.position();
+                }
+            }
+            position += buffer.limit();
+        }
+        return size;
+    }
+
+    /**
+     * Returns the cached ObjectReader for the given type, so deserializers are resolved only once per type.
+     *
+     * @param clazz The class type to convert JSON data into.
+     * @return The ObjectReader bound to the given type.
+     */
+    private ObjectReader objectReader(Class<?> clazz) {
+        return objectReaders.computeIfAbsent(clazz, objectMapper::readerFor);
+    }
+
+    /**
+     * Opens the given file for reading. Files of at least {@code advertisement.reader.mmap-threshold} bytes
+     * are memory-mapped, smaller files are read through a FileChannel with a buffer of
+     * {@code advertisement.reader.buffer-size} bytes. Gzip and deflate files are decompressed
+     * while they are read, using a buffer of {@code advertisement.reader.decompression-buffer-size} bytes.
+     *
+     * @param file The file to open.
+     * @return An InputStream over the (decompressed) file content.
+     * @throws IOException If the file cannot be opened or mapped.
+     */
+    private InputStream openInputStream(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            InputCompression compression = detectCompression(file, channel);
+            InputStream input = openChannelInputStream(channel);
+            if (compression == InputCompression.NONE) {
+                return input;
+            }
+
+            logger.info("Decompressing {} file: {}", compression, file);
+            if (!input.markSupported()) {
+                input = new BufferedInputStream(input, properties.bufferSize());
+            }
+            return compression.decompress(input, properties.decompressionBufferSize());
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Detects the compression of a file from its extension or its leading bytes, without moving the channel position.
+     *
+     * @param file    The file to inspect.
+     * @param channel The channel open on the file.
+     * @return The detected compression.
+     * @throws IOException If the leading bytes cannot be read.
+     */
+    private InputCompression detectCompression(Path file, FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(InputCompression.HEADER_LENGTH);
+        channel.read(header, 0);
+        return InputCompression.detect(file, header.array(), header.position());
+    }
+
+    private InputStream openChannelInputStream(FileChannel channel) throws IOException {
+        long size = channel.size();
+        if (size >= properties.mmapThreshold() && size <= Integer.MAX_VALUE) {
+            // The mapping stays valid after the channel is closed
+            try (channel) {
+                return new ByteBufferBackedInputStream(channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+            }
+        }
+        return new BufferedInputStream(Channels.newInputStream(channel), properties.bufferSize());
+    }
+
+    /**
+     * Byte range of a newline-delimited JSON file that is parsed on its own.
+     */
+    private record FileChunk(long position, long length) {
+    }
+
+    /**
+     * Parser over a file together with the number of objects read from it, and the file position
+     * its byte offsets start at, or -1 if they do not map to file positions.
+     */
+    private static final class RecordCursor {
+        private final ParserState state;
+        private final long baseOffset;
+        private long elements;
+
+        private RecordCursor(ParserState state, long elements, long baseOffset) {
+            this.state = state;
+            this.elements = elements;
+            this.baseOffset = baseOffset;
+        }
+    }
+
+    /**
+     * Parser over a file or chunk, together with whether its current token is the first unread token.
+     */
+    private static final class ParserState {
+        private final JsonParser parser;
+        private boolean tokenPending;
+
+        private ParserState(JsonParser parser, boolean tokenPending) {
+            this.parser = parser;
+            this.tokenPending = tokenPending;
+        }
+
+        private JsonToken nextToken() throws IOException {
+            if (tokenPending) {
+                tokenPending = false;
+                return parser.currentToken();
+            }
+            return parser.nextToken();
+        }
     }
 }
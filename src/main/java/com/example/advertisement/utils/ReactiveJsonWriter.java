@@ -1,23 +1,46 @@
 package com.example.advertisement.utils;
 
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 import reactor.core.scheduler.Schedulers;
 
-import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.nio.file.StandardOpenOption;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.ToIntFunction;
+import java.util.regex.Pattern;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
 
 @Component
 @RequiredArgsConstructor
 public class ReactiveJsonWriter {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveJsonWriter.class);
     private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final JsonWriterProperties writerProperties;
+    private final JsonOutputProperties outputProperties;
 
     /**
      * Writes a Flux of objects to a JSON file.
@@ -33,7 +56,34 @@ public class ReactiveJsonWriter {
     }
 
     /**
-     * Writes a Flux of objects to a JSON file.
+     * Writes a Flux of objects to JSON output in the configured {@code advertisement.output.format}, gzip-compressed
+     * with a {@code .gz} suffix if {@code advertisement.output.gzip} is set. With {@code advertisement.output.parts} above 1, objects are
+     * partitioned by hash into that many part files written in parallel, named after the given path
+     * ({@code metrics.json} gives {@code metrics-part-00000.json}, ...), and a {@code metrics-manifest.json}
+     * listing the parts is written once all parts are complete. Parts replace the previous ones only once every part
+     * is complete, and part files of a previous run that the manifest does not list are deleted.
+     * Otherwise a single file is written to the path.
+     *
+     * @param flux          The Flux of objects to write.
+     * @param pathString    The path of the file as a string.
+     * @param partitionHash Computes the hash that selects the part of an object.
+     * @param <T>           The type of the objects to write.
+     * @return A Flux that completes when all files are written.
+     */
+    public <T> Flux<Void> writeJsonFiles(Flux<T> flux, String pathString, ToIntFunction<T> partitionHash) {
+        Path path = Paths.get(pathString);
+        if (outputProperties.parts() > 1) {
+            return writeJsonParts(flux, path, partitionHash);
+        }
+        return writeJsonFile(flux, outputProperties.gzip() ? gzipPath(path) : path, outputProperties.format(), outputProperties.gzip());
+    }
+
+    /**
+     * Writes a Flux of objects to a file as one uncompressed JSON array, whatever the output settings.
+     * Objects are serialized straight into a shared JsonGenerator over a direct buffer, and requested from the Flux in batches of
+     * {@code advertisement.writer.request-batch-size}. The output is written to a temporary file next
+     * to the target, which replaces the target only once the Flux completes; if the Flux or a write
+     * fails, the error is propagated and the temporary file is deleted.
      *
      * @param flux The Flux of objects to write to the file.
      * @param path The Path of the file.
@@ -41,48 +91,303 @@ public class ReactiveJsonWriter {
      * @return A Flux that completes when the file write operation is finished.
      */
     public <T> Flux<Void> writeJsonFile(Flux<T> flux, Path path) {
-        return Flux.create(sink -> {
-            BufferedWriter writer;
+        return writeJsonFile(flux, path, JsonOutputFormat.ARRAY, false);
+    }
+
+    private <T> Flux<Void> writeJsonFile(Flux<T> flux, Path path, JsonOutputFormat format, boolean gzip) {
+        return Flux.using(
+                        () -> new JsonFileOutput(path, format, gzip),
+                        output -> flux
+                                .publishOn(Schedulers.boundedElastic(), writerProperties.requestBatchSize()) // Use a bounded elastic scheduler for IO operations
+                                .doOnNext(output::write)
+                                .then(Mono.fromCallable(output::commit))
+                                .thenMany(Flux.<Void>empty()),
+                        JsonFileOutput::close)
+                .subscribeOn(Schedulers.boundedElastic()); // The file is opened on subscription
+    }
+
+    /**
+     * Writes the part files of a partitioned output and then its manifest. Every part is completed as a temporary
+     * file first, so a failing part leaves all previous parts and their manifest untouched.
+     *
+     * @param flux          The Flux of objects to write.
+     * @param path          The path the part and manifest names are derived from.
+     * @param partitionHash Computes the hash that selects the part of an object.
+     * @param <T>           The type of the objects to write.
+     * @return A Flux that completes when the manifest is written.
+     */
+    private <T> Flux<Void> writeJsonParts(Flux<T> flux, Path path, ToIntFunction<T> partitionHash) {
+        Path directory = path.toAbsolutePath().getParent();
+        String baseName = baseName(path);
+        List<Path> partPaths = IntStream.range(0, outputProperties.parts())
+                .mapToObj(part -> directory.resolve(String.format("%s-part-%05d.json%s", baseName, part, outputProperties.gzip() ? ".gz" : "")))
+                .toList();
+        Path manifestPath = directory.resolve(baseName + "-manifest.json");
+
+        return Flux.using(
+                        () -> openAll(partPaths),
+                        outputs -> flux
+                                .groupBy(item -> Math.floorMod(partitionHash.applyAsInt(item), outputProperties.parts()))
+                                // Every part is serialized and compressed on its own thread
+                                .flatMap(group -> group
+                                        .publishOn(Schedulers.boundedElastic(), writerProperties.requestBatchSize())
+                                        .doOnNext(outputs.get(group.key())::write), outputProperties.parts())
+                                .thenMany(Flux.fromIterable(outputs))
+                                .flatMapSequential(output -> Mono.fromCallable(output::finish).subscribeOn(Schedulers.boundedElastic()))
+                                .collectList()
+                                .doOnNext(finished -> {
+                                    // Replace the parts only once all of them are complete
+                                    outputs.forEach(JsonFileOutput::publish);
+                                    writeManifest(manifestPath, finished);
+                                    deleteStaleParts(directory, baseName, partPaths);
+                                })
+                                .thenMany(Flux.<Void>empty()),
+                        outputs -> outputs.forEach(JsonFileOutput::close))
+                .subscribeOn(Schedulers.boundedElastic()); // The files are opened on subscription
+    }
+
+    private List<JsonFileOutput> openAll(List<Path> paths) throws IOException {
+        List<JsonFileOutput> outputs = new ArrayList<>(paths.size());
+        try {
+            for (Path path : paths) {
+                outputs.add(new JsonFileOutput(path, outputProperties.format(), outputProperties.gzip()));
+            }
+            return outputs;
+        } catch (IOException | RuntimeException e) {
+            outputs.forEach(JsonFileOutput::close);
+            throw e;
+        }
+    }
+
+    /**
+     * Writes the manifest of committed parts atomically, like the parts themselves.
+     *
+     * @param path      The path of the manifest.
+     * @param committed The committed parts, in partition order.
+     */
+    private void writeManifest(Path path, List<JsonOutputManifest.Part> committed) {
+        JsonOutputManifest manifest = new JsonOutputManifest(outputProperties.format().name().toLowerCase(Locale.ROOT), outputProperties.gzip(),
+                committed.stream().mapToLong(JsonOutputManifest.Part::rows).sum(), committed);
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try {
+            objectMapper.writerWithDefaultPrettyPrinter().writeValue(temp.toFile(), manifest);
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            logger.info("Wrote manifest {} with {} parts and {} rows", path, committed.size(), manifest.rows());
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to write manifest", e);
+        }
+    }
+
+    /**
+     * Deletes the part files of previous runs that are not part of the new output, such as the parts beyond
+     * a smaller {@code advertisement.output.parts}, or parts written with the other compression setting.
+     *
+     * @param directory The directory of the output.
+     * @param baseName  The base name of the part files.
+     * @param partPaths The part files of the new output.
+     */
+    private void deleteStaleParts(Path directory, String baseName, List<Path> partPaths) {
+        Pattern partName = Pattern.compile(Pattern.quote(baseName) + "-part-\\d{5}\\.json(\\.gz)?");
+        try (Stream<Path> files = Files.list(directory)) {
+            files.filter(file -> partName.matcher(file.getFileName().toString()).matches() && !partPaths.contains(file))
+                    .forEach(file -> {
+                        try {
+                            Files.deleteIfExists(file);
+                            logger.info("Deleted stale part {}", file);
+                        } catch (IOException e) {
+                            logger.warn("Failed to delete stale part {}", file, e);
+                        }
+                    });
+        } catch (IOException e) {
+            logger.warn("Failed to list stale parts in {}", directory, e);
+        }
+    }
+
+    /**
+     * @param path An output path, e.g. {@code out/metrics.json}.
+     * @return The path with a {@code .gz} suffix, unless it already has one.
+     */
+    private static Path gzipPath(Path path) {
+        String name = path.getFileName().toString();
+        return name.toLowerCase(Locale.ROOT).endsWith(".gz") ? path : path.resolveSibling(name + ".gz");
+    }
+
+    /**
+     * @param path The requested output path, e.g. {@code out/metrics.json.gz}.
+     * @return The file name without compression and JSON extensions, e.g. {@code metrics}.
+     */
+    private static String baseName(Path path) {
+        String name = path.getFileName().toString();
+        for (String extension : List.of(".gz", ".ndjson", ".json")) {
+            if (name.toLowerCase(Locale.ROOT).endsWith(extension)) {
+                name = name.substring(0, name.length() - extension.length());
+            }
+        }
+        return name;
+    }
+
+    /**
+     * A JSON file being written to a temporary file. Instances are used by one subscription at a time.
+     */
+    private class JsonFileOutput {
+        private final Path path;
+        private final Path temp;
+        private final FileChannel channel;
+        private final JsonGenerator generator;
+        private final ObjectWriter writer;
+        private final JsonOutputFormat format;
+        private final long start = System.nanoTime();
+        private boolean firstItem = true;
+        private boolean committed;
+        private long items;
+        private long bytes;
+
+        JsonFileOutput(Path path, JsonOutputFormat format, boolean gzip) throws IOException {
+            this.path = path;
+            this.format = format;
+            this.temp = path.resolveSibling(path.getFileName() + ".tmp");
+            this.channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+            try {
+                OutputStream out = new ChannelOutputStream(channel, writerProperties.bufferSize());
+                if (gzip) {
+                    out = new GZIPOutputStream(out, writerProperties.bufferSize());
+                }
+                this.generator = objectMapper.getFactory().createGenerator(out, JsonEncoding.UTF8);
+                this.generator.setRootValueSeparator(null); // Items are separated explicitly
+                this.generator.writeRaw(format.start()); // Start the JSON array, if any
+            } catch (IOException | RuntimeException e) {
+                abort();
+                throw e;
+            }
+            // Flushing after every item would defeat the buffer
+            this.writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        }
+
+        void write(Object item) {
+            try {
+                if (firstItem) {
+                    firstItem = false;
+                } else {
+                    generator.writeRaw(format.separator()); // Separate subsequent items
+                }
+                writer.writeValue(generator, item);
+                items++;
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to write JSON to file", e);
+            }
+        }
+
+        JsonOutputManifest.Part commit() {
+            JsonOutputManifest.Part part = finish();
+            publish();
+            return part;
+        }
+
+        /**
+         * Completes the temporary file, without replacing the target yet.
+         *
+         * @return The manifest entry of the file.
+         */
+        JsonOutputManifest.Part finish() {
+            try {
+                generator.writeRaw(format.end(items)); // Close the JSON array, if any
+                generator.close(); // Finishes compression, forces and closes the channel
+                bytes = Files.size(temp);
+                return new JsonOutputManifest.Part(path.getFileName().toString(), items, bytes);
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to flush or close writer", e);
+            }
+        }
+
+        /**
+         * Replaces the target with the finished temporary file.
+         */
+        void publish() {
+            try {
+                Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to move " + temp + " to " + path, e);
+            }
+            committed = true;
+            meterRegistry.counter("advertisement.writer.bytes").increment(bytes);
+            meterRegistry.counter("advertisement.writer.items").increment(items);
+            meterRegistry.counter("advertisement.writer.files").increment();
+
+            double seconds = Math.max(System.nanoTime() - start, 1) / 1e9;
+            logger.info("Wrote {} items ({} bytes) to {} in {} ms ({} bytes/s)",
+                    items, bytes, path, Math.round(seconds * 1000), Math.round(bytes / seconds));
+        }
+
+        void close() {
+            if (!committed) {
+                abort();
+            }
+        }
+
+        private void abort() {
             try {
-                // Create a BufferedWriter to write to the file
-                writer = Files.newBufferedWriter(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
-                writer.write("[\n"); // Start the JSON array
-
-                AtomicBoolean firstItem = new AtomicBoolean(true);
-
-                flux
-                        .publishOn(Schedulers.boundedElastic()) // Use a bounded elastic scheduler for IO operations
-                        .doOnNext(item -> {
-                            try {
-                                // Convert the object to JSON and write it to the file
-                                String json = objectMapper.writeValueAsString(item);
-                                if (firstItem.get()) {
-                                    firstItem.set(false);
-                                } else {
-                                    writer.write(",\n"); // Add a comma before subsequent items
-                                }
-                                writer.write(json);
-                            } catch (IOException e) {
-                                // Handle errors during writing
-                                sink.error(new RuntimeException("Failed to write JSON to file", e));
-                            }
-                        })
-                        .doFinally(signalType -> {
-                            try {
-                                writer.write("\n]"); // Close the JSON array
-                                writer.flush();
-                                writer.close(); // Close the BufferedWriter
-                                sink.complete(); // Complete the Flux
-                            } catch (IOException e) {
-                                // Handle errors during flushing or closing
-                                sink.error(new RuntimeException("Failed to flush or close writer", e));
-                            }
-                        })
-                        .subscribe(); // Subscribe to start processing the Flux
+                channel.close();
+                Files.deleteIfExists(temp);
             } catch (IOException e) {
-                // Handle errors during BufferedWriter creation
-                sink.error(new RuntimeException("Failed to create BufferedWriter", e));
+                logger.warn("Failed to delete temporary file {}", temp, e);
+            }
+        }
+    }
+
+    /**
+     * An OutputStream that collects bytes in a direct buffer and writes them to a FileChannel whenever the buffer is full.
+     */
+    private static class ChannelOutputStream extends OutputStream {
+        private final FileChannel channel;
+        private final ByteBuffer buffer;
+
+        ChannelOutputStream(FileChannel channel, int bufferSize) {
+            this.channel = channel;
+            this.buffer = ByteBuffer.allocateDirect(bufferSize);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (!buffer.hasRemaining()) {
+                drain();
+            }
+            buffer.put((byte) b);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            while (length > 0) {
+                if (!buffer.hasRemaining()) {
+                    drain();
+                }
+                int chunk = Math.min(length, buffer.remaining());
+                buffer.put(bytes, offset, chunk);
+                offset += chunk;
+                length -= chunk;
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            drain();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                drain();
+                channel.force(false);
+            } finally {
+                channel.close();
+            }
+        }
+
+        private void drain() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
             }
-        });
+            buffer.clear();
+        }
     }
 }
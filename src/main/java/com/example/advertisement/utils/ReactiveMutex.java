@@ -0,0 +1,97 @@
+package com.example.advertisement.utils;
+
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A mutual exclusion lock for reactive work: at most one Mono passed to {@link #run(Mono)} executes at a time.
+ * Waiting callers are queued rather than parked, so no thread is blocked while the lock is held; the lock is
+ * handed to the next caller in arrival order when the current work terminates.
+ */
+public class ReactiveMutex {
+
+    private static final int WAITING = 0;
+    private static final int GRANTED = 1;
+    private static final int CANCELLED = 2;
+
+    // Guarded by this
+    private final Queue<Waiter> waiters = new ArrayDeque<>();
+    private boolean locked;
+
+    /**
+     * Runs the given work while holding the lock, releasing it on completion, error or cancellation.
+     *
+     * @param work The work to run exclusively.
+     * @param <T>  The type of the result.
+     * @return A Mono of the result of the work.
+     */
+    public <T> Mono<T> run(Mono<T> work) {
+        return Mono.usingWhen(
+                acquire(),
+                acquired -> work,
+                acquired -> Mono.fromRunnable(this::release));
+    }
+
+    /**
+     * @return A Mono that emits once the caller holds the lock.
+     */
+    private Mono<Boolean> acquire() {
+        return Mono.create(sink -> {
+            Waiter waiter = new Waiter(sink);
+            sink.onCancel(() -> {
+                if (!waiter.state.compareAndSet(WAITING, CANCELLED)) {
+                    // The lock was handed over as the caller cancelled, so pass it on
+                    release();
+                }
+            });
+
+            boolean granted;
+            synchronized (this) {
+                granted = !locked && waiter.grant();
+                if (granted) {
+                    locked = true;
+                } else if (locked) {
+                    waiters.add(waiter);
+                }
+            }
+            if (granted) {
+                sink.success(true);
+            }
+        });
+    }
+
+    /**
+     * Hands the lock to the first waiter that has not cancelled, or unlocks if there is none.
+     */
+    private void release() {
+        Waiter next;
+        synchronized (this) {
+            do {
+                next = waiters.poll();
+            } while (next != null && !next.grant());
+            if (next == null) {
+                locked = false;
+            }
+        }
+        if (next != null) {
+            next.sink.success(true);
+        }
+    }
+
+    private static final class Waiter {
+        private final MonoSink<Boolean> sink;
+        private final AtomicInteger state = new AtomicInteger(WAITING);
+
+        private Waiter(MonoSink<Boolean> sink) {
+            this.sink = sink;
+        }
+
+        private boolean grant() {
+            return state.compareAndSet(WAITING, GRANTED);
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.advertisement.utils;
+
+import io.micrometer.core.instrument.Timer;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records the duration of reactive work, from subscription until completion, error or cancellation.
+ */
+public final class ReactiveTimers {
+
+    private ReactiveTimers() {
+    }
+
+    /**
+     * @param flux  The work to time.
+     * @param timer The timer recording one duration per subscription.
+     * @param <T>   The type of the elements.
+     * @return The timed Flux.
+     */
+    public static <T> Flux<T> time(Flux<T> flux, Timer timer) {
+        return Flux.defer(() -> {
+            long start = System.nanoTime();
+            return flux.doFinally(signal -> timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS));
+        });
+    }
+
+    /**
+     * @param mono  The work to time.
+     * @param timer The timer recording one duration per subscription.
+     * @param <T>   The type of the element.
+     * @return The timed Mono.
+     */
+    public static <T> Mono<T> time(Mono<T> mono, Timer timer) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return mono.doFinally(signal -> timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS));
+        });
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.advertisement.utils;
+
+import java.nio.file.Path;
+
+/**
+ * A complete file found by the {@link DirectoryWatcher}.
+ *
+ * @param path          The path of the file.
+ * @param detectedNanos The {@link System#nanoTime()} of the first change seen to the file, to measure the
+ *                      latency from its arrival until it is loaded.
+ */
+public record WatchedFile(Path path, long detectedNanos) {
+}
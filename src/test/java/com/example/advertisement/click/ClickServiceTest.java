@@ -9,6 +9,7 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
 import org.springframework.test.context.ContextConfiguration;
 import org.testcontainers.junit.jupiter.Testcontainers;
 import reactor.core.publisher.Flux;
@@ -28,7 +29,7 @@ class ClickServiceTest {
     private ClickService clickService;
 
     @Autowired
-    private ClickRepository repository;
+    private ReactiveMongoTemplate mongoTemplate;
 
     private Path tempDir;
 
@@ -36,8 +37,8 @@ class ClickServiceTest {
     void setUp() throws Exception {
         // Create a temporary directory for testing
         tempDir = Files.createTempDirectory("testDir");
-        // Clean the repository before each test
-        repository.deleteAll().block();
+        // Clean the collection before each test
+        mongoTemplate.dropCollection(Click.class).block();
     }
 
     @AfterEach
@@ -71,8 +72,8 @@ class ClickServiceTest {
                 .expectComplete()
                 .verify();
 
-        // Validate that the clicks are stored in the repository
-        StepVerifier.create(repository.findAll())
+        // Validate that the clicks are stored in the collection
+        StepVerifier.create(mongoTemplate.findAll(Click.class))
                 .expectNextMatches(click -> click.getId().equals("1") && click.getImpressionId().equals("imp1"))
                 .expectNextMatches(click -> click.getId().equals("2") && click.getImpressionId().equals("imp2"))
                 .verifyComplete();
@@ -92,8 +93,8 @@ class ClickServiceTest {
                 .expectComplete()
                 .verify();
 
-        // Validate that no clicks are stored in the repository
-        StepVerifier.create(repository.findAll())
+        // Validate that no clicks are stored in the collection
+        StepVerifier.create(mongoTemplate.findAll(Click.class))
                 .expectNextCount(0)
                 .verifyComplete();
     }
@@ -124,8 +125,8 @@ class ClickServiceTest {
                 .expectComplete()
                 .verify();
 
-        // Validate that no clicks are stored in the repository
-        StepVerifier.create(repository.findAll())
+        // Validate that no clicks are stored in the collection
+        StepVerifier.create(mongoTemplate.findAll(Click.class))
                 .expectNextCount(0)
                 .verifyComplete();
     }
@@ -0,0 +1,76 @@
+package com.example.advertisement.config;
+
+import com.example.advertisement.AdvertisementApplication;
+import com.example.advertisement.model.Click;
+import com.example.advertisement.model.Impression;
+import lombok.extern.apachecommons.CommonsLog;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.test.context.ContextConfiguration;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import reactor.test.StepVerifier;
+
+import static com.example.advertisement.config.MongoIndexInitializer.*;
+
+@SpringBootTest(classes = {AdvertisementApplication.class, MongoContainerConfiguration.class})
+@ContextConfiguration
+@Testcontainers
+@CommonsLog
+class MongoIndexInitializerTest {
+
+    @Autowired
+    private MongoIndexInitializer mongoIndexInitializer;
+
+    @Autowired
+    private ReactiveMongoTemplate mongoTemplate;
+
+    @BeforeEach
+    void setUp() {
+        // Dropping the collections drops their indexes as well
+        mongoTemplate.dropCollection(Impression.class).block();
+        mongoTemplate.dropCollection(Click.class).block();
+    }
+
+    @Test
+    void testCreateIndexes() {
+        StepVerifier.create(mongoIndexInitializer.createIndexes())
+                .verifyComplete();
+
+        StepVerifier.create(mongoTemplate.indexOps(Click.class).getIndexInfo().map(IndexInfo::getName).collectList())
+                .expectNextMatches(names -> names.contains(CLICK_IMPRESSION_ID_INDEX))
+                .verifyComplete();
+
+        StepVerifier.create(mongoTemplate.indexOps(Impression.class).getIndexInfo().map(IndexInfo::getName).collectList())
+                .expectNextMatches(names -> names.contains(IMPRESSION_APP_COUNTRY_INDEX)
+                        && names.contains(IMPRESSION_APP_COUNTRY_ADVERTISER_INDEX))
+                .verifyComplete();
+    }
+
+    @Test
+    void testUnusedIndexes_ReportedWithoutJoinIndex() {
+        insertImpressionAndClick();
+
+        // Without the join index neither pipeline can use it
+        StepVerifier.create(mongoIndexInitializer.unusedIndexes())
+                .expectNextCount(2)
+                .verifyComplete();
+    }
+
+    @Test
+    void testUnusedIndexes_NoneReportedWithIndexes() {
+        mongoIndexInitializer.createIndexes().block();
+        insertImpressionAndClick();
+
+        StepVerifier.create(mongoIndexInitializer.unusedIndexes())
+                .verifyComplete();
+    }
+
+    private void insertImpressionAndClick() {
+        mongoTemplate.insert(new Impression("1", "app1", "US", "adv1")).block();
+        mongoTemplate.insert(new Click("1", "1", 50.0)).block();
+    }
+}
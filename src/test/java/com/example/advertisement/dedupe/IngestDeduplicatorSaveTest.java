@@ -0,0 +1,84 @@
+package com.example.advertisement.dedupe;
+
+import com.example.advertisement.AdvertisementApplication;
+import com.example.advertisement.config.MongoContainerConfiguration;
+import com.example.advertisement.impression.ImpressionService;
+import com.example.advertisement.model.Impression;
+import lombok.extern.apachecommons.CommonsLog;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.test.context.ContextConfiguration;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(classes = {AdvertisementApplication.class, MongoContainerConfiguration.class},
+        properties = {"advertisement.dedupe.enabled=true", "advertisement.dedupe.path=" + IngestDeduplicatorSaveTest.PATH})
+@ContextConfiguration
+@Testcontainers
+@CommonsLog
+class IngestDeduplicatorSaveTest {
+
+    // Under the build directory, as the filters are saved again when the context shuts down
+    static final String PATH = "target/dedupe-test";
+
+    private static final Path DIRECTORY = Path.of(PATH);
+
+    @Autowired
+    private ImpressionService impressionService;
+
+    @Autowired
+    private IngestDeduplicator deduplicator;
+
+    @Autowired
+    private ReactiveMongoTemplate mongoTemplate;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        // Start without filters saved by previous runs, and with an empty collection
+        deleteDirectory();
+        mongoTemplate.dropCollection(Impression.class).block();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        deleteDirectory();
+    }
+
+    @Test
+    void testSave_WritesFilters() {
+        impressionService.load(Flux.fromIterable(List.of(
+                new Impression("1", "app1", "US", "adv1"),
+                new Impression("2", "app1", "US", "adv2")))).blockLast();
+
+        deduplicator.save();
+
+        assertThat(DIRECTORY.resolve("impression.bloom")).exists();
+        assertThat(DIRECTORY.resolve("impression.bloom.tmp")).doesNotExist();
+    }
+
+    private void deleteDirectory() throws IOException {
+        if (!Files.exists(DIRECTORY)) {
+            return;
+        }
+        Files.walk(DIRECTORY)
+                .sorted((a, b) -> b.compareTo(a)) // Delete files before directory
+                .forEach(path -> {
+                    try {
+                        Files.delete(path);
+                    } catch (IOException e) {
+                        log.error("Failed to delete temp file: " + path, e);
+                    }
+                });
+    }
+}
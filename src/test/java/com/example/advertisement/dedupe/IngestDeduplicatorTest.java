@@ -0,0 +1,100 @@
+package com.example.advertisement.dedupe;
+
+import com.example.advertisement.AdvertisementApplication;
+import com.example.advertisement.click.ClickService;
+import com.example.advertisement.config.MongoContainerConfiguration;
+import com.example.advertisement.impression.ImpressionService;
+import com.example.advertisement.model.Click;
+import com.example.advertisement.model.Impression;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.apachecommons.CommonsLog;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.test.context.ContextConfiguration;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(classes = {AdvertisementApplication.class, MongoContainerConfiguration.class},
+        properties = {"advertisement.dedupe.enabled=true", "advertisement.ingest.batch-size=2"})
+@ContextConfiguration
+@Testcontainers
+@CommonsLog
+class IngestDeduplicatorTest {
+
+    private static final List<Impression> IMPRESSIONS = List.of(
+            new Impression("1", "app1", "US", "adv1"),
+            new Impression("2", "app1", "US", "adv2"),
+            new Impression("3", "app2", "CA", "adv1"));
+
+    @Autowired
+    private ImpressionService impressionService;
+
+    @Autowired
+    private ClickService clickService;
+
+    @Autowired
+    private ReactiveMongoTemplate mongoTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        // Clean the collections before each test
+        mongoTemplate.dropCollection(Impression.class).block();
+        mongoTemplate.dropCollection(Click.class).block();
+    }
+
+    @Test
+    void testReload_SkipsStoredDocuments() {
+        StepVerifier.create(impressionService.load(Flux.fromIterable(IMPRESSIONS)))
+                .expectNextCount(3)
+                .verifyComplete();
+
+        double skipped = skipped("impression");
+        List<Impression> overlapping = List.of(IMPRESSIONS.get(2), new Impression("4", "app3", "UK", "adv4"));
+        StepVerifier.create(impressionService.load(Flux.concat(Flux.fromIterable(IMPRESSIONS), Flux.fromIterable(overlapping))))
+                .expectNextMatches(impression -> impression.getId().equals("4"))
+                .verifyComplete();
+
+        assertThat(skipped("impression") - skipped).isEqualTo(4);
+        assertThat(mongoTemplate.findAll(Impression.class).count().block()).isEqualTo(4);
+    }
+
+    @Test
+    void testReload_ClicksSkipped() {
+        List<Click> clicks = List.of(new Click("1", "1", 50.0), new Click("2", "2", 75.0));
+        clickService.load(Flux.fromIterable(clicks)).blockLast();
+
+        double skipped = skipped("click");
+        StepVerifier.create(clickService.load(Flux.fromIterable(clicks)))
+                .verifyComplete();
+
+        assertThat(skipped("click") - skipped).isEqualTo(2);
+    }
+
+    @Test
+    void testReload_ProbableDuplicatesMissingFromMongoAreInserted() {
+        impressionService.load(Flux.fromIterable(IMPRESSIONS)).blockLast();
+        mongoTemplate.dropCollection(Impression.class).block();
+
+        // The filter knows every id, but Mongo holds none of them any more
+        StepVerifier.create(impressionService.load(Flux.fromIterable(IMPRESSIONS)))
+                .expectNextCount(3)
+                .verifyComplete();
+        assertThat(mongoTemplate.findAll(Impression.class).collectList().block())
+                .containsExactlyInAnyOrderElementsOf(IMPRESSIONS);
+    }
+
+    private double skipped(String collection) {
+        return meterRegistry.counter("advertisement.dedupe.skipped", "collection", collection).count();
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.advertisement.dedupe;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ScalableBloomFilterTest {
+
+    @Test
+    void mightContain_shouldFindEveryAddedIdWhileGrowing() {
+        // Capacity of the first layer far below the number of ids, so the filter grows several times
+        ScalableBloomFilter filter = new ScalableBloomFilter(1_000, 0.01);
+        for (int i = 0; i < 100_000; i++) {
+            filter.add("id-" + i);
+        }
+
+        for (int i = 0; i < 100_000; i++) {
+            assertThat(filter.mightContain("id-" + i)).isTrue();
+        }
+        int falsePositives = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (filter.mightContain("other-" + i)) {
+                falsePositives++;
+            }
+        }
+        assertThat(falsePositives).isLessThan(1_000);
+        assertThat(filter.size()).isBetween(99_000L, 100_000L);
+    }
+
+    @Test
+    void add_shouldNotCountProbablyPresentIds() {
+        ScalableBloomFilter filter = new ScalableBloomFilter(100, 0.01);
+        filter.add("1");
+        filter.add("1");
+
+        assertThat(filter.size()).isEqualTo(1);
+        assertThat(filter.mightContain("2")).isFalse();
+    }
+
+    @Test
+    void readFrom_shouldRestoreWrittenFilter() throws IOException {
+        ScalableBloomFilter filter = new ScalableBloomFilter(100, 0.01);
+        for (int i = 0; i < 1_000; i++) {
+            filter.add("id-" + i);
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        filter.writeTo(new DataOutputStream(bytes));
+
+        ScalableBloomFilter restored = ScalableBloomFilter.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        assertThat(restored.size()).isEqualTo(filter.size());
+        assertThat(restored.sizeInBytes()).isEqualTo(filter.sizeInBytes());
+        for (int i = 0; i < 1_000; i++) {
+            assertThat(restored.mightContain("id-" + i)).isTrue();
+        }
+    }
+
+    @Test
+    void readFrom_shouldRejectOtherFiles() {
+        assertThatThrownBy(() -> ScalableBloomFilter.readFrom(new DataInputStream(new ByteArrayInputStream(new byte[8]))))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("Not a bloom filter file");
+    }
+
+    @Test
+    void constructor_shouldRejectInvalidArguments() {
+        assertThatThrownBy(() -> new ScalableBloomFilter(0, 0.01))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new ScalableBloomFilter(100, 1.0))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
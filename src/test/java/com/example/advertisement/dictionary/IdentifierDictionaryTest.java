@@ -0,0 +1,171 @@
+package com.example.advertisement.dictionary;
+
+import com.example.advertisement.AdvertisementApplication;
+import com.example.advertisement.click.ClickService;
+import com.example.advertisement.config.MongoContainerConfiguration;
+import com.example.advertisement.impression.ImpressionService;
+import com.example.advertisement.metric.MetricsCalculatorService;
+import com.example.advertisement.model.Click;
+import com.example.advertisement.model.Impression;
+import com.example.advertisement.model.Metrics;
+import com.example.advertisement.model.Recommendation;
+import com.example.advertisement.recommendation.RecommendationService;
+import lombok.extern.apachecommons.CommonsLog;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.test.context.ContextConfiguration;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+@SpringBootTest(classes = {AdvertisementApplication.class, MongoContainerConfiguration.class},
+        properties = "advertisement.dictionary.enabled=true")
+@ContextConfiguration
+@Testcontainers
+@CommonsLog
+class IdentifierDictionaryTest {
+
+    @Autowired
+    private ImpressionService impressionService;
+
+    @Autowired
+    private ClickService clickService;
+
+    @Autowired
+    private MetricsCalculatorService metricsCalculatorService;
+
+    @Autowired
+    private RecommendationService recommendationService;
+
+    @Autowired
+    private IdentifierDictionary identifierDictionary;
+
+    @Autowired
+    private ReactiveMongoTemplate mongoTemplate;
+
+    private Path tempDir;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        // Create a temporary directory for testing
+        tempDir = Files.createTempDirectory("testDir");
+        // Clean the collections before each test
+        mongoTemplate.dropCollection(Impression.class).block();
+        mongoTemplate.dropCollection(Click.class).block();
+
+        Files.write(tempDir.resolve("impressions.json"), ("[" +
+                "{\"id\":\"1\", \"app_id\":\"app1\", \"country_code\":\"US\", \"advertiser_id\":\"adv1\"}, " +
+                "{\"id\":\"2\", \"app_id\":\"app1\", \"country_code\":\"US\", \"advertiser_id\":\"adv2\"}, " +
+                "{\"id\":\"3\", \"app_id\":\"app2\", \"country_code\":\"CA\", \"advertiser_id\":\"adv1\"}]").getBytes());
+        Files.write(tempDir.resolve("clicks.json"), ("[" +
+                "{\"id\":\"1\", \"impression_id\":\"1\", \"revenue\":50.0}, " +
+                "{\"id\":\"2\", \"impression_id\":\"2\", \"revenue\":75.0}, " +
+                "{\"id\":\"3\", \"impression_id\":\"3\", \"revenue\":100.0}]").getBytes());
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        // Clean up the temporary directory after each test
+        Files.walk(tempDir)
+                .sorted((a, b) -> b.compareTo(a)) // reverse order, so files are deleted before directories
+                .forEach(path -> {
+                    try {
+                        Files.delete(path);
+                    } catch (IOException e) {
+                        log.error("Failed to delete temp file: " + path, e);
+                    }
+                });
+    }
+
+    @Test
+    void testLoad_StoresIdentifiersAsCodes() {
+        StepVerifier.create(impressionService.load(tempDir.resolve("impressions.json").toString()))
+                .expectNextCount(3)
+                .verifyComplete();
+
+        StepVerifier.create(mongoTemplate.findAll(Document.class, mongoTemplate.getCollectionName(Impression.class)))
+                .thenConsumeWhile(document -> document.get("appId") instanceof Integer
+                        && document.get("countryCode") instanceof Integer
+                        && document.get("advertiserId") instanceof Integer)
+                .verifyComplete();
+    }
+
+    @Test
+    void testWrite_ConvertsOnlyEncodedImpressions() {
+        // Encoded by the load, with a missing countryCode
+        impressionService.load(Flux.just(new Impression("1", "app1", null, "adv1"))).blockLast();
+        // Written directly, without going through the dictionary
+        mongoTemplate.insert(new Impression("2", "42", null, "7")).block();
+
+        String collection = mongoTemplate.getCollectionName(Impression.class);
+        Document encoded = mongoTemplate.findById("1", Document.class, collection).block();
+        assertThat(encoded.get("appId")).isInstanceOf(Integer.class);
+        assertThat(encoded).doesNotContainKey("countryCode");
+        Document plain = mongoTemplate.findById("2", Document.class, collection).block();
+        assertThat(plain.get("appId")).isEqualTo("42");
+        assertThat(plain.get("advertiserId")).isEqualTo("7");
+    }
+
+    @Test
+    void testDecode_RestoresIdentifiersInOutput() {
+        StepVerifier.create(impressionService.load(tempDir.resolve("impressions.json").toString()))
+                .expectNextCount(3)
+                .verifyComplete();
+        StepVerifier.create(clickService.load(tempDir.resolve("clicks.json").toString()))
+                .expectNextCount(3)
+                .verifyComplete();
+
+        List<Metrics> metrics = identifierDictionary.decodeMetrics(metricsCalculatorService.metrics())
+                .collectSortedList(Comparator.comparing(Metrics::getAppId))
+                .block();
+        assertThat(metrics).extracting(Metrics::getAppId, Metrics::getCountryCode, Metrics::getImpressions, Metrics::getRevenue)
+                .containsExactly(
+                        tuple("app1", "US", 2L, 125.0),
+                        tuple("app2", "CA", 1L, 100.0));
+
+        List<Recommendation> recommendations = identifierDictionary.decodeRecommendations(recommendationService.recommendations(2))
+                .collectSortedList(Comparator.comparing(Recommendation::getAppId))
+                .block();
+        assertThat(recommendations).containsExactly(
+                new Recommendation("app1", "US", List.of("adv2", "adv1")),
+                new Recommendation("app2", "CA", List.of("adv1")));
+    }
+
+    @Test
+    void testRecommendations_RankEqualRevenueByIdentifier() throws IOException {
+        // Codes follow arrival order, so advC, advB and advA get codes 0, 1 and 2
+        Files.write(tempDir.resolve("impressions.json"), ("[" +
+                "{\"id\":\"1\", \"app_id\":\"app1\", \"country_code\":\"US\", \"advertiser_id\":\"advC\"}, " +
+                "{\"id\":\"2\", \"app_id\":\"app1\", \"country_code\":\"US\", \"advertiser_id\":\"advB\"}, " +
+                "{\"id\":\"3\", \"app_id\":\"app1\", \"country_code\":\"US\", \"advertiser_id\":\"advA\"}]").getBytes());
+        Files.write(tempDir.resolve("clicks.json"), ("[" +
+                "{\"id\":\"1\", \"impression_id\":\"1\", \"revenue\":10.0}, " +
+                "{\"id\":\"2\", \"impression_id\":\"2\", \"revenue\":10.0}, " +
+                "{\"id\":\"3\", \"impression_id\":\"3\", \"revenue\":10.0}]").getBytes());
+        StepVerifier.create(impressionService.load(tempDir.resolve("impressions.json").toString()))
+                .expectNextCount(3)
+                .verifyComplete();
+        StepVerifier.create(clickService.load(tempDir.resolve("clicks.json").toString()))
+                .expectNextCount(3)
+                .verifyComplete();
+
+        // Same advertisers in the same order as without the dictionary
+        StepVerifier.create(identifierDictionary.decodeRecommendations(recommendationService.recommendations(2)))
+                .expectNext(new Recommendation("app1", "US", List.of("advA", "advB")))
+                .verifyComplete();
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.advertisement.generator;
+
+import com.example.advertisement.config.ObjectMapperConfiguration;
+import com.example.advertisement.model.Click;
+import com.example.advertisement.model.Impression;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.apachecommons.CommonsLog;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.test.StepVerifier;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@CommonsLog
+class DatasetGeneratorTest {
+
+    private static final DatasetSpec SPEC = new DatasetSpec(10_000, 10, 3, 20, 1.0, 0.1, RevenueDistribution.LOGNORMAL, 2.0, 7);
+
+    private final ObjectMapper objectMapper = new ObjectMapperConfiguration().objectMapper();
+    private final DatasetGenerator datasetGenerator = new DatasetGenerator(objectMapper);
+    private Path tempDir;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        // Create a temporary directory for testing
+        tempDir = Files.createTempDirectory("testDir");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        // Clean up the temporary directory after each test
+        Files.walk(tempDir)
+                .sorted((a, b) -> b.compareTo(a)) // Delete files before directory
+                .forEach(path -> {
+                    try {
+                        Files.delete(path);
+                    } catch (IOException e) {
+                        log.error("Failed to delete temp file: " + path, e);
+                    }
+                });
+    }
+
+    @Test
+    void testGenerate_ShapeOfDataset() throws IOException {
+        Path impressionFile = tempDir.resolve("impressions.json");
+        Path clickFile = tempDir.resolve("clicks.json");
+        StepVerifier.create(datasetGenerator.impressions(SPEC, impressionFile))
+                .expectNext(10_000L)
+                .verifyComplete();
+        long clickCount = datasetGenerator.clicks(SPEC, clickFile).block();
+        assertThat(tempDir.resolve("impressions.json.tmp")).doesNotExist();
+
+        List<Impression> impressions = objectMapper.readValue(impressionFile.toFile(), new TypeReference<>() {
+        });
+        List<Click> clicks = objectMapper.readValue(clickFile.toFile(), new TypeReference<>() {
+        });
+
+        assertThat(impressions).hasSize(10_000);
+        assertThat(impressions).extracting(Impression::getId).doesNotHaveDuplicates();
+        assertThat(impressions).extracting(Impression::getCountryCode).containsOnly("AD", "AE", "AF");
+
+        // The most popular app is drawn far more often than the least popular one
+        Map<String, Long> perApp = impressions.stream()
+                .collect(Collectors.groupingBy(Impression::getAppId, Collectors.counting()));
+        assertThat(perApp).hasSize(10);
+        assertThat(perApp.get("1")).isGreaterThan(5 * perApp.get("10"));
+
+        // Roughly one click per ten impressions, every click on a generated impression
+        assertThat(clicks).hasSize((int) clickCount);
+        assertThat(clickCount).isBetween(800L, 1200L);
+        Set<String> impressionIds = impressions.stream().map(Impression::getId).collect(Collectors.toSet());
+        assertThat(clicks).allSatisfy(click -> {
+            assertThat(impressionIds).contains(click.getImpressionId());
+            assertThat(click.getRevenue()).isNotNegative();
+        });
+        double meanRevenue = clicks.stream().mapToDouble(Click::getRevenue).average().orElseThrow();
+        assertThat(meanRevenue).isBetween(1.5, 2.5);
+    }
+
+    @Test
+    void testGenerate_Deterministic() throws IOException {
+        Path first = tempDir.resolve("first.json");
+        Path second = tempDir.resolve("second.json");
+        datasetGenerator.clicks(SPEC, first).block();
+        datasetGenerator.clicks(SPEC, second).block();
+
+        assertThat(Files.mismatch(first, second)).isEqualTo(-1);
+    }
+
+    @Test
+    void testZipfSampler_UniformWithoutSkew() {
+        ZipfSampler sampler = new ZipfSampler(4, 0);
+        SplittableRandom random = new SplittableRandom(1);
+        Map<Integer, Long> counts = IntStream.range(0, 40_000).boxed()
+                .collect(Collectors.groupingBy(i -> sampler.sample(random), Collectors.counting()));
+
+        assertThat(counts).containsOnlyKeys(0, 1, 2, 3);
+        assertThat(counts.values()).allSatisfy(count -> assertThat(count).isBetween(9_000L, 11_000L));
+    }
+
+    @Test
+    void testSpec_Invalid() {
+        assertThatThrownBy(() -> new DatasetSpec(10, 1, 1, 1, 1.0, 1.5, RevenueDistribution.UNIFORM, 1.0, 1))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new DatasetSpec(10, 1, 1000, 1, 1.0, 0.1, RevenueDistribution.UNIFORM, 1.0, 1))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new DatasetSpec(10, 0, 1, 1, 1.0, 0.1, RevenueDistribution.UNIFORM, 1.0, 1))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
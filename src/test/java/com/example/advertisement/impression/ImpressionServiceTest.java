@@ -9,6 +9,7 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
 import org.springframework.test.context.ContextConfiguration;
 import org.testcontainers.junit.jupiter.Testcontainers;
 import reactor.core.publisher.Flux;
@@ -28,7 +29,7 @@ class ImpressionServiceTest {
     private ImpressionService impressionService;
 
     @Autowired
-    private ImpressionRepository repository;
+    private ReactiveMongoTemplate mongoTemplate;
 
     private Path tempDir;
 
@@ -36,8 +37,8 @@ class ImpressionServiceTest {
     void setUp() throws Exception {
         // Create a temporary directory for testing
         tempDir = Files.createTempDirectory("testDir");
-        // Clean the repository before each test
-        repository.deleteAll().block();
+        // Clean the collection before each test
+        mongoTemplate.dropCollection(Impression.class).block();
     }
 
     @AfterEach
@@ -72,8 +73,8 @@ class ImpressionServiceTest {
                 .expectComplete()
                 .verify();
 
-        // Validate that the impressions are stored in the repository
-        StepVerifier.create(repository.findAll())
+        // Validate that the impressions are stored in the collection
+        StepVerifier.create(mongoTemplate.findAll(Impression.class))
                 .expectNextMatches(impression -> impression.getId().equals("1") && impression.getCountryCode().equals("US"))
                 .expectNextMatches(impression -> impression.getId().equals("2") && impression.getCountryCode().equals("CA"))
                 .verifyComplete();
@@ -93,8 +94,8 @@ class ImpressionServiceTest {
                 .expectComplete()
                 .verify();
 
-        // Validate that no impressions are stored in the repository
-        StepVerifier.create(repository.findAll())
+        // Validate that no impressions are stored in the collection
+        StepVerifier.create(mongoTemplate.findAll(Impression.class))
                 .expectNextCount(0)
                 .verifyComplete();
     }
@@ -125,8 +126,8 @@ class ImpressionServiceTest {
                 .expectComplete()
                 .verify();
 
-        // Validate that no impressions are stored in the repository
-        StepVerifier.create(repository.findAll())
+        // Validate that no impressions are stored in the collection
+        StepVerifier.create(mongoTemplate.findAll(Impression.class))
                 .expectNextCount(0)
                 .verifyComplete();
     }
@@ -0,0 +1,159 @@
+package com.example.advertisement.ingest;
+
+import com.example.advertisement.AdvertisementApplication;
+import com.example.advertisement.config.MongoContainerConfiguration;
+import com.example.advertisement.impression.ImpressionService;
+import com.example.advertisement.model.Impression;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.apachecommons.CommonsLog;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.test.context.ContextConfiguration;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import reactor.test.StepVerifier;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(classes = {AdvertisementApplication.class, MongoContainerConfiguration.class},
+        properties = {"advertisement.manifest.enabled=true", "advertisement.manifest.checkpoint-interval=2",
+                "advertisement.manifest.hash-sample-size=16", "advertisement.ingest.batch-size=2"})
+@ContextConfiguration
+@Testcontainers
+@CommonsLog
+class IngestManifestTest {
+
+    private static final String FIRST_LINE = "{\"id\":\"1\", \"app_id\":\"app1\", \"country_code\":\"US\", \"advertiser_id\":\"adv1\"}";
+    private static final String NDJSON = FIRST_LINE + "\n" +
+            "{\"id\":\"2\", \"app_id\":\"app1\", \"country_code\":\"US\", \"advertiser_id\":\"adv2\"}\n" +
+            "{\"id\":\"3\", \"app_id\":\"app2\", \"country_code\":\"CA\", \"advertiser_id\":\"adv1\"}\n";
+
+    @Autowired
+    private ImpressionService impressionService;
+
+    @Autowired
+    private ReactiveMongoTemplate mongoTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Path tempDir;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        // Create a temporary directory for testing
+        tempDir = Files.createTempDirectory("testDir");
+        // Clean the collections before each test
+        mongoTemplate.dropCollection(Impression.class).block();
+        mongoTemplate.dropCollection(IngestManifest.MANIFEST_COLLECTION).block();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        // Clean up the temporary directory after each test
+        Files.walk(tempDir)
+                .sorted((a, b) -> b.compareTo(a)) // Delete files before directory
+                .forEach(path -> {
+                    try {
+                        Files.delete(path);
+                    } catch (IOException e) {
+                        log.error("Failed to delete temp file: " + path, e);
+                    }
+                });
+    }
+
+    @Test
+    void testLoad_SkipsUnchangedFiles() throws IOException {
+        Path file = tempDir.resolve("impressions.ndjson");
+        Files.write(file, NDJSON.getBytes());
+
+        StepVerifier.create(impressionService.load(file.toString()))
+                .expectNextCount(3)
+                .verifyComplete();
+        ManifestEntry entry = mongoTemplate.findById("impression:" + file.toAbsolutePath(), ManifestEntry.class).block();
+        assertThat(entry.isComplete()).isTrue();
+        assertThat(entry.getElements()).isEqualTo(3);
+        assertThat(entry.getOffset()).isEqualTo(NDJSON.length() - 1);
+
+        // The second load does not read the file
+        double skipped = meterRegistry.counter("advertisement.manifest.files.skipped", "collection", "impression").count();
+        StepVerifier.create(impressionService.load(file.toString()))
+                .verifyComplete();
+        assertThat(meterRegistry.counter("advertisement.manifest.files.skipped", "collection", "impression").count())
+                .isEqualTo(skipped + 1);
+    }
+
+    @Test
+    void testLoad_ReadsChangedFiles() throws IOException {
+        Path file = tempDir.resolve("impressions.ndjson");
+        Files.write(file, NDJSON.getBytes());
+        impressionService.load(file.toString()).blockLast();
+
+        // Appending changes the fingerprint, so the file is read again and only the new impression is inserted
+        Files.writeString(file, NDJSON + "{\"id\":\"4\", \"app_id\":\"app3\", \"country_code\":\"UK\", \"advertiser_id\":\"adv4\"}\n");
+        StepVerifier.create(impressionService.load(file.toString()))
+                .expectNextMatches(impression -> impression.getId().equals("4"))
+                .verifyComplete();
+        assertThat(mongoTemplate.findById("impression:" + file.toAbsolutePath(), ManifestEntry.class).block().getElements())
+                .isEqualTo(4);
+    }
+
+    @Test
+    void testLoadFiles_SkipsFilesLoadedByPattern() throws IOException {
+        Path file = tempDir.resolve("impressions.ndjson");
+        Files.write(file, NDJSON.getBytes());
+        impressionService.load(file.toString()).blockLast();
+
+        // Watched files go through the same manifest entries as the files of load
+        double skipped = meterRegistry.counter("advertisement.manifest.files.skipped", "collection", "impression").count();
+        StepVerifier.create(impressionService.load(List.of(file)))
+                .verifyComplete();
+        assertThat(meterRegistry.counter("advertisement.manifest.files.skipped", "collection", "impression").count())
+                .isEqualTo(skipped + 1);
+    }
+
+    @Test
+    void testLoad_ResumesInterruptedFileAtOffset() throws IOException {
+        Path file = tempDir.resolve("impressions.ndjson");
+        Files.write(file, NDJSON.getBytes());
+        interrupted(file, 1, FIRST_LINE.length());
+
+        // Only the impressions after the checkpoint are read
+        StepVerifier.create(impressionService.load(file.toString()))
+                .expectNextMatches(impression -> impression.getId().equals("2"))
+                .expectNextMatches(impression -> impression.getId().equals("3"))
+                .verifyComplete();
+        assertThat(mongoTemplate.findById("1", Impression.class).block()).isNull();
+        assertThat(mongoTemplate.findById("impression:" + file.toAbsolutePath(), ManifestEntry.class).block().isComplete()).isTrue();
+    }
+
+    @Test
+    void testLoad_ResumesInterruptedArrayBySkipping() throws IOException {
+        Path file = tempDir.resolve("impressions.json");
+        Files.writeString(file, "[" + NDJSON.strip().replace("\n", ",\n") + "]");
+        interrupted(file, 2, -1);
+
+        StepVerifier.create(impressionService.load(file.toString()))
+                .expectNextMatches(impression -> impression.getId().equals("3"))
+                .verifyComplete();
+    }
+
+    /**
+     * Records an incomplete load of the current content of a file.
+     */
+    private void interrupted(Path file, long elements, long offset) throws IOException {
+        FileFingerprint fingerprint = FileFingerprint.of(file, 16);
+        Path path = file.toAbsolutePath();
+        mongoTemplate.save(new ManifestEntry("impression:" + path, "impression", path.toString(), fingerprint.size(),
+                fingerprint.lastModified(), fingerprint.hash(), false, elements, offset, Instant.now())).block();
+    }
+}
@@ -0,0 +1,169 @@
+package com.example.advertisement.job;
+
+import com.example.advertisement.AdvertisementApplication;
+import com.example.advertisement.config.MongoContainerConfiguration;
+import com.example.advertisement.generator.DatasetGenerator;
+import com.example.advertisement.generator.DatasetSpec;
+import com.example.advertisement.generator.RevenueDistribution;
+import com.example.advertisement.model.Click;
+import com.example.advertisement.model.Impression;
+import lombok.extern.apachecommons.CommonsLog;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.test.context.ContextConfiguration;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+@SpringBootTest(classes = {AdvertisementApplication.class, MongoContainerConfiguration.class})
+@ContextConfiguration
+@Testcontainers
+@CommonsLog
+class JobRunnerTest {
+
+    @Autowired
+    private JobRunner jobRunner;
+
+    @Autowired
+    private DatasetGenerator datasetGenerator;
+
+    @Autowired
+    private ReactiveMongoTemplate mongoTemplate;
+
+    private Path tempDir;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        // Create a temporary directory for testing
+        tempDir = Files.createTempDirectory("testDir");
+        // Clean the collections before each test
+        mongoTemplate.dropCollection(Impression.class).block();
+        mongoTemplate.dropCollection(Click.class).block();
+
+        Files.write(tempDir.resolve("impressions.json"), ("[" +
+                "{\"id\":\"1\", \"app_id\":\"app1\", \"country_code\":\"US\", \"advertiser_id\":\"adv1\"}, " +
+                "{\"id\":\"2\", \"app_id\":\"app1\", \"country_code\":\"US\", \"advertiser_id\":\"adv2\"}, " +
+                "{\"id\":\"3\", \"app_id\":\"app2\", \"country_code\":\"CA\", \"advertiser_id\":\"adv1\"}]").getBytes());
+        Files.write(tempDir.resolve("clicks.json"), ("[" +
+                "{\"id\":\"1\", \"impression_id\":\"1\", \"revenue\":50.0}, " +
+                "{\"id\":\"2\", \"impression_id\":\"2\", \"revenue\":75.0}]").getBytes());
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        // Clean up the temporary directory after each test
+        Files.walk(tempDir)
+                .sorted((a, b) -> b.compareTo(a)) // Delete files before directory
+                .forEach(path -> {
+                    try {
+                        Files.delete(path);
+                    } catch (IOException e) {
+                        log.error("Failed to delete temp file: " + path, e);
+                    }
+                });
+    }
+
+    @Test
+    void testRun_StagesInOrder() throws IOException {
+        Path metrics = tempDir.resolve("metrics.json");
+        Path recommendations = tempDir.resolve("recommendations.json");
+
+        List<StageResult> results = jobRunner.run(tempDir.resolve("impressions.json").toString(),
+                tempDir.resolve("clicks.json").toString(), metrics.toString(), recommendations.toString(), 5).block();
+
+        // Both loads complete before metrics, and metrics before recommendations
+        assertThat(results.subList(0, 2)).extracting(StageResult::stage)
+                .containsExactlyInAnyOrder("load-impressions", "load-clicks");
+        assertThat(results.subList(2, 4)).extracting(StageResult::stage)
+                .containsExactly("metrics", "recommendations");
+        assertThat(results).extracting(StageResult::stage, StageResult::records).containsExactlyInAnyOrder(
+                tuple("load-impressions", 3L), tuple("load-clicks", 2L), tuple("metrics", 2L), tuple("recommendations", 2L));
+
+        // The outputs are complete when the job completes
+        assertThat(Files.readString(metrics)).contains("\"app1\"", "\"app2\"");
+        assertThat(Files.readString(recommendations)).contains("[\"adv2\",\"adv1\"]");
+    }
+
+    @Test
+    void testRun_DatasetsOfDifferentSeedsLoadTogether() throws IOException {
+        long expectedClicks = 0;
+        for (long seed : new long[]{1, 2}) {
+            DatasetSpec spec = new DatasetSpec(500, 5, 2, 5, 1.0, 0.2, RevenueDistribution.UNIFORM, 1.0, seed);
+            Path directory = Files.createDirectory(tempDir.resolve("seed-" + seed));
+            datasetGenerator.impressions(spec, directory.resolve("impressions.json")).block();
+            expectedClicks += datasetGenerator.clicks(spec, directory.resolve("clicks.json")).block();
+
+            jobRunner.run(directory.resolve("impressions.json").toString(), directory.resolve("clicks.json").toString(),
+                    directory.resolve("metrics.json").toString(), directory.resolve("recommendations.json").toString(), 5).block();
+        }
+
+        // The clicks of the second dataset are not skipped as duplicates of the first
+        assertThat(mongoTemplate.findAll(Impression.class).count().block()).isEqualTo(1000);
+        assertThat(mongoTemplate.findAll(Click.class).count().block()).isEqualTo(expectedClicks);
+    }
+
+    @Test
+    void testStage_ReportsRecordsPerSecond() {
+        StepVerifier.create(jobRunner.stage("test", Mono.just(500L)))
+                .assertNext(result -> {
+                    assertThat(result.stage()).isEqualTo("test");
+                    assertThat(result.records()).isEqualTo(500);
+                    assertThat(result.recordsPerSecond()).isPositive();
+                    assertThat(result.peakHeapBytes()).isPositive();
+                    assertThat(result.toString()).startsWith("test: 500 records in ");
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void testWatch_LoadsArrivingFiles() throws IOException {
+        Path incoming = Files.createDirectory(tempDir.resolve("incoming"));
+
+        StepVerifier.create(jobRunner.watch(incoming.resolve("impression*.json").toString(),
+                        incoming.resolve("click*.json").toString(), false, Duration.ofSeconds(5)))
+                // Let the watch register the directory, then drop the files into it
+                .thenAwait(Duration.ofMillis(500))
+                .then(() -> {
+                    try {
+                        Files.move(tempDir.resolve("impressions.json"), incoming.resolve("impressions.json"));
+                        Files.move(tempDir.resolve("clicks.json"), incoming.resolve("clicks.json"));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                })
+                .assertNext(result -> {
+                    assertThat(result.stage()).isEqualTo("watch");
+                    assertThat(result.records()).isEqualTo(5);
+                })
+                .verifyComplete();
+
+        assertThat(mongoTemplate.findAll(Impression.class).count().block()).isEqualTo(3);
+        assertThat(mongoTemplate.findAll(Click.class).count().block()).isEqualTo(2);
+    }
+
+    @Test
+    void testRun_FailedStageStopsJob() {
+        Path metrics = tempDir.resolve("metrics.json");
+
+        StepVerifier.create(jobRunner.run(tempDir.resolve("impressions.json").toString(), tempDir.resolve("clicks.json").toString(),
+                        metrics.toString(), tempDir.resolve("recommendations.json").toString(), 0))
+                .verifyError(IllegalArgumentException.class);
+
+        // Stages before the failure have completed
+        assertThat(metrics).exists();
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.advertisement.metric;
+
+import com.example.advertisement.AdvertisementApplication;
+import com.example.advertisement.config.MongoContainerConfiguration;
+import com.example.advertisement.config.MongoIndexInitializer;
+import com.example.advertisement.model.Click;
+import com.example.advertisement.model.Impression;
+import com.example.advertisement.model.Metrics;
+import lombok.extern.apachecommons.CommonsLog;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.AccumulatorOperators;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.ArrayOperators;
+import org.springframework.test.context.ContextConfiguration;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import reactor.core.publisher.Flux;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.*;
+
+/**
+ * Compares the metrics pipeline joining click summaries with the original pipeline
+ * joining every click document, on a synthetic dataset with many clicks per impression.
+ * Run with {@code mvn -Pbenchmark test}.
+ */
+@SpringBootTest(classes = {AdvertisementApplication.class, MongoContainerConfiguration.class})
+@ContextConfiguration
+@Testcontainers
+@CommonsLog
+@Tag("benchmark")
+class MetricsCalculatorServiceBenchmarkTest {
+
+    private static final int IMPRESSIONS = 5_000;
+    private static final int CLICKS_PER_IMPRESSION = 50;
+    private static final int ITERATIONS = 3;
+
+    @Autowired
+    private MetricsCalculatorService metricsCalculatorService;
+
+    @Autowired
+    private MongoIndexInitializer mongoIndexInitializer;
+
+    @Autowired
+    private ReactiveMongoTemplate mongoTemplate;
+
+    @BeforeEach
+    void setUp() {
+        mongoTemplate.dropCollection(Impression.class).block();
+        mongoTemplate.dropCollection(Click.class).block();
+        mongoIndexInitializer.createIndexes().block();
+
+        Random random = new Random(42);
+        List<Impression> impressions = new ArrayList<>();
+        List<Click> clicks = new ArrayList<>();
+        for (int i = 0; i < IMPRESSIONS; i++) {
+            impressions.add(new Impression(String.valueOf(i), "app" + random.nextInt(20), random.nextBoolean() ? "US" : "GB", "adv" + random.nextInt(100)));
+            for (int j = 0; j < CLICKS_PER_IMPRESSION; j++) {
+                clicks.add(new Click(i + "-" + j, String.valueOf(i), (double) random.nextInt(500)));
+            }
+        }
+        mongoTemplate.insertAll(impressions).blockLast();
+        mongoTemplate.insertAll(clicks).blockLast();
+    }
+
+    @Test
+    void benchmarkMetrics() {
+        List<Metrics> original = sorted(mongoTemplate.aggregate(originalAggregation(), Impression.class, Metrics.class));
+        long originalMillis = measure(() -> mongoTemplate.aggregate(originalAggregation(), Impression.class, Metrics.class));
+
+        // Both variants of the pipeline, whatever advertisement.metrics.persist-click-summary is set to
+        Supplier<Flux<Metrics>> inlineMetrics = () ->
+                mongoTemplate.aggregate(metricsCalculatorService.aggregation(false), Impression.class, Metrics.class);
+        List<Metrics> inline = sorted(inlineMetrics.get());
+        long inlineMillis = measure(inlineMetrics);
+
+        Supplier<Flux<Metrics>> persistedMetrics = () -> metricsCalculatorService.persistClickSummary()
+                .thenMany(mongoTemplate.aggregate(metricsCalculatorService.aggregation(true), Impression.class, Metrics.class));
+        List<Metrics> persisted = sorted(persistedMetrics.get());
+        long persistedMillis = measure(persistedMetrics);
+
+        log.info(String.format("Metrics over %d impressions and %d clicks: original %d ms, inline summary %d ms (%.2fx), persisted summary %d ms (%.2fx)",
+                IMPRESSIONS, IMPRESSIONS * CLICKS_PER_IMPRESSION, originalMillis,
+                inlineMillis, (double) originalMillis / inlineMillis,
+                persistedMillis, (double) originalMillis / persistedMillis));
+
+        assertThat(inline).isEqualTo(original);
+        assertThat(persisted).isEqualTo(original);
+    }
+
+    private long measure(Supplier<Flux<Metrics>> metrics) {
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            metrics.get().blockLast();
+        }
+        return (System.nanoTime() - start) / 1_000_000 / ITERATIONS;
+    }
+
+    private List<Metrics> sorted(Flux<Metrics> metrics) {
+        // Revenues are whole numbers, so sums are exact regardless of summation order
+        return metrics
+                .collectSortedList(Comparator.comparing(Metrics::getAppId).thenComparing(Metrics::getCountryCode))
+                .block();
+    }
+
+    /**
+     * The metrics pipeline as it was before clicks were summarized per impression.
+     */
+    private Aggregation originalAggregation() {
+        return newAggregation(
+                project()
+                        .and("_id").as("_id")
+                        .and("appId").as("appId")
+                        .and("countryCode").as("countryCode"),
+                lookup("click", "_id", "impressionId", "clickData"),
+                project()
+                        .and("_id").as("_id")
+                        .and("appId").as("appId")
+                        .and("countryCode").as("countryCode")
+                        .and(ArrayOperators.Size.lengthOfArray("clickData")).as("clicks")
+                        .and(AccumulatorOperators.Sum.sumOf("clickData.revenue")).as("revenue"),
+                group("appId", "countryCode")
+                        .count().as("impressions")
+                        .sum("clicks").as("clicks")
+                        .sum("revenue").as("revenue"),
+                project()
+                        .and("_id.appId").as("appId")
+                        .and("_id.countryCode").as("countryCode")
+                        .and("impressions").as("impressions")
+                        .and("clicks").as("clicks")
+                        .and("revenue").as("revenue")
+        );
+    }
+}
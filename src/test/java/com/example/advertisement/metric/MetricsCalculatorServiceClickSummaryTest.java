@@ -0,0 +1,11 @@
+package com.example.advertisement.metric;
+
+import org.springframework.test.context.TestPropertySource;
+
+/**
+ * Runs the metrics tests against click summaries persisted in the
+ * {@value MetricsCalculatorService#CLICK_SUMMARY_COLLECTION} collection.
+ */
+@TestPropertySource(properties = "advertisement.metrics.persist-click-summary=true")
+class MetricsCalculatorServiceClickSummaryTest extends MetricsCalculatorServiceTest {
+}
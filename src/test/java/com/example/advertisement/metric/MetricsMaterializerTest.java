@@ -0,0 +1,138 @@
+package com.example.advertisement.metric;
+
+import com.example.advertisement.AdvertisementApplication;
+import com.example.advertisement.click.ClickService;
+import com.example.advertisement.config.MongoContainerConfiguration;
+import com.example.advertisement.impression.ImpressionService;
+import com.example.advertisement.model.Click;
+import com.example.advertisement.model.Impression;
+import com.example.advertisement.model.Metrics;
+import lombok.extern.apachecommons.CommonsLog;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.test.context.ContextConfiguration;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(classes = {AdvertisementApplication.class, MongoContainerConfiguration.class},
+        properties = {"advertisement.metrics.mode=materialized", "advertisement.ingest.batch-size=2"})
+@ContextConfiguration
+@Testcontainers
+@CommonsLog
+class MetricsMaterializerTest {
+
+    @Autowired
+    private ImpressionService impressionService;
+
+    @Autowired
+    private ClickService clickService;
+
+    @Autowired
+    private MetricsCalculatorService metricsCalculatorService;
+
+    @Autowired
+    private MetricsMaterializer metricsMaterializer;
+
+    @Autowired
+    private ReactiveMongoTemplate mongoTemplate;
+
+    private Path tempDir;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        // Create a temporary directory for testing
+        tempDir = Files.createTempDirectory("testDir");
+        // Clean the collections before each test
+        mongoTemplate.dropCollection(Impression.class).block();
+        mongoTemplate.dropCollection(Click.class).block();
+        mongoTemplate.dropCollection(MetricsMaterializer.METRICS_COLLECTION).block();
+
+        Files.write(tempDir.resolve("impressions.json"), ("[" +
+                "{\"id\":\"1\", \"app_id\":\"app1\", \"country_code\":\"US\", \"advertiser_id\":\"adv1\"}, " +
+                "{\"id\":\"2\", \"app_id\":\"app1\", \"country_code\":\"US\", \"advertiser_id\":\"adv2\"}, " +
+                "{\"id\":\"3\", \"app_id\":\"app2\", \"country_code\":\"CA\", \"advertiser_id\":\"adv1\"}, " +
+                "{\"id\":\"4\", \"app_id\":\"app1\", \"country_code\":\"US\", \"advertiser_id\":\"adv3\"}, " +
+                "{\"id\":\"5\", \"app_id\":\"app3\", \"country_code\":\"UK\", \"advertiser_id\":\"adv4\"}]").getBytes());
+        Files.write(tempDir.resolve("clicks.json"), ("[" +
+                "{\"id\":\"1\", \"impression_id\":\"1\", \"revenue\":50.0}, " +
+                "{\"id\":\"2\", \"impression_id\":\"1\", \"revenue\":75.0}, " +
+                "{\"id\":\"3\", \"impression_id\":\"3\", \"revenue\":100.0}, " +
+                "{\"id\":\"4\", \"impression_id\":\"4\", \"revenue\":25.0}, " +
+                "{\"id\":\"5\", \"impression_id\":\"5\", \"revenue\":60.0}, " +
+                "{\"id\":\"6\", \"impression_id\":\"unknown\", \"revenue\":10.0}]").getBytes());
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        // Clean up the temporary directory after each test
+        Files.walk(tempDir)
+                .sorted((a, b) -> b.compareTo(a)) // reverse order, so files are deleted before directories
+                .forEach(path -> {
+                    try {
+                        Files.delete(path);
+                    } catch (IOException e) {
+                        log.error("Failed to delete temp file: " + path, e);
+                    }
+                });
+    }
+
+    @Test
+    void testMetrics_MaterializedDuringConcurrentLoad() {
+        // Load both files at once, so click and impression batches interleave
+        StepVerifier.create(Flux.merge(
+                        clickService.load(tempDir.resolve("clicks.json").toString()),
+                        impressionService.load(tempDir.resolve("impressions.json").toString())))
+                .expectNextCount(11)
+                .verifyComplete();
+
+        // Reloading the same data must not count it twice
+        StepVerifier.create(impressionService.load(tempDir.resolve("impressions.json").toString()))
+                .verifyComplete();
+
+        assertThat(sorted(metricsCalculatorService.metrics())).isEqualTo(fullRecompute());
+    }
+
+    @Test
+    void testRebuild_MatchesFullRecompute() {
+        // Store data without going through the load, so only a rebuild can materialize it
+        mongoTemplate.insertAll(List.of(
+                new Impression("1", "app1", "US", "adv1"),
+                new Impression("2", "app2", "CA", "adv1"))).blockLast();
+        mongoTemplate.insertAll(List.of(
+                new Click("1", "1", 50.0),
+                new Click("2", "2", 25.0))).blockLast();
+
+        StepVerifier.create(metricsCalculatorService.metrics())
+                .verifyComplete();
+
+        StepVerifier.create(metricsMaterializer.rebuild())
+                .verifyComplete();
+
+        assertThat(sorted(metricsCalculatorService.metrics()))
+                .hasSize(2)
+                .isEqualTo(fullRecompute());
+    }
+
+    private List<Metrics> fullRecompute() {
+        return sorted(mongoTemplate.aggregate(metricsCalculatorService.aggregation(), Impression.class, Metrics.class));
+    }
+
+    private List<Metrics> sorted(Flux<Metrics> metrics) {
+        return metrics
+                .collectSortedList(Comparator.comparing(Metrics::getAppId).thenComparing(Metrics::getCountryCode))
+                .block();
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.advertisement.metric;
+
+import com.example.advertisement.AdvertisementApplication;
+import com.example.advertisement.click.ClickService;
+import com.example.advertisement.config.MongoContainerConfiguration;
+import com.example.advertisement.impression.ImpressionService;
+import com.example.advertisement.model.Click;
+import com.example.advertisement.model.Impression;
+import com.example.advertisement.model.Metrics;
+import lombok.extern.apachecommons.CommonsLog;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.test.context.ContextConfiguration;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import reactor.test.StepVerifier;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+@SpringBootTest(classes = {AdvertisementApplication.class, MongoContainerConfiguration.class},
+        properties = "advertisement.metrics.mode=streaming")
+@ContextConfiguration
+@Testcontainers
+@CommonsLog
+class StreamingMetricsAggregatorTest {
+
+    @Autowired
+    private ImpressionService impressionService;
+
+    @Autowired
+    private ClickService clickService;
+
+    @Autowired
+    private MetricsCalculatorService metricsCalculatorService;
+
+    @Autowired
+    private StreamingMetricsAggregator streamingMetricsAggregator;
+
+    @Autowired
+    private ReactiveMongoTemplate mongoTemplate;
+
+    private Path tempDir;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        // Create a temporary directory for testing
+        tempDir = Files.createTempDirectory("testDir");
+        // Clean the collections and the accumulators before each test
+        mongoTemplate.dropCollection(Impression.class).block();
+        mongoTemplate.dropCollection(Click.class).block();
+        streamingMetricsAggregator.reset();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        // Clean up the temporary directory after each test
+        Files.walk(tempDir)
+                .sorted((a, b) -> b.compareTo(a)) // reverse order, so files are deleted before directories
+                .forEach(path -> {
+                    try {
+                        Files.delete(path);
+                    } catch (IOException e) {
+                        log.error("Failed to delete temp file: " + path, e);
+                    }
+                });
+    }
+
+    @Test
+    void testMetrics_AccumulatedDuringLoad() throws IOException {
+        Files.write(tempDir.resolve("impressions.json"), ("[" +
+                "{\"id\":\"1\", \"app_id\":\"app1\", \"country_code\":\"US\", \"advertiser_id\":\"adv1\"}, " +
+                "{\"id\":\"2\", \"app_id\":\"app1\", \"country_code\":\"US\", \"advertiser_id\":\"adv2\"}, " +
+                "{\"id\":\"3\", \"app_id\":\"app2\", \"country_code\":\"CA\", \"advertiser_id\":\"adv1\"}]").getBytes());
+        Files.write(tempDir.resolve("clicks.json"), ("[" +
+                "{\"id\":\"1\", \"impression_id\":\"1\", \"revenue\":50.0}, " +
+                "{\"id\":\"2\", \"impression_id\":\"1\", \"revenue\":75.0}, " +
+                "{\"id\":\"3\", \"impression_id\":\"3\", \"revenue\":100.0}, " +
+                "{\"id\":\"4\", \"impression_id\":\"unknown\", \"revenue\":10.0}]").getBytes());
+
+        // Load clicks before impressions, so clicks have to wait for their impressions
+        StepVerifier.create(clickService.load(tempDir.resolve("clicks.json").toString()))
+                .expectNextCount(4)
+                .verifyComplete();
+        StepVerifier.create(impressionService.load(tempDir.resolve("impressions.json").toString()))
+                .expectNextCount(3)
+                .verifyComplete();
+
+        // Reloading the same impressions must not count them twice
+        StepVerifier.create(impressionService.load(tempDir.resolve("impressions.json").toString()))
+                .verifyComplete();
+
+        StepVerifier.create(metricsCalculatorService.metrics())
+                .expectNextMatches(this::assertMetrics)
+                .expectNextMatches(this::assertMetrics)
+                .verifyComplete();
+    }
+
+    private boolean assertMetrics(Metrics metrics) {
+        return (metrics.getAppId().equals("app1")
+                && metrics.getCountryCode().equals("US")
+                && metrics.getImpressions() == 2
+                && metrics.getClicks() == 2
+                && metrics.getRevenue() == 125.0)
+                ||
+                (metrics.getAppId().equals("app2")
+                        && metrics.getCountryCode().equals("CA")
+                        && metrics.getImpressions() == 1
+                        && metrics.getClicks() == 1
+                        && metrics.getRevenue() == 100.0);
+    }
+}
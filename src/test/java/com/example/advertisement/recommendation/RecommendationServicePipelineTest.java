@@ -0,0 +1,10 @@
+package com.example.advertisement.recommendation;
+
+import org.springframework.test.context.TestPropertySource;
+
+/**
+ * Runs the recommendation tests with the advertisers ranked by the pipeline instead of the application.
+ */
+@TestPropertySource(properties = "advertisement.recommendations.ranking=pipeline")
+class RecommendationServicePipelineTest extends RecommendationServiceTest {
+}
@@ -16,8 +16,11 @@ import org.testcontainers.junit.jupiter.Testcontainers;
 import reactor.core.publisher.Flux;
 import reactor.test.StepVerifier;
 
+import java.util.Comparator;
 import java.util.List;
 
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
 @SpringBootTest(classes = {AdvertisementApplication.class, MongoContainerConfiguration.class})
 @ContextConfiguration
 @Testcontainers
@@ -92,6 +95,51 @@ class RecommendationServiceTest {
                 .verifyComplete();
     }
 
+    @Test
+    void recommendations_shouldOrderAdvertisersByRevenue() {
+        mongoTemplate.insertAll(List.of(
+                new Impression("1", "app1", "US", "adv1"),
+                new Impression("2", "app1", "US", "adv2"),
+                new Impression("3", "app1", "US", "adv3"),
+                new Impression("4", "app1", "US", "adv2"),
+                new Impression("5", "app1", "US", "adv4"))).blockLast();
+        mongoTemplate.insertAll(List.of(
+                new Click("1", "1", 30.0),
+                new Click("2", "2", 20.0),
+                new Click("3", "4", 25.0), // adv2 earns 45.0 over two impressions
+                new Click("4", "3", 40.0))).blockLast();
+
+        StepVerifier.create(recommendationService.recommendations(3))
+                .expectNext(new Recommendation("app1", "US", List.of("adv2", "adv3", "adv1")))
+                .verifyComplete();
+    }
+
+    @Test
+    void recommendations_shouldRankEqualRevenueByAdvertiserId() {
+        mongoTemplate.insertAll(List.of(
+                new Impression("1", "app1", "US", "adv1"),
+                new Impression("2", "app1", "US", "adv2"),
+                new Impression("3", "app1", "US", "adv3"),
+                new Impression("4", "app2", "CA", "adv1"))).blockLast();
+        mongoTemplate.insertAll(List.of(
+                new Click("1", "1", 10.0),
+                new Click("2", "2", 20.0),
+                new Click("3", "3", 20.0))).blockLast();
+
+        StepVerifier.create(recommendationService.recommendations(2)
+                        .collectSortedList(Comparator.comparing(Recommendation::getAppId)))
+                .expectNext(List.of(
+                        new Recommendation("app1", "US", List.of("adv2", "adv3")),
+                        new Recommendation("app2", "CA", List.of("adv1"))))
+                .verifyComplete();
+    }
+
+    @Test
+    void recommendations_shouldRejectNonPositiveNumberOfAdvertisers() {
+        assertThatThrownBy(() -> recommendationService.recommendations(0))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
     private boolean assertRecommendation(Recommendation recommendation) {
         // Check for app1 in the US
         if (recommendation.getAppId().equals("app1") && recommendation.getCountryCode().equals("US")) {
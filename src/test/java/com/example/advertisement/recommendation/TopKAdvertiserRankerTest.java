@@ -0,0 +1,65 @@
+package com.example.advertisement.recommendation;
+
+import com.example.advertisement.model.AdvertiserRevenue;
+import com.example.advertisement.model.Recommendation;
+import org.junit.jupiter.api.Test;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TopKAdvertiserRankerTest {
+
+    @Test
+    void recommendations_shouldKeepTopAdvertisersInRevenueOrder() {
+        TopKAdvertiserRanker ranker = new TopKAdvertiserRanker(3);
+        ranker.add(new AdvertiserRevenue("app1", "US", "adv1", 10.0));
+        ranker.add(new AdvertiserRevenue("app1", "US", "adv2", 50.0));
+        ranker.add(new AdvertiserRevenue("app1", "US", "adv3", 0.0));
+        ranker.add(new AdvertiserRevenue("app1", "US", "adv4", 30.0));
+        ranker.add(new AdvertiserRevenue("app1", "US", "adv5", 40.0));
+        ranker.add(new AdvertiserRevenue("app2", "CA", "adv1", null));
+        ranker.add(new AdvertiserRevenue("app2", "CA", "adv2", 5.0));
+
+        List<Recommendation> recommendations = ranker.recommendations().stream()
+                .sorted(Comparator.comparing(Recommendation::getAppId))
+                .toList();
+
+        assertThat(recommendations).containsExactly(
+                new Recommendation("app1", "US", List.of("adv2", "adv5", "adv4")),
+                new Recommendation("app2", "CA", List.of("adv2", "adv1")));
+    }
+
+    @Test
+    void recommendations_shouldRankEqualRevenueByAdvertiserId() {
+        TopKAdvertiserRanker ranker = new TopKAdvertiserRanker(2);
+        ranker.add(new AdvertiserRevenue("app1", "US", "adv3", 10.0));
+        ranker.add(new AdvertiserRevenue("app1", "US", "adv1", 10.0));
+        ranker.add(new AdvertiserRevenue("app1", "US", "adv2", 10.0));
+
+        assertThat(ranker.recommendations())
+                .containsExactly(new Recommendation("app1", "US", List.of("adv1", "adv2")));
+    }
+
+    @Test
+    void recommendations_shouldRankEqualRevenueByAdvertiserKey() {
+        // Codes that sort unlike the identifiers they stand for
+        Map<String, String> identifiers = Map.of("0", "advC", "1", "advB", "10", "advA");
+        TopKAdvertiserRanker ranker = new TopKAdvertiserRanker(2, identifiers::get);
+        ranker.add(new AdvertiserRevenue("app1", "US", "0", 10.0));
+        ranker.add(new AdvertiserRevenue("app1", "US", "1", 10.0));
+        ranker.add(new AdvertiserRevenue("app1", "US", "10", 10.0));
+
+        assertThat(ranker.recommendations())
+                .containsExactly(new Recommendation("app1", "US", List.of("10", "1")));
+    }
+
+    @Test
+    void constructor_shouldRejectNonPositiveK() {
+        assertThatThrownBy(() -> new TopKAdvertiserRanker(0))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
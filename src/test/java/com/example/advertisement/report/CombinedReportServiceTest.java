@@ -0,0 +1,106 @@
+package com.example.advertisement.report;
+
+import com.example.advertisement.AdvertisementApplication;
+import com.example.advertisement.config.MongoContainerConfiguration;
+import com.example.advertisement.metric.MetricsCalculatorService;
+import com.example.advertisement.model.Click;
+import com.example.advertisement.model.Impression;
+import com.example.advertisement.model.Metrics;
+import com.example.advertisement.model.Recommendation;
+import com.example.advertisement.recommendation.RecommendationService;
+import lombok.extern.apachecommons.CommonsLog;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.test.context.ContextConfiguration;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.Comparator;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest(classes = {AdvertisementApplication.class, MongoContainerConfiguration.class})
+@ContextConfiguration
+@Testcontainers
+@CommonsLog
+class CombinedReportServiceTest {
+
+    @Autowired
+    private CombinedReportService combinedReportService;
+
+    @Autowired
+    private MetricsCalculatorService metricsCalculatorService;
+
+    @Autowired
+    private RecommendationService recommendationService;
+
+    @Autowired
+    private ReactiveMongoTemplate mongoTemplate;
+
+    @BeforeEach
+    void setUp() {
+        // Clean the collections before each test
+        mongoTemplate.dropCollection(Impression.class).block();
+        mongoTemplate.dropCollection(Click.class).block();
+
+        mongoTemplate.insertAll(List.of(
+                new Impression("1", "app1", "US", "adv1"),
+                new Impression("2", "app1", "US", "adv2"),
+                new Impression("3", "app2", "CA", "adv1"),
+                new Impression("4", "app1", "US", "adv3"),
+                new Impression("5", "app1", "US", "adv1"),
+                new Impression("6", "app3", "UK", "adv4"))).blockLast();
+        mongoTemplate.insertAll(List.of(
+                new Click("1", "1", 50.0),
+                new Click("2", "1", 75.0),
+                new Click("3", "3", 100.0),
+                new Click("4", "4", 25.0),
+                new Click("5", "2", 200.0),
+                new Click("6", "unknown", 10.0))).blockLast();
+    }
+
+    @Test
+    void testReport_MatchesSeparateAggregations() {
+        CombinedReport report = combinedReportService.report(2).block();
+
+        Comparator<Metrics> metricsOrder = Comparator.comparing(Metrics::getAppId);
+        List<Metrics> expectedMetrics = metricsCalculatorService.metrics().sort(metricsOrder).collectList().block();
+        assertThat(report.metrics()).hasSize(3);
+        assertThat(report.metrics().stream().sorted(metricsOrder).toList())
+                .usingRecursiveFieldByFieldElementComparator()
+                .containsExactlyElementsOf(expectedMetrics);
+
+        Comparator<Recommendation> recommendationOrder = Comparator.comparing(Recommendation::getAppId);
+        List<Recommendation> expectedRecommendations = recommendationService.recommendations(2)
+                .sort(recommendationOrder).collectList().block();
+        assertThat(report.recommendations().stream().sorted(recommendationOrder).toList())
+                .isEqualTo(expectedRecommendations);
+    }
+
+    @Test
+    void testReport_Ranking() {
+        CombinedReport report = combinedReportService.report(2).block();
+
+        Recommendation app1 = report.recommendations().stream()
+                .filter(recommendation -> recommendation.getAppId().equals("app1"))
+                .findFirst().orElseThrow();
+        assertThat(app1.getRecommendedAdvertiserIds()).containsExactly("adv2", "adv1");
+
+        Metrics metrics = report.metrics().stream()
+                .filter(item -> item.getAppId().equals("app1"))
+                .findFirst().orElseThrow();
+        assertThat(metrics.getImpressions()).isEqualTo(4);
+        assertThat(metrics.getClicks()).isEqualTo(4);
+        assertThat(metrics.getRevenue()).isEqualTo(350.0);
+    }
+
+    @Test
+    void testReport_InvalidNumberAdvertisers() {
+        assertThatThrownBy(() -> combinedReportService.report(0))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,187 @@
+package com.example.advertisement.snapshot;
+
+import com.example.advertisement.AdvertisementApplication;
+import com.example.advertisement.click.ClickService;
+import com.example.advertisement.config.MongoContainerConfiguration;
+import com.example.advertisement.impression.ImpressionService;
+import com.example.advertisement.model.Click;
+import com.example.advertisement.model.Impression;
+import com.example.advertisement.utils.ReactiveJsonReader;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.apachecommons.CommonsLog;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.test.context.ContextConfiguration;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares reading impressions and clicks from a snapshot with parsing them from JSON with
+ * ReactiveJsonReader, and the time of a full load into Mongo from either source.
+ * Run with {@code mvn -Pbenchmark test}.
+ */
+@SpringBootTest(classes = {AdvertisementApplication.class, MongoContainerConfiguration.class})
+@ContextConfiguration
+@Testcontainers
+@CommonsLog
+@Tag("benchmark")
+class SnapshotBenchmarkTest {
+
+    private static final int RECORDS = 200_000;
+    private static final int WARMUP_ITERATIONS = 3;
+    private static final int ITERATIONS = 5;
+
+    @Autowired
+    private ReactiveJsonReader reactiveJsonReader;
+
+    @Autowired
+    private ImpressionService impressionService;
+
+    @Autowired
+    private ClickService clickService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ReactiveMongoTemplate mongoTemplate;
+
+    private Path tempDir;
+    private Path impressionFile;
+    private Path clickFile;
+    private Path snapshot;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        // Create a temporary directory for the generated files
+        tempDir = Files.createTempDirectory("benchmarkDir");
+        impressionFile = tempDir.resolve("impressions.json");
+        clickFile = tempDir.resolve("clicks.json");
+        snapshot = tempDir.resolve("data.snapshot");
+
+        // Write the same data as JSON and as a snapshot
+        SnapshotWriter writer = new SnapshotWriter();
+        writeData(writer);
+        writer.write(snapshot);
+        log.info(String.format("JSON %d bytes, snapshot %d bytes",
+                Files.size(impressionFile) + Files.size(clickFile), Files.size(snapshot)));
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        // Clean up temporary directory after each test
+        Files.walk(tempDir)
+                .sorted((a, b) -> b.compareTo(a)) // Delete files before directory
+                .forEach(path -> {
+                    try {
+                        Files.delete(path);
+                    } catch (IOException e) {
+                        log.error("Failed to delete temp file: " + path, e);
+                    }
+                });
+    }
+
+    @Test
+    void benchmarkRead() throws Exception {
+        Callable<Long> json = () -> reactiveJsonReader.readJsonFiles(impressionFile.toString(), Impression.class).count().block()
+                + reactiveJsonReader.readJsonFiles(clickFile.toString(), Click.class).count().block();
+        Callable<Long> columnar = () -> {
+            SnapshotReader reader = SnapshotReader.open(snapshot);
+            return reader.impressions().count().block() + reader.clicks().count().block();
+        };
+
+        double jsonRate = measure(json);
+        double snapshotRate = measure(columnar);
+
+        log.info(String.format("Read: JSON %.0f records/s, snapshot %.0f records/s (%.2fx)",
+                jsonRate, snapshotRate, snapshotRate / jsonRate));
+
+        assertThat(columnar.call()).isEqualTo(json.call()).isEqualTo(2L * RECORDS);
+    }
+
+    @Test
+    void benchmarkLoad() throws Exception {
+        Callable<Long> json = () -> impressionService.load(impressionFile.toString()).count().block()
+                + clickService.load(clickFile.toString()).count().block();
+        Callable<Long> columnar = () -> {
+            SnapshotReader reader = SnapshotReader.open(snapshot);
+            return impressionService.load(reader.impressions()).count().block()
+                    + clickService.load(reader.clicks()).count().block();
+        };
+
+        long jsonNanos = timeLoad(json);
+        long snapshotNanos = timeLoad(columnar);
+
+        log.info(String.format("Load: JSON %.2f s, snapshot %.2f s (%.2fx)",
+                jsonNanos / 1e9, snapshotNanos / 1e9, (double) jsonNanos / snapshotNanos));
+    }
+
+    private double measure(Callable<Long> read) throws Exception {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            read.call();
+        }
+
+        long records = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            records += read.call();
+        }
+        return records / ((System.nanoTime() - start) / 1e9);
+    }
+
+    /**
+     * Times a load into empty collections.
+     */
+    private long timeLoad(Callable<Long> load) throws Exception {
+        mongoTemplate.dropCollection(Impression.class).block();
+        mongoTemplate.dropCollection(Click.class).block();
+
+        long start = System.nanoTime();
+        assertThat(load.call()).isEqualTo(2L * RECORDS);
+        return System.nanoTime() - start;
+    }
+
+    private void writeData(SnapshotWriter writer) throws IOException {
+        Random random = new Random(42);
+        String[] impressionIds = new String[RECORDS];
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(impressionFile.toFile(), JsonEncoding.UTF8)) {
+            generator.useDefaultPrettyPrinter();
+            generator.writeStartArray();
+            for (int i = 0; i < RECORDS; i++) {
+                Impression impression = new Impression(UUID.randomUUID().toString(), String.valueOf(100 + random.nextInt(50)),
+                        random.nextBoolean() ? "US" : "GB", String.valueOf(200 + random.nextInt(100)));
+                impressionIds[i] = impression.getId();
+                writer.add(impression);
+                generator.writeObject(impression);
+            }
+            generator.writeEndArray();
+        }
+
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(clickFile.toFile(), JsonEncoding.UTF8)) {
+            generator.useDefaultPrettyPrinter();
+            generator.writeStartArray();
+            for (int i = 0; i < RECORDS; i++) {
+                Click click = new Click(String.valueOf(i), impressionIds[random.nextInt(RECORDS)],
+                        Math.round(random.nextDouble() * 500) / 100.0);
+                writer.add(click);
+                generator.writeObject(click);
+            }
+            generator.writeEndArray();
+        }
+    }
+}
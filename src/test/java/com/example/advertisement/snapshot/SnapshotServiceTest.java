@@ -0,0 +1,148 @@
+package com.example.advertisement.snapshot;
+
+import com.example.advertisement.AdvertisementApplication;
+import com.example.advertisement.config.MongoContainerConfiguration;
+import com.example.advertisement.metric.MetricsCalculatorService;
+import com.example.advertisement.model.Click;
+import com.example.advertisement.model.Impression;
+import com.example.advertisement.model.Metrics;
+import com.example.advertisement.model.Recommendation;
+import com.example.advertisement.recommendation.RecommendationService;
+import lombok.extern.apachecommons.CommonsLog;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.test.context.ContextConfiguration;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import reactor.test.StepVerifier;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest(classes = {AdvertisementApplication.class, MongoContainerConfiguration.class})
+@ContextConfiguration
+@Testcontainers
+@CommonsLog
+class SnapshotServiceTest {
+
+    private static final List<Impression> IMPRESSIONS = List.of(
+            new Impression("1", "app1", "US", "adv1"),
+            new Impression("2", "app1", "US", "adv2"),
+            new Impression("3", "app2", "CA", "adv1"),
+            new Impression("4", "app1", "US", "adv3"),
+            new Impression("5", "app3", null, "adv4"));
+
+    private static final List<Click> CLICKS = List.of(
+            new Click("1", "1", 50.0),
+            new Click("2", "1", 75.0),
+            new Click("3", "3", 100.0),
+            new Click("4", "4", 25.0),
+            new Click("5", "5", null),
+            new Click("6", "unknown", 10.0));
+
+    @Autowired
+    private SnapshotService snapshotService;
+
+    @Autowired
+    private MetricsCalculatorService metricsCalculatorService;
+
+    @Autowired
+    private RecommendationService recommendationService;
+
+    @Autowired
+    private ReactiveMongoTemplate mongoTemplate;
+
+    private Path tempDir;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        // Create a temporary directory for testing
+        tempDir = Files.createTempDirectory("testDir");
+        // Clean the collections before each test
+        mongoTemplate.dropCollection(Impression.class).block();
+        mongoTemplate.dropCollection(Click.class).block();
+
+        mongoTemplate.insertAll(IMPRESSIONS).blockLast();
+        mongoTemplate.insertAll(CLICKS).blockLast();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        // Clean up the temporary directory after each test
+        Files.walk(tempDir)
+                .sorted((a, b) -> b.compareTo(a)) // Delete files before directory
+                .forEach(path -> {
+                    try {
+                        Files.delete(path);
+                    } catch (IOException e) {
+                        log.error("Failed to delete temp file: " + path, e);
+                    }
+                });
+    }
+
+    @Test
+    void testSaveAndRestore() {
+        Path snapshot = tempDir.resolve("data.snapshot");
+        StepVerifier.create(snapshotService.save(snapshot))
+                .assertNext(size -> assertThat(size).isEqualTo(snapshot.toFile().length()))
+                .verifyComplete();
+        assertThat(tempDir.resolve("data.snapshot.tmp")).doesNotExist();
+
+        mongoTemplate.dropCollection(Impression.class).block();
+        mongoTemplate.dropCollection(Click.class).block();
+
+        StepVerifier.create(snapshotService.restore(snapshot))
+                .expectNext((long) (IMPRESSIONS.size() + CLICKS.size()))
+                .verifyComplete();
+
+        // Every document is restored, including null fields
+        assertThat(mongoTemplate.findAll(Impression.class).collectList().block())
+                .containsExactlyInAnyOrderElementsOf(IMPRESSIONS);
+        assertThat(mongoTemplate.findAll(Click.class).collectList().block())
+                .containsExactlyInAnyOrderElementsOf(CLICKS);
+    }
+
+    @Test
+    void testMetrics_MatchAggregation() {
+        Path snapshot = tempDir.resolve("data.snapshot");
+        snapshotService.save(snapshot).block();
+
+        Comparator<Metrics> order = Comparator.comparing(Metrics::getAppId);
+        List<Metrics> expected = metricsCalculatorService.metrics().sort(order).collectList().block();
+        List<Metrics> actual = snapshotService.metrics(snapshot).sort(order).collectList().block();
+
+        assertThat(actual).hasSize(3);
+        assertThat(actual).usingRecursiveFieldByFieldElementComparator().containsExactlyElementsOf(expected);
+    }
+
+    @Test
+    void testRecommendations_MatchAggregation() {
+        Path snapshot = tempDir.resolve("data.snapshot");
+        snapshotService.save(snapshot).block();
+
+        Comparator<Recommendation> order = Comparator.comparing(Recommendation::getAppId);
+        List<Recommendation> expected = recommendationService.recommendations(2).sort(order).collectList().block();
+        List<Recommendation> actual = snapshotService.recommendations(snapshot, 2).sort(order).collectList().block();
+
+        assertThat(actual).isEqualTo(expected);
+        assertThat(actual.get(0).getRecommendedAdvertiserIds()).containsExactly("adv1", "adv3");
+    }
+
+    @Test
+    void testRestore_NotASnapshot() throws IOException {
+        Path file = tempDir.resolve("impressions.json");
+        Files.write(file, "[{\"id\":\"1\"}]".getBytes());
+
+        assertThatThrownBy(() -> snapshotService.restore(file).block())
+                .hasMessageContaining("Not a snapshot file");
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.advertisement.snapshot;
+
+import com.example.advertisement.model.Click;
+import com.example.advertisement.model.Impression;
+import lombok.extern.apachecommons.CommonsLog;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.test.StepVerifier;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static com.example.advertisement.snapshot.SnapshotFormat.HEADER_SIZE;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@CommonsLog
+class SnapshotWriterTest {
+
+    private static final List<Impression> IMPRESSIONS = List.of(
+            new Impression("1", "app1", "US", "adv1"),
+            new Impression("impression-2", "app1", "US", "advertiser-2"),
+            new Impression("3", "app2", null, "adv1"),
+            new Impression(null, "app-ü", "CA", "adv1"));
+
+    private static final List<Click> CLICKS = List.of(
+            new Click("1", "1", 50.0),
+            new Click("click-2", "impression-2", null),
+            new Click("3", null, 0.25));
+
+    private Path tempDir;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        // Create a temporary directory for testing
+        tempDir = Files.createTempDirectory("testDir");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        // Clean up the temporary directory after each test
+        Files.walk(tempDir)
+                .sorted((a, b) -> b.compareTo(a)) // Delete files before directory
+                .forEach(path -> {
+                    try {
+                        Files.delete(path);
+                    } catch (IOException e) {
+                        log.error("Failed to delete temp file: " + path, e);
+                    }
+                });
+    }
+
+    @Test
+    void testWriteAndRead_AcrossChunks() throws IOException {
+        // Chunks smaller than most values, so strings and numbers cross chunk boundaries
+        for (int chunkSize : new int[]{8, 11, 1024}) {
+            Path snapshot = tempDir.resolve("chunks-" + chunkSize + ".snapshot");
+            SnapshotWriter writer = new SnapshotWriter(chunkSize);
+            IMPRESSIONS.forEach(writer::add);
+            CLICKS.forEach(writer::add);
+            assertThat(writer.write(snapshot)).isEqualTo(Files.size(snapshot));
+
+            SnapshotReader reader = SnapshotReader.open(snapshot, chunkSize);
+            StepVerifier.create(reader.impressions())
+                    .expectNextSequence(IMPRESSIONS)
+                    .verifyComplete();
+            StepVerifier.create(reader.clicks())
+                    .expectNextSequence(CLICKS)
+                    .verifyComplete();
+        }
+    }
+
+    @Test
+    void testWrite_DeletesTemporaryFileOnFailure() throws IOException {
+        // A non-empty directory cannot be replaced by the snapshot
+        Path snapshot = Files.createDirectory(tempDir.resolve("data.snapshot"));
+        Files.createFile(snapshot.resolve("file"));
+        SnapshotWriter writer = new SnapshotWriter();
+        IMPRESSIONS.forEach(writer::add);
+
+        assertThatThrownBy(() -> writer.write(snapshot))
+                .isInstanceOf(IOException.class);
+        assertThat(tempDir.resolve("data.snapshot.tmp")).doesNotExist();
+    }
+
+    @Test
+    void testOpen_RejectsCorruptedHeader() throws IOException {
+        Path snapshot = tempDir.resolve("data.snapshot");
+        SnapshotWriter writer = new SnapshotWriter();
+        IMPRESSIONS.forEach(writer::add);
+        long size = writer.write(snapshot);
+
+        // Number of columns, after the magic, the version and both counts
+        overwrite(snapshot, 24, ByteBuffer.allocate(4).putInt(3).flip());
+        assertThatThrownBy(() -> SnapshotReader.open(snapshot))
+                .isInstanceOf(IOException.class);
+
+        // Length of the last column, reaching past the end of the file
+        overwrite(snapshot, 24, ByteBuffer.allocate(4).putInt(SnapshotFormat.COLUMNS).flip());
+        overwrite(snapshot, HEADER_SIZE - 8, ByteBuffer.allocate(8).putLong(size).flip());
+        assertThatThrownBy(() -> SnapshotReader.open(snapshot))
+                .isInstanceOf(IOException.class);
+
+        // Offset of the last column, beyond the end of the file
+        overwrite(snapshot, HEADER_SIZE - 16, ByteBuffer.allocate(8).putLong(Long.MAX_VALUE).flip());
+        overwrite(snapshot, HEADER_SIZE - 8, ByteBuffer.allocate(8).putLong(1).flip());
+        assertThatThrownBy(() -> SnapshotReader.open(snapshot))
+                .isInstanceOf(IOException.class);
+    }
+
+    private static void overwrite(Path file, long position, ByteBuffer bytes) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(bytes, position);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.advertisement.stats;
+
+import com.example.advertisement.AdvertisementApplication;
+import com.example.advertisement.config.MongoContainerConfiguration;
+import com.example.advertisement.impression.ImpressionService;
+import com.example.advertisement.metric.MetricsCalculatorService;
+import com.example.advertisement.model.Click;
+import com.example.advertisement.model.Impression;
+import com.example.advertisement.utils.ReactiveJsonWriter;
+import lombok.extern.apachecommons.CommonsLog;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.test.context.ContextConfiguration;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(classes = {AdvertisementApplication.class, MongoContainerConfiguration.class})
+@ContextConfiguration
+@Testcontainers
+@CommonsLog
+class StatsServiceTest {
+
+    @Autowired
+    private StatsService statsService;
+
+    @Autowired
+    private ImpressionService impressionService;
+
+    @Autowired
+    private MetricsCalculatorService metricsCalculatorService;
+
+    @Autowired
+    private ReactiveJsonWriter reactiveJsonWriter;
+
+    @Autowired
+    private ReactiveMongoTemplate mongoTemplate;
+
+    private Path tempDir;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        // Create a temporary directory for testing
+        tempDir = Files.createTempDirectory("testDir");
+        // Clean the collections before each test
+        mongoTemplate.dropCollection(Impression.class).block();
+        mongoTemplate.dropCollection(Click.class).block();
+
+        Files.write(tempDir.resolve("impressions.json"), ("[" +
+                "{\"id\":\"1\", \"app_id\":\"app1\", \"country_code\":\"US\", \"advertiser_id\":\"adv1\"}, " +
+                "{\"id\":\"2\", \"app_id\":\"app2\", \"country_code\":\"CA\", \"advertiser_id\":\"adv2\"}]").getBytes());
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        // Clean up the temporary directory after each test
+        Files.walk(tempDir)
+                .sorted((a, b) -> b.compareTo(a)) // Delete files before directory
+                .forEach(path -> {
+                    try {
+                        Files.delete(path);
+                    } catch (IOException e) {
+                        log.error("Failed to delete temp file: " + path, e);
+                    }
+                });
+    }
+
+    @Test
+    void testStats_CoverIngestAggregationAndOutput() {
+        impressionService.load(tempDir.resolve("impressions.json").toString()).blockLast();
+        reactiveJsonWriter.writeJsonFile(metricsCalculatorService.metrics(), tempDir.resolve("metrics.json")).blockLast();
+
+        List<String> stats = statsService.stats();
+        log.info(String.join("\n", stats));
+
+        assertThat(stats).anyMatch(line -> line.startsWith("advertisement.reader.files.discovered{type=Impression}: "));
+        assertThat(stats).anyMatch(line -> line.startsWith("advertisement.reader.files.parsed{type=Impression}: "));
+        assertThat(stats).anyMatch(line -> line.startsWith("advertisement.reader.records{type=Impression}: ")
+                && line.endsWith("records/s per file)"));
+        assertThat(stats).anyMatch(line -> line.startsWith("advertisement.mongo.write{collection=impression}: count ")
+                && line.contains("p99"));
+        assertThat(stats).anyMatch(line -> line.startsWith("advertisement.mongo.throughput{collection=impression}: count ")
+                && line.contains("p99"));
+        assertThat(stats).anyMatch(line -> line.startsWith("advertisement.aggregation{mode=aggregation,pipeline=metrics}: count "));
+        assertThat(stats).anyMatch(line -> line.startsWith("advertisement.writer.bytes: "));
+        // Only application meters are listed
+        assertThat(stats).allMatch(line -> line.startsWith("advertisement."));
+    }
+}
@@ -0,0 +1,208 @@
+package com.example.advertisement.storage;
+
+import com.example.advertisement.AdvertisementApplication;
+import com.example.advertisement.click.ClickService;
+import com.example.advertisement.config.MongoContainerConfiguration;
+import com.example.advertisement.config.MongoIndexInitializer;
+import com.example.advertisement.impression.ImpressionService;
+import com.example.advertisement.metric.MetricsCalculatorService;
+import com.example.advertisement.model.Click;
+import com.example.advertisement.model.Impression;
+import com.example.advertisement.model.Metrics;
+import com.example.advertisement.model.Recommendation;
+import com.example.advertisement.recommendation.RecommendationService;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.apachecommons.CommonsLog;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.context.ContextConfiguration;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+@SpringBootTest(classes = {AdvertisementApplication.class, MongoContainerConfiguration.class},
+        properties = {"advertisement.storage.layout=compact", "advertisement.dedupe.enabled=true"})
+@ContextConfiguration
+@Testcontainers
+@CommonsLog
+class CompactStorageTest {
+
+    @Autowired
+    private ImpressionService impressionService;
+
+    @Autowired
+    private ClickService clickService;
+
+    @Autowired
+    private MetricsCalculatorService metricsCalculatorService;
+
+    @Autowired
+    private RecommendationService recommendationService;
+
+    @Autowired
+    private StorageReportService storageReportService;
+
+    @Autowired
+    private MongoIndexInitializer mongoIndexInitializer;
+
+    @Autowired
+    private ReactiveMongoTemplate mongoTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        // Clean the collections before each test
+        mongoTemplate.dropCollection(Impression.class).block();
+        mongoTemplate.dropCollection(Click.class).block();
+
+        mongoTemplate.insertAll(List.of(
+                new Impression("1", "32", "US", "7"),
+                new Impression("2", "32", "US", "8"),
+                new Impression("a-3", "app2", "CA", "7"))).blockLast();
+        mongoTemplate.insertAll(List.of(
+                new Click("1", "1", 50.25),
+                new Click("2", "2", 0.1),
+                new Click("c-3", "a-3", 100.0))).blockLast();
+    }
+
+    @Test
+    void testWrite_UsesCompactLayout() {
+        StepVerifier.create(mongoTemplate.findById(1, Document.class, mongoTemplate.getCollectionName(Impression.class)))
+                .expectNext(new Document("_id", 1).append("a", 32).append("c", "US").append("v", 7))
+                .verifyComplete();
+
+        StepVerifier.create(mongoTemplate.findById("c-3", Document.class, mongoTemplate.getCollectionName(Click.class)))
+                .expectNext(new Document("_id", "c-3").append("i", "a-3").append("r", 100_000_000L))
+                .verifyComplete();
+    }
+
+    @Test
+    void testReload_SkipsStoredCompactIds() {
+        List<Impression> impressions = List.of(
+                new Impression("5", "32", "US", "7"),
+                new Impression("a-6", "app2", "CA", "7"));
+        impressionService.load(Flux.fromIterable(impressions)).blockLast();
+
+        // Numeric ids are stored as numbers, and must still be found as stored
+        double skipped = meterRegistry.counter("advertisement.dedupe.skipped", "collection", "impression").count();
+        StepVerifier.create(impressionService.load(Flux.concat(Flux.fromIterable(impressions),
+                        Flux.just(new Impression("7", "32", "US", "8")))))
+                .expectNextMatches(impression -> impression.getId().equals("7"))
+                .verifyComplete();
+        assertThat(meterRegistry.counter("advertisement.dedupe.skipped", "collection", "impression").count() - skipped)
+                .isEqualTo(2);
+    }
+
+    @Test
+    void testRead_BothLayouts() {
+        // A document written before switching to the compact layout
+        mongoTemplate.insert(new Document("_id", "4").append("impressionId", "1").append("revenue", 12.5),
+                mongoTemplate.getCollectionName(Click.class)).block();
+
+        List<Click> clicks = mongoTemplate.findAll(Click.class)
+                .collectSortedList(Comparator.comparing(Click::getId))
+                .block();
+
+        assertThat(clicks).containsExactly(
+                new Click("1", "1", 50.25),
+                new Click("2", "2", 0.1),
+                new Click("4", "1", 12.5),
+                new Click("c-3", "a-3", 100.0));
+    }
+
+    @Test
+    void testLoad_RejectsCollectionOfOtherLayout() throws IOException {
+        // A collection written before switching to the compact layout
+        mongoTemplate.dropCollection(Click.class).block();
+        mongoTemplate.insert(new Document("_id", "4").append("impressionId", "1").append("revenue", 12.5),
+                mongoTemplate.getCollectionName(Click.class)).block();
+
+        Path clicks = Files.createTempFile("clicks", ".json");
+        try {
+            Files.writeString(clicks, "[{\"id\":\"5\", \"impression_id\":\"1\", \"revenue\":1.0}]");
+            StepVerifier.create(clickService.load(clicks.toString()))
+                    .verifyError(IllegalStateException.class);
+        } finally {
+            Files.delete(clicks);
+        }
+        StepVerifier.create(mongoTemplate.count(new Query(), Click.class))
+                .expectNext(1L)
+                .verifyComplete();
+    }
+
+    @Test
+    void testLoad_RejectsOtherLayoutBehindFirstDocument() {
+        // A document written before switching to the compact layout, stored after compact ones
+        mongoTemplate.insert(new Document("_id", "4").append("impressionId", "1").append("revenue", 12.5),
+                mongoTemplate.getCollectionName(Click.class)).block();
+
+        StepVerifier.create(clickService.load(Flux.just(new Click("5", "1", 1.0))))
+                .verifyError(IllegalStateException.class);
+    }
+
+    @Test
+    void testCreateIndexes_BesideStandardLayoutIndexes() {
+        // The join index as created before switching to the compact layout
+        mongoTemplate.indexOps(Click.class).ensureIndex(new Index()
+                .on("impressionId", Sort.Direction.ASC)
+                .named(MongoIndexInitializer.CLICK_IMPRESSION_ID_INDEX)).block();
+
+        StepVerifier.create(mongoIndexInitializer.createIndexes())
+                .verifyComplete();
+
+        StepVerifier.create(mongoTemplate.indexOps(Click.class).getIndexInfo().map(IndexInfo::getName).collectList())
+                .expectNextMatches(names -> names.contains(
+                        MongoIndexInitializer.COMPACT_INDEX_PREFIX + MongoIndexInitializer.CLICK_IMPRESSION_ID_INDEX))
+                .verifyComplete();
+    }
+
+    @Test
+    void testPipelines_OnCompactLayout() {
+        List<Metrics> metrics = metricsCalculatorService.metrics()
+                .collectSortedList(Comparator.comparing(Metrics::getAppId))
+                .block();
+        assertThat(metrics).extracting(Metrics::getAppId, Metrics::getCountryCode, Metrics::getImpressions, Metrics::getClicks, Metrics::getRevenue)
+                .containsExactly(
+                        tuple("32", "US", 2L, 2L, 50.25 + 0.1),
+                        tuple("app2", "CA", 1L, 1L, 100.0));
+
+        List<Recommendation> recommendations = recommendationService.recommendations(2)
+                .collectSortedList(Comparator.comparing(Recommendation::getAppId))
+                .block();
+        assertThat(recommendations).containsExactly(
+                new Recommendation("32", "US", List.of("7", "8")),
+                new Recommendation("app2", "CA", List.of("7")));
+    }
+
+    @Test
+    void testReport_ShowsSavedBytes() {
+        StepVerifier.create(storageReportService.report(100))
+                .expectNextMatches(report -> report.getCollection().equals("impression")
+                        && report.getSampledDocuments() == 3
+                        && report.getStoredBytesPerDocument() == report.getCompactBytesPerDocument()
+                        && report.getSavedBytesPerDocument() > 0)
+                .expectNextMatches(report -> report.getCollection().equals("click")
+                        && report.getSampledDocuments() == 3
+                        && report.getSavedBytesPerDocument() > 0)
+                .verifyComplete();
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.advertisement.utils;
+
+import lombok.extern.apachecommons.CommonsLog;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.test.StepVerifier;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.time.Duration;
+
+@CommonsLog
+class DirectoryWatcherTest {
+
+    // Time for the watch thread to register the directories before files are dropped
+    private static final Duration STARTUP = Duration.ofMillis(300);
+
+    private DirectoryWatcher watcher;
+
+    private Path tempDir;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        // Create a temporary directory for testing
+        tempDir = Files.createTempDirectory("testDir");
+        watcher = new DirectoryWatcher();
+        ReflectionTestUtils.setField(watcher, "pollInterval", Duration.ofMillis(50));
+        ReflectionTestUtils.setField(watcher, "settleTime", Duration.ofMillis(200));
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        // Clean up the temporary directory after each test
+        Files.walk(tempDir)
+                .sorted((a, b) -> b.compareTo(a)) // Delete files before directory
+                .forEach(path -> {
+                    try {
+                        Files.delete(path);
+                    } catch (IOException e) {
+                        log.error("Failed to delete temp file: " + path, e);
+                    }
+                });
+    }
+
+    @Test
+    void testWatch_EmitsMovedFilesOnce() throws IOException {
+        Files.writeString(tempDir.resolve("existing.json"), "[]");
+
+        StepVerifier.create(watcher.watch(tempDir.resolve("*.json").toString(), false))
+                .thenAwait(STARTUP)
+                // Written under a name that does not match, then moved into place
+                .then(() -> write(tempDir.resolve("new.json.tmp"), "[{\"id\":\"1\"}]"))
+                .then(() -> move(tempDir.resolve("new.json.tmp"), tempDir.resolve("new.json")))
+                .expectNextMatches(file -> file.path().equals(tempDir.resolve("new.json")))
+                .expectNoEvent(Duration.ofMillis(500))
+                .thenCancel()
+                .verify(Duration.ofSeconds(10));
+    }
+
+    @Test
+    void testWatch_EmitsExistingFiles() throws IOException {
+        Files.writeString(tempDir.resolve("existing.json"), "[]");
+
+        StepVerifier.create(watcher.watch(tempDir.resolve("*.json").toString(), true))
+                .expectNextMatches(file -> file.path().equals(tempDir.resolve("existing.json")))
+                .thenCancel()
+                .verify(Duration.ofSeconds(10));
+    }
+
+    @Test
+    void testWatch_EmitsChangedFilesAgain() {
+        Path file = tempDir.resolve("a.json");
+
+        StepVerifier.create(watcher.watch(tempDir.resolve("*.json").toString(), false))
+                .thenAwait(STARTUP)
+                .then(() -> write(file, "[{\"id\":\"1\"}]"))
+                .expectNextMatches(watched -> watched.path().equals(file))
+                .then(() -> write(file, "[{\"id\":\"1\"}, {\"id\":\"2\"}]"))
+                .expectNextMatches(watched -> watched.path().equals(file))
+                .thenCancel()
+                .verify(Duration.ofSeconds(10));
+    }
+
+    @Test
+    void testWatch_NewSubdirectories() {
+        Path file = tempDir.resolve("2024-06-01").resolve("a.json");
+
+        StepVerifier.create(watcher.watch(tempDir.resolve("**").resolve("*.json").toString(), false))
+                .thenAwait(STARTUP)
+                .then(() -> {
+                    try {
+                        Files.createDirectory(file.getParent());
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    write(file, "[]");
+                })
+                .expectNextMatches(watched -> watched.path().equals(file))
+                .thenCancel()
+                .verify(Duration.ofSeconds(10));
+    }
+
+    @Test
+    void testWatch_MissingDirectory() {
+        StepVerifier.create(watcher.watch(tempDir.resolve("missing").resolve("*.json").toString(), false))
+                .verifyError(NoSuchFileException.class);
+    }
+
+    private static void write(Path file, String content) {
+        try {
+            Files.writeString(file, content);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void move(Path source, Path target) {
+        try {
+            Files.move(source, target);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.advertisement.utils;
+
+import com.example.advertisement.AdvertisementApplication;
+import com.example.advertisement.config.MongoContainerConfiguration;
+import com.example.advertisement.model.Click;
+import lombok.extern.apachecommons.CommonsLog;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.context.ContextConfiguration;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+@SpringBootTest(classes = {AdvertisementApplication.class, MongoContainerConfiguration.class},
+        properties = "advertisement.ingest.batch-size=2")
+@ContextConfiguration
+@Testcontainers
+@CommonsLog
+class ReactiveBulkWriterTest {
+
+    @Autowired
+    private ReactiveBulkWriter reactiveBulkWriter;
+
+    @Autowired
+    private ReactiveMongoTemplate mongoTemplate;
+
+    @BeforeEach
+    void setUp() {
+        // Clean the collection before each test
+        mongoTemplate.dropCollection(Click.class).block();
+    }
+
+    @Test
+    void testWrite_GroupsDocumentsIntoBatches() {
+        Flux<Click> clicks = Flux.just(
+                new Click("1", "imp1", 10.0),
+                new Click("2", "imp1", 20.0),
+                new Click("3", "imp2", 30.0)
+        );
+
+        // Three documents with a batch size of two are written as two batches
+        StepVerifier.create(reactiveBulkWriter.write(clicks, Click.class))
+                .expectNextMatches(batch -> batch.size() == 2)
+                .expectNextMatches(batch -> batch.size() == 1)
+                .verifyComplete();
+
+        StepVerifier.create(mongoTemplate.count(new Query(), Click.class))
+                .expectNext(3L)
+                .verifyComplete();
+    }
+
+    @Test
+    void testWrite_SkipsDuplicates() {
+        // Insert a document that will be delivered again
+        StepVerifier.create(mongoTemplate.insert(new Click("1", "imp1", 10.0)))
+                .expectNextCount(1)
+                .verifyComplete();
+
+        Flux<Click> clicks = Flux.just(
+                new Click("1", "imp1", 10.0),
+                new Click("2", "imp2", 20.0)
+        );
+
+        // Only the new document is reported as written
+        StepVerifier.create(reactiveBulkWriter.write(clicks, Click.class))
+                .expectNextMatches(batch -> batch.size() == 1 && batch.get(0).getId().equals("2"))
+                .verifyComplete();
+
+        StepVerifier.create(mongoTemplate.findAll(Click.class))
+                .expectNextCount(2)
+                .verifyComplete();
+    }
+}
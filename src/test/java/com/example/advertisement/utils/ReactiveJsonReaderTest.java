@@ -15,11 +15,20 @@ import reactor.core.publisher.Flux;
 import reactor.test.StepVerifier;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
 
-@SpringBootTest(classes = {AdvertisementApplication.class, MongoContainerConfiguration.class})
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(classes = {AdvertisementApplication.class, MongoContainerConfiguration.class},
+        properties = {"advertisement.reader.split-threshold=1024", "advertisement.reader.split-chunk-size=256"})
 @ContextConfiguration
 @Testcontainers
 @CommonsLog
@@ -66,6 +75,178 @@ class ReactiveJsonReaderTest {
                 .verifyComplete();
     }
 
+    @Test
+    void testGetRootPath() {
+        assertThat(ReactiveJsonReader.getRootPath("/x/y/*.json")).isEqualTo(Path.of("/x/y"));
+        assertThat(ReactiveJsonReader.getRootPath("/x/y/impression*.json")).isEqualTo(Path.of("/x/y"));
+        assertThat(ReactiveJsonReader.getRootPath("/x/**/*.json")).isEqualTo(Path.of("/x"));
+        assertThat(ReactiveJsonReader.getRootPath("/x/y/day-{1,2}/a?.json")).isEqualTo(Path.of("/x/y"));
+        assertThat(ReactiveJsonReader.getRootPath("/x/y/impressions.json")).isEqualTo(Path.of("/x/y"));
+        assertThat(ReactiveJsonReader.getRootPath("*.json")).isEqualTo(Path.of(""));
+    }
+
+    @Test
+    void testReadJsonFiles_ParallelOrdered() throws IOException {
+        // Prepare several files so that they are parsed concurrently
+        Files.write(tempDir.resolve("a.json"), "[{\"name\":\"A1\", \"value\":1}, {\"name\":\"A2\", \"value\":2}]".getBytes());
+        Files.write(tempDir.resolve("b.json"), "[{\"name\":\"B1\", \"value\":3}]".getBytes());
+        Files.write(tempDir.resolve("c.json"), "[{\"name\":\"C1\", \"value\":4}, {\"name\":\"C2\", \"value\":5}]".getBytes());
+
+        // Call the method with ordered merging
+        Flux<TestModel> result = reactiveJsonReader.readJsonFiles(tempDir.resolve("*.json").toString(), TestModel.class, 3, true);
+
+        // Verify that the objects are emitted in file order
+        StepVerifier.create(result.map(TestModel::getName))
+                .expectNext("A1", "A2", "B1", "C1", "C2")
+                .verifyComplete();
+    }
+
+    @Test
+    void testReadJsonFiles_ParallelInterleaved() throws IOException {
+        // Prepare several files so that they are parsed concurrently
+        for (int i = 0; i < 5; i++) {
+            Files.write(tempDir.resolve("part-" + i + ".json"), "[{\"name\":\"Test1\", \"value\":1}, {\"name\":\"Test2\", \"value\":2}]".getBytes());
+        }
+
+        // Call the method with interleaved merging
+        Flux<TestModel> result = reactiveJsonReader.readJsonFiles(tempDir.resolve("*.json").toString(), TestModel.class, 3, false);
+
+        // Verify that all objects are emitted
+        StepVerifier.create(result)
+                .expectNextCount(10)
+                .verifyComplete();
+    }
+
+    @Test
+    void testReadJsonFiles_ParsesOnDemand() throws IOException {
+        // Prepare a file whose invalid tail is only reached if parsing runs ahead of demand
+        StringBuilder jsonContent = new StringBuilder("[");
+        for (int i = 0; i < 100; i++) {
+            jsonContent.append("{\"name\":\"Test").append(i).append("\", \"value\":").append(i).append("}, ");
+        }
+        jsonContent.append("{\"invalidJson");
+        Path jsonFile = tempDir.resolve("large.json");
+        Files.write(jsonFile, jsonContent.toString().getBytes());
+
+        // Call the method
+        Flux<TestModel> result = reactiveJsonReader.readJsonFiles(jsonFile.toString(), TestModel.class);
+
+        // Verify that the invalid tail is not parsed until the remaining objects are requested
+        StepVerifier.create(result, 1)
+                .expectNextCount(1)
+                .expectNoEvent(Duration.ofMillis(500))
+                .thenRequest(Long.MAX_VALUE)
+                .expectNextCount(99)
+                .expectError(IOException.class)
+                .verify();
+    }
+
+    @Test
+    void testReadJsonFiles_CompressedFiles() throws IOException {
+        String jsonContent = "[{\"name\":\"Test1\", \"value\":123}, {\"name\":\"Test2\", \"value\":456}]";
+
+        // Prepare a gzip file and a deflate file without compression extension
+        try (OutputStream output = new GZIPOutputStream(Files.newOutputStream(tempDir.resolve("test-1.json.gz")))) {
+            output.write(jsonContent.getBytes());
+        }
+        try (OutputStream output = new DeflaterOutputStream(Files.newOutputStream(tempDir.resolve("test-2.json.z")))) {
+            output.write(jsonContent.getBytes());
+        }
+
+        // Call the method with a pattern matching both files
+        Flux<TestModel> result = reactiveJsonReader.readJsonFiles(tempDir.resolve("test-*").toString(), TestModel.class);
+
+        // Verify the results
+        StepVerifier.create(result.map(TestModel::getName))
+                .expectNext("Test1", "Test2", "Test1", "Test2")
+                .verifyComplete();
+    }
+
+    @Test
+    void testReadJsonFiles_NewlineDelimited() throws IOException {
+        // Prepare a small newline-delimited JSON file
+        String jsonContent = "{\"name\":\"Test1\", \"value\":123}\n{\"name\":\"Test2\", \"value\":456}\n";
+        Path jsonFile = tempDir.resolve("test.ndjson");
+        Files.write(jsonFile, jsonContent.getBytes());
+
+        // Call the method
+        Flux<TestModel> result = reactiveJsonReader.readJsonFiles(jsonFile.toString(), TestModel.class);
+
+        // Verify the results
+        StepVerifier.create(result.map(TestModel::getName))
+                .expectNext("Test1", "Test2")
+                .verifyComplete();
+    }
+
+    @Test
+    void testReadJsonFiles_NewlineDelimitedSplitIntoChunks() throws IOException {
+        // Prepare a newline-delimited JSON file above the split threshold
+        StringBuilder jsonContent = new StringBuilder();
+        List<String> expectedNames = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            jsonContent.append("{\"name\":\"Test").append(i).append("\", \"value\":").append(i).append("}\n");
+            expectedNames.add("Test" + i);
+        }
+        Path jsonFile = tempDir.resolve("large.ndjson");
+        Files.write(jsonFile, jsonContent.toString().getBytes());
+
+        // Verify that chunks merged in order yield every object in file order
+        StepVerifier.create(reactiveJsonReader.readJsonFiles(jsonFile.toString(), TestModel.class, 4, true).map(TestModel::getName))
+                .expectNextSequence(expectedNames)
+                .verifyComplete();
+
+        // Verify that interleaved chunks yield every object once
+        StepVerifier.create(reactiveJsonReader.readJsonFiles(jsonFile.toString(), TestModel.class, 4, false).map(TestModel::getName).collectList())
+                .expectNextMatches(names -> names.size() == 200 && names.containsAll(expectedNames))
+                .verifyComplete();
+    }
+
+    @Test
+    void testReadJsonRecords_ResumeAtOffset() throws IOException {
+        String firstLine = "{\"name\":\"Test1\", \"value\":123}";
+        String jsonContent = firstLine + "\n{\"name\":\"Test2\", \"value\":456}\n{\"name\":\"Test3\", \"value\":789}\n";
+        Path jsonFile = tempDir.resolve("test.ndjson");
+        Files.write(jsonFile, jsonContent.getBytes());
+
+        // Every record carries its position in the file
+        List<JsonRecord<TestModel>> records = reactiveJsonReader.readJsonRecords(jsonFile, TestModel.class, 0, -1).collectList().block();
+        assertThat(records).extracting(JsonRecord::elements).containsExactly(1L, 2L, 3L);
+        assertThat(records.get(0).offset()).isEqualTo(firstLine.length());
+
+        // Resume after the first record by seeking to its end
+        StepVerifier.create(reactiveJsonReader.readJsonRecords(jsonFile, TestModel.class, 1, records.get(0).offset()))
+                .assertNext(record -> {
+                    assertThat(record.value().getName()).isEqualTo("Test2");
+                    assertThat(record.elements()).isEqualTo(2);
+                    assertThat(record.offset()).isEqualTo(records.get(1).offset());
+                })
+                .assertNext(record -> assertThat(record.value().getName()).isEqualTo("Test3"))
+                .verifyComplete();
+    }
+
+    @Test
+    void testReadJsonRecords_ResumeBySkipping() throws IOException {
+        String jsonContent = "[{\"name\":\"Test1\", \"value\":123}, {\"name\":\"Test2\", \"value\":456}, {\"name\":\"Test3\", \"value\":789}]";
+        Path jsonFile = tempDir.resolve("test.json.gz");
+        try (OutputStream output = new GZIPOutputStream(Files.newOutputStream(jsonFile))) {
+            output.write(jsonContent.getBytes());
+        }
+
+        // Offsets in a compressed file do not map to file positions, so the first records are skipped
+        StepVerifier.create(reactiveJsonReader.readJsonRecords(jsonFile, TestModel.class, 2, -1))
+                .assertNext(record -> {
+                    assertThat(record.value().getName()).isEqualTo("Test3");
+                    assertThat(record.elements()).isEqualTo(3);
+                    assertThat(record.offset()).isEqualTo(-1);
+                })
+                .verifyComplete();
+
+        // A resume point beyond the end of the file is an error
+        StepVerifier.create(reactiveJsonReader.readJsonRecords(jsonFile, TestModel.class, 5, -1))
+                .expectErrorMatches(error -> error instanceof IOException && error.getMessage().contains("before the resume point"))
+                .verify();
+    }
+
     @Test
     void testReadJsonFiles_FileNotFound() {
         // Call the method with a non-existing pattern
@@ -0,0 +1,82 @@
+package com.example.advertisement.utils;
+
+import com.example.advertisement.AdvertisementApplication;
+import com.example.advertisement.commons.TestModel;
+import com.example.advertisement.config.MongoContainerConfiguration;
+import lombok.extern.apachecommons.CommonsLog;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ContextConfiguration;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(classes = {AdvertisementApplication.class, MongoContainerConfiguration.class},
+        properties = {"advertisement.output.format=ndjson", "advertisement.output.gzip=true"})
+@ContextConfiguration
+@Testcontainers
+@CommonsLog
+class ReactiveJsonWriterOutputTest {
+
+    @Autowired
+    private ReactiveJsonWriter reactiveJsonWriter;
+
+    private Path tempDir;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        // Create a temporary directory for testing
+        tempDir = Files.createTempDirectory("testDir");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        // Clean up the temporary directory after each test
+        Files.walk(tempDir)
+                .sorted((a, b) -> b.compareTo(a)) // Delete files before directory
+                .forEach(path -> {
+                    try {
+                        Files.delete(path);
+                    } catch (IOException e) {
+                        log.error("Failed to delete temp file: " + path, e);
+                    }
+                });
+    }
+
+    @Test
+    void testWriteJsonFiles_SingleFileGetsGzipSuffix() throws IOException {
+        Flux<TestModel> sampleDataFlux = Flux.range(0, 2).map(i -> new TestModel(String.valueOf(i), i));
+
+        StepVerifier.create(reactiveJsonWriter.writeJsonFiles(sampleDataFlux, tempDir.resolve("out.json").toString(),
+                        TestModel::getValue))
+                .verifyComplete();
+
+        assertThat(tempDir.resolve("out.json")).doesNotExist();
+        try (InputStream input = new GZIPInputStream(Files.newInputStream(tempDir.resolve("out.json.gz")))) {
+            assertThat(new String(input.readAllBytes(), StandardCharsets.UTF_8)).isEqualTo(
+                    "{\"name\":\"0\",\"value\":0}\n{\"name\":\"1\",\"value\":1}\n");
+        }
+    }
+
+    @Test
+    void testWriteJsonFile_IgnoresOutputSettings() throws IOException {
+        Path file = tempDir.resolve("plain.json");
+
+        StepVerifier.create(reactiveJsonWriter.writeJsonFile(Flux.just(new TestModel("1", 1)), file))
+                .verifyComplete();
+
+        assertThat(Files.readString(file)).isEqualToIgnoringWhitespace("[{\"name\":\"1\",\"value\":1}]");
+    }
+}
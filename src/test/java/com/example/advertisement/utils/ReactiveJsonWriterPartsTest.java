@@ -0,0 +1,124 @@
+package com.example.advertisement.utils;
+
+import com.example.advertisement.AdvertisementApplication;
+import com.example.advertisement.commons.TestModel;
+import com.example.advertisement.config.MongoContainerConfiguration;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.apachecommons.CommonsLog;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ContextConfiguration;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(classes = {AdvertisementApplication.class, MongoContainerConfiguration.class},
+        properties = {"advertisement.output.parts=4", "advertisement.output.format=ndjson", "advertisement.output.gzip=true"})
+@ContextConfiguration
+@Testcontainers
+@CommonsLog
+class ReactiveJsonWriterPartsTest {
+
+    @Autowired
+    private ReactiveJsonWriter reactiveJsonWriter;
+
+    @Autowired
+    private ReactiveJsonReader reactiveJsonReader;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private JsonWriterProperties writerProperties;
+
+    private Path tempDir;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        // Create a temporary directory for testing
+        tempDir = Files.createTempDirectory("testDir");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        // Clean up the temporary directory after each test
+        Files.walk(tempDir)
+                .sorted((a, b) -> b.compareTo(a)) // Delete files before directory
+                .forEach(path -> {
+                    try {
+                        Files.delete(path);
+                    } catch (IOException e) {
+                        log.error("Failed to delete temp file: " + path, e);
+                    }
+                });
+    }
+
+    @Test
+    void testWriteJsonFiles_Parts() throws IOException {
+        Flux<TestModel> sampleDataFlux = Flux.range(0, 1000).map(i -> new TestModel("name" + i % 50, i));
+
+        StepVerifier.create(reactiveJsonWriter.writeJsonFiles(sampleDataFlux, tempDir.resolve("out.json").toString(),
+                        model -> model.getName().hashCode()))
+                .verifyComplete();
+
+        // The manifest lists every part with its row count
+        JsonOutputManifest manifest = objectMapper.readValue(tempDir.resolve("out-manifest.json").toFile(), JsonOutputManifest.class);
+        assertThat(manifest.format()).isEqualTo("ndjson");
+        assertThat(manifest.gzip()).isTrue();
+        assertThat(manifest.rows()).isEqualTo(1000);
+        assertThat(manifest.parts()).extracting(JsonOutputManifest.Part::file).containsExactly(
+                "out-part-00000.json.gz", "out-part-00001.json.gz", "out-part-00002.json.gz", "out-part-00003.json.gz");
+
+        for (JsonOutputManifest.Part part : manifest.parts()) {
+            List<TestModel> rows = reactiveJsonReader.readJsonFiles(tempDir.resolve(part.file()).toString(), TestModel.class)
+                    .collectList().block();
+            assertThat(rows).hasSize((int) part.rows());
+            assertThat(part.bytes()).isEqualTo(Files.size(tempDir.resolve(part.file())));
+            // Every name is written to the part selected by its hash
+            assertThat(rows).allMatch(model -> Math.floorMod(model.getName().hashCode(), 4)
+                    == manifest.parts().indexOf(part));
+        }
+    }
+
+    @Test
+    void testWriteJsonFiles_PartsReplacedTogether() throws IOException {
+        String out = tempDir.resolve("out.json").toString();
+        Flux<TestModel> sampleDataFlux = Flux.range(0, 100).map(i -> new TestModel("name" + i, i));
+        reactiveJsonWriter.writeJsonFiles(sampleDataFlux, out, model -> model.getValue()).blockLast();
+        byte[] manifest = Files.readAllBytes(tempDir.resolve("out-manifest.json"));
+        byte[] firstPart = Files.readAllBytes(tempDir.resolve("out-part-00000.json.gz"));
+
+        // A failing run leaves the previous parts and manifest untouched
+        Flux<TestModel> failingFlux = Flux.concat(Flux.range(0, 50).map(i -> new TestModel("other" + i, i)),
+                Flux.error(new IllegalStateException("source failed")));
+        StepVerifier.create(reactiveJsonWriter.writeJsonFiles(failingFlux, out, model -> model.getValue()))
+                .verifyErrorMessage("source failed");
+        assertThat(Files.readAllBytes(tempDir.resolve("out-manifest.json"))).isEqualTo(manifest);
+        assertThat(Files.readAllBytes(tempDir.resolve("out-part-00000.json.gz"))).isEqualTo(firstPart);
+
+        // Fewer, uncompressed parts delete the parts the new manifest does not list
+        ReactiveJsonWriter fewerParts = new ReactiveJsonWriter(objectMapper, meterRegistry, writerProperties,
+                new JsonOutputProperties(2, JsonOutputFormat.NDJSON, false));
+        StepVerifier.create(fewerParts.writeJsonFiles(sampleDataFlux, out, model -> model.getValue()))
+                .verifyComplete();
+        try (Stream<Path> files = Files.list(tempDir)) {
+            assertThat(files.map(file -> file.getFileName().toString()))
+                    .containsExactlyInAnyOrder("out-part-00000.json", "out-part-00001.json", "out-manifest.json");
+        }
+    }
+}
@@ -17,6 +17,7 @@ import reactor.test.StepVerifier;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -29,7 +30,6 @@ class ReactiveJsonWriterTest {
     @Autowired
     private ReactiveJsonWriter reactiveJsonWriter;
 
-
     private Path tempFile;
 
     @BeforeEach
@@ -63,4 +63,54 @@ class ReactiveJsonWriterTest {
                 """);
     }
 
+    @Test
+    void testWriteJsonFile_Format() throws IOException {
+        Flux<TestModel> sampleDataFlux = Flux.range(0, 3).map(i -> new TestModel(String.valueOf(i), i));
+
+        StepVerifier.create(reactiveJsonWriter.writeJsonFile(sampleDataFlux, tempFile))
+                .verifyComplete();
+
+        // One item per line, and no temporary file left behind
+        assertThat(Files.readString(tempFile)).isEqualTo("[\n" +
+                "{\"name\":\"0\",\"value\":0},\n" +
+                "{\"name\":\"1\",\"value\":1},\n" +
+                "{\"name\":\"2\",\"value\":2}\n" +
+                "]");
+        assertThat(tempFile.resolveSibling(tempFile.getFileName() + ".tmp")).doesNotExist();
+    }
+
+    @Test
+    void testWriteJsonFile_Empty() throws IOException {
+        StepVerifier.create(reactiveJsonWriter.writeJsonFile(Flux.empty(), tempFile))
+                .verifyComplete();
+
+        assertThat(Files.readString(tempFile)).isEqualToIgnoringWhitespace("[]");
+    }
+
+    @Test
+    void testWriteJsonFile_SourceError() throws IOException {
+        Files.writeString(tempFile, "previous");
+        Flux<TestModel> failingFlux = Flux.concat(Flux.just(new TestModel("1", 100)),
+                Flux.error(new IllegalStateException("source failed")));
+
+        // The error is propagated and the previous file is left untouched
+        StepVerifier.create(reactiveJsonWriter.writeJsonFile(failingFlux, tempFile))
+                .verifyErrorMessage("source failed");
+
+        assertThat(Files.readString(tempFile)).isEqualTo("previous");
+        assertThat(tempFile.resolveSibling(tempFile.getFileName() + ".tmp")).doesNotExist();
+    }
+
+    @Test
+    void testWriteJsonFile_LargeOutput() throws IOException {
+        // More items than one request batch and more bytes than one buffer
+        Flux<TestModel> sampleDataFlux = Flux.range(0, 100_000).map(i -> new TestModel(String.valueOf(i), i));
+
+        StepVerifier.create(reactiveJsonWriter.writeJsonFile(sampleDataFlux, tempFile))
+                .verifyComplete();
+
+        List<String> lines = Files.readAllLines(tempFile);
+        assertThat(lines).hasSize(100_002);
+        assertThat(lines.get(100_000)).isEqualTo("{\"name\":\"99999\",\"value\":99999}");
+    }
 }
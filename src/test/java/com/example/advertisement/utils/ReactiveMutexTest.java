@@ -0,0 +1,53 @@
+package com.example.advertisement.utils;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReactiveMutexTest {
+
+    private final ReactiveMutex mutex = new ReactiveMutex();
+
+    @Test
+    void testRun_OneAtATime() {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+
+        Mono<Integer> work = Mono.fromCallable(() -> maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max))
+                .delayElement(Duration.ofMillis(5), Schedulers.parallel())
+                .doOnNext(ignored -> running.decrementAndGet());
+
+        StepVerifier.create(Flux.range(0, 50).flatMap(i -> mutex.run(work), 50))
+                .expectNextCount(50)
+                .verifyComplete();
+        assertThat(maxRunning).hasValue(1);
+    }
+
+    @Test
+    void testRun_ReleasedOnErrorAndCancellation() {
+        StepVerifier.create(mutex.run(Mono.error(new IllegalStateException())))
+                .verifyError(IllegalStateException.class);
+
+        // The holder is cancelled, and a waiter cancels before its turn
+        Sinks.Empty<Void> never = Sinks.empty();
+        mutex.run(never.asMono()).subscribe().dispose();
+        mutex.run(Mono.just(1)).subscribe(); // Granted immediately, the lock is free
+        Sinks.Empty<Void> holder = Sinks.empty();
+        mutex.run(holder.asMono()).subscribe();
+        mutex.run(Mono.just(2)).subscribe().dispose();
+
+        // Queued behind the holder and the cancelled waiter, then granted once the holder completes
+        StepVerifier.create(mutex.run(Mono.just(3)))
+                .then(holder::tryEmitEmpty)
+                .expectNext(3)
+                .verifyComplete();
+    }
+}